@@ -0,0 +1,115 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.Pet;
+import org.springframework.samples.petclinic.owner.PetType;
+import org.springframework.samples.petclinic.owner.Visit;
+import org.springframework.samples.petclinic.vet.Specialty;
+import org.springframework.samples.petclinic.vet.Vet;
+
+/**
+ * Detached domain objects for the benchmarks, shaped like the sample data but with
+ * configurable sizes.
+ */
+public final class BenchmarkFixtures {
+
+	private static final String[] PET_TYPE_NAMES = { "bird", "cat", "dog", "hamster", "lizard", "snake" };
+
+	private static final String[] SPECIALTY_NAMES = { "radiology", "surgery", "dentistry", "cardiology", "dermatology",
+			"oncology", "neurology", "ophthalmology", "anesthesia", "nutrition", "behavior", "emergency",
+			"orthopedics", "urology", "pathology", "parasitology", "virology", "toxicology", "zoology", "theriogenology" };
+
+	private BenchmarkFixtures() {
+	}
+
+	public static List<PetType> petTypes() {
+		List<PetType> types = new ArrayList<>();
+		for (int i = 0; i < PET_TYPE_NAMES.length; i++) {
+			PetType type = new PetType();
+			type.setId(i + 1);
+			type.setName(PET_TYPE_NAMES[i]);
+			types.add(type);
+		}
+		return types;
+	}
+
+	/**
+	 * Create a saved-looking owner.
+	 * @param pets the number of pets
+	 * @param visitsPerPet the number of visits of every pet
+	 * @return the owner, with ids assigned to all entities
+	 */
+	public static Owner owner(int pets, int visitsPerPet) {
+		List<PetType> types = petTypes();
+		Owner owner = new Owner();
+		owner.setId(1);
+		owner.setVersion(0);
+		owner.setFirstName("George");
+		owner.setLastName("Franklin");
+		owner.setAddress("110 W. Liberty St.");
+		owner.setCity("Madison");
+		owner.setTelephone("6085551023");
+		int visitId = 1;
+		for (int i = 0; i < pets; i++) {
+			Pet pet = new Pet();
+			pet.setId(i + 1);
+			pet.setName("pet" + i);
+			pet.setType(types.get(i % types.size()));
+			pet.setBirthDate(LocalDate.of(2015, 1, 1).plusDays(i));
+			for (int j = 0; j < visitsPerPet; j++) {
+				Visit visit = new Visit();
+				visit.setId(visitId++);
+				visit.setDate(LocalDate.of(2020, 1, 1).plusDays(j));
+				visit.setDescription("checkup " + j);
+				pet.addVisit(visit);
+			}
+			owner.getPets().add(pet);
+		}
+		return owner;
+	}
+
+	/**
+	 * Create saved-looking vets.
+	 * @param count the number of vets
+	 * @param specialtiesPerVet the number of specialties of every vet, at most 20
+	 * @return the vets, with ids assigned to all entities
+	 */
+	public static List<Vet> vets(int count, int specialtiesPerVet) {
+		List<Vet> vets = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Vet vet = new Vet();
+			vet.setId(i + 1);
+			vet.setFirstName("Vet" + i);
+			vet.setLastName("Carter");
+			for (int j = 0; j < specialtiesPerVet; j++) {
+				Specialty specialty = new Specialty();
+				specialty.setId(j + 1);
+				specialty.setName(SPECIALTY_NAMES[(i + j) % SPECIALTY_NAMES.length]);
+				vet.addSpecialty(specialty);
+			}
+			vets.add(vet);
+		}
+		return vets;
+	}
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import java.lang.reflect.Proxy;
+
+import org.springframework.samples.petclinic.BenchmarkFixtures;
+
+/**
+ * In-memory stand-ins for the repositories, answering only what the benchmarks need.
+ */
+final class BenchmarkRepositories {
+
+	private BenchmarkRepositories() {
+	}
+
+	static OwnerRepository owners() {
+		return (OwnerRepository) Proxy.newProxyInstance(OwnerRepository.class.getClassLoader(),
+				new Class<?>[] { OwnerRepository.class }, (proxy, method, args) -> {
+					if (method.getName().equals("findPetTypes")) {
+						return BenchmarkFixtures.petTypes();
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+	}
+
+}
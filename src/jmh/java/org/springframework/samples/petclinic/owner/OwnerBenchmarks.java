@@ -0,0 +1,110 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.samples.petclinic.BenchmarkFixtures;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+
+/**
+ * Benchmarks for the pet lookups of {@link Owner}, the {@link PetTypeFormatter} and the
+ * {@link PetValidator}, which run on every pet and visit form request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OwnerBenchmarks {
+
+	@Param({ "1", "10", "100" })
+	int pets;
+
+	private Owner owner;
+
+	private String lastPetName;
+
+	private Integer lastPetId;
+
+	private PetTypeFormatter formatter;
+
+	private PetValidator validator;
+
+	private Pet validPet;
+
+	private Pet invalidPet;
+
+	@Setup
+	public void setup() {
+		this.owner = BenchmarkFixtures.owner(this.pets, 2);
+		Pet last = this.owner.getPets().get(this.pets - 1);
+		this.lastPetName = last.getName().toUpperCase(Locale.ROOT);
+		this.lastPetId = last.getId();
+		this.formatter = new PetTypeFormatter(new PetTypeCache(BenchmarkRepositories.owners()));
+		this.validator = new PetValidator();
+		this.validPet = last;
+		this.invalidPet = new Pet();
+		this.invalidPet.setBirthDate(LocalDate.of(2015, 1, 1));
+	}
+
+	@Benchmark
+	public Pet getPetByName() {
+		return this.owner.getPet(this.lastPetName, true);
+	}
+
+	@Benchmark
+	public Pet getPetById() {
+		return this.owner.getPet(this.lastPetId);
+	}
+
+	@Benchmark
+	public PetType parsePetType() throws ParseException {
+		return this.formatter.parse("snake", Locale.ENGLISH);
+	}
+
+	@Benchmark
+	public Errors validateValidPet() {
+		Errors errors = new BeanPropertyBindingResult(this.validPet, "pet");
+		this.validator.validate(this.validPet, errors);
+		return errors;
+	}
+
+	@Benchmark
+	public Errors validateInvalidPet() {
+		Errors errors = new BeanPropertyBindingResult(this.invalidPet, "pet");
+		this.validator.validate(this.invalidPet, errors);
+		return errors;
+	}
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import java.io.StringWriter;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.samples.petclinic.BenchmarkFixtures;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.Pet;
+import org.springframework.samples.petclinic.owner.PetVisit;
+import org.springframework.samples.petclinic.owner.RecentVisits;
+import org.springframework.samples.petclinic.owner.Visit;
+import org.springframework.samples.petclinic.vet.Vet;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.StaticWebApplicationContext;
+import org.springframework.web.servlet.support.RequestContext;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.spring6.expression.ThymeleafEvaluationContext;
+import org.thymeleaf.spring6.naming.SpringContextVariableNames;
+import org.thymeleaf.spring6.templateresolver.SpringResourceTemplateResolver;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+/**
+ * Benchmarks for the Thymeleaf rendering of the owner details and the vet list pages,
+ * with the template engine set up as in the application (cached templates, Spring EL,
+ * message source) and the page model the controllers build.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderingBenchmarks {
+
+	@Param({ "1", "5", "20" })
+	int pets;
+
+	private SpringTemplateEngine engine;
+
+	private StaticWebApplicationContext applicationContext;
+
+	private MockServletContext servletContext;
+
+	private JakartaServletWebApplication application;
+
+	private Map<String, Object> ownerModel;
+
+	private Map<String, Object> vetModel;
+
+	@Setup
+	public void setup() {
+		this.servletContext = new MockServletContext();
+		this.applicationContext = new StaticWebApplicationContext();
+		this.applicationContext.setServletContext(this.servletContext);
+		this.applicationContext.registerSingleton("messageSource", ResourceBundleMessageSource.class);
+		this.applicationContext.getBeanFactory()
+			.getBean("messageSource", ResourceBundleMessageSource.class)
+			.setBasename("messages/messages");
+		this.applicationContext.refresh();
+		this.servletContext.setAttribute(WebApplicationContext.ROOT_WEB_APPLICATION_CONTEXT_ATTRIBUTE,
+				this.applicationContext);
+
+		SpringResourceTemplateResolver resolver = new SpringResourceTemplateResolver();
+		resolver.setApplicationContext(this.applicationContext);
+		resolver.setPrefix("classpath:/templates/");
+		resolver.setSuffix(".html");
+		resolver.setTemplateMode(TemplateMode.HTML);
+		resolver.setCacheable(true);
+		this.engine = new SpringTemplateEngine();
+		this.engine.setTemplateResolver(resolver);
+		this.engine.setTemplateEngineMessageSource(this.applicationContext);
+		this.application = JakartaServletWebApplication.buildApplication(this.servletContext);
+
+		Owner owner = BenchmarkFixtures.owner(this.pets, 3);
+		Map<Integer, RecentVisits> recentVisits = new HashMap<>();
+		for (Pet pet : owner.getPets()) {
+			List<PetVisit> visits = pet.getVisits()
+				.stream()
+				.sorted(Comparator.comparing(Visit::getDate).reversed())
+				.map((visit) -> new PetVisit(pet.getId(), visit.getId(), visit.getDate(), visit.getDescription()))
+				.toList();
+			recentVisits.put(pet.getId(), new RecentVisits(visits, false));
+		}
+		this.ownerModel = new HashMap<>();
+		this.ownerModel.put("owner", owner);
+		this.ownerModel.put("recentVisits", recentVisits);
+		List<Vet> vets = BenchmarkFixtures.vets(5, Math.min(this.pets, 20));
+		this.vetModel = new HashMap<>();
+		this.vetModel.put("listVets", vets);
+		this.vetModel.put("currentPage", 1);
+		this.vetModel.put("totalPages", 4);
+		this.vetModel.put("totalItems", 20L);
+	}
+
+	@Benchmark
+	public String renderOwnerDetails() {
+		return render("owners/ownerDetails", "/owners/1", this.ownerModel);
+	}
+
+	@Benchmark
+	public String renderVetList() {
+		return render("vets/vetList", "/vets.html", this.vetModel);
+	}
+
+	private String render(String template, String path, Map<String, Object> model) {
+		MockHttpServletRequest request = new MockHttpServletRequest(this.servletContext, "GET", path);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		WebContext context = new WebContext(this.application.buildExchange(request, response), Locale.ENGLISH,
+				model);
+		context.setVariable(SpringContextVariableNames.SPRING_REQUEST_CONTEXT,
+				new RequestContext(request, response, this.servletContext, model));
+		context.setVariable(ThymeleafEvaluationContext.THYMELEAF_EVALUATION_CONTEXT_CONTEXT_VARIABLE_NAME,
+				new ThymeleafEvaluationContext(this.applicationContext, null));
+		StringWriter writer = new StringWriter(16 * 1024);
+		this.engine.process(template, context, writer);
+		return writer.toString();
+	}
+
+}
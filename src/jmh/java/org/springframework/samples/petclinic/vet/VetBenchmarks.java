@@ -0,0 +1,68 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.vet;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.samples.petclinic.BenchmarkFixtures;
+
+/**
+ * Benchmarks for {@link Vet#getSpecialties()}, both as served from the sorted list kept
+ * by the vet and right after the specialties changed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VetBenchmarks {
+
+	@Param({ "1", "5", "20" })
+	int specialties;
+
+	private Vet vet;
+
+	@Setup
+	public void setup() {
+		this.vet = BenchmarkFixtures.vets(1, this.specialties).get(0);
+	}
+
+	@Benchmark
+	public List<Specialty> getSpecialties() {
+		return this.vet.getSpecialties();
+	}
+
+	@Benchmark
+	public List<Specialty> getSpecialtiesAfterChange() {
+		this.vet.setSpecialtiesInternal(this.vet.getSpecialtiesInternal());
+		return this.vet.getSpecialties();
+	}
+
+}
@@ -0,0 +1,555 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.samples.petclinic.owner.ClinicAnalyticsReport.CityVisits;
+import org.springframework.samples.petclinic.owner.ClinicAnalyticsReport.NewOwners;
+import org.springframework.samples.petclinic.owner.ClinicAnalyticsReport.TypeVisits;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Clinic analytics served from summary tables rather than from the history: the visits
+ * per month by pet type ({@code visits_by_month_and_type}) and by city of the owner
+ * ({@code visits_by_month_and_city}), and the new owners per week
+ * ({@code owners_by_week}). A report reads a few rows per month, however many visits
+ * there are.
+ * <p>
+ * The summaries are maintained incrementally, in the transaction of each write that
+ * changes a count: booking a visit through {@link VisitRepository#addVisit}, registering
+ * an owner, moving an owner to another city or changing the type of a pet (see
+ * {@link ClinicAnalyticsListener}) and importing owners through the
+ * {@link OwnerImporter}. Counts are added with an upsert, so concurrent writers only
+ * contend for the lock of the summary rows they touch. Writes that bypass these paths,
+ * like SQL scripts or the dataset generator, are caught up by {@link #reconcile()}.
+ */
+@Component
+public class ClinicAnalytics {
+
+	private static final Log logger = LogFactory.getLog(ClinicAnalytics.class);
+
+	private final JdbcTemplate jdbc;
+
+	private final TransactionTemplate transactions;
+
+	private final TransactionTemplate snapshots;
+
+	private final TransactionTemplate reads;
+
+	private final PetTypeCache petTypes;
+
+	private final Dialect dialect;
+
+	public ClinicAnalytics(JdbcTemplate jdbc, TransactionTemplate transactions, PetTypeCache petTypes) {
+		this.jdbc = jdbc;
+		this.transactions = transactions;
+		// not read-only, so that the snapshot is taken on the primary the corrections
+		// are applied to
+		this.snapshots = new TransactionTemplate(transactions.getTransactionManager());
+		this.snapshots.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+		this.reads = new TransactionTemplate(transactions.getTransactionManager());
+		this.reads.setReadOnly(true);
+		this.petTypes = petTypes;
+		this.dialect = Dialect.of(jdbc.getDataSource());
+	}
+
+	/**
+	 * Report the visits per month of the given range and the new owners per week of the
+	 * weeks starting in that range.
+	 * @param from the first month
+	 * @param to the last month
+	 * @return the report, read from the summaries only
+	 */
+	public ClinicAnalyticsReport report(YearMonth from, YearMonth to) {
+		Map<Integer, String> types = this.petTypes.findAll()
+			.stream()
+			.collect(Collectors.toMap(PetType::getId, PetType::getName));
+		LocalDate first = from.atDay(1);
+		LocalDate last = to.atDay(1);
+		return this.reads.execute((status) -> new ClinicAnalyticsReport(from, to,
+				this.jdbc.query(
+						"SELECT visit_month, type_id, visits FROM visits_by_month_and_type "
+								+ "WHERE visit_month BETWEEN ? AND ? AND visits <> 0 ORDER BY visit_month, type_id",
+						(result, row) -> new TypeVisits(month(result), types.get(result.getInt(2)), result.getInt(3)),
+						first, last),
+				this.jdbc.query("SELECT visit_month, city, visits FROM visits_by_month_and_city "
+						+ "WHERE visit_month BETWEEN ? AND ? AND visits <> 0 ORDER BY visit_month, visits DESC, city",
+						(result, row) -> new CityVisits(month(result), result.getString(2), result.getInt(3)), first,
+						last),
+				this.jdbc.query(
+						"SELECT registration_week, owners FROM owners_by_week "
+								+ "WHERE registration_week BETWEEN ? AND ? AND owners <> 0 ORDER BY registration_week",
+						(result, row) -> new NewOwners(result.getObject(1, LocalDate.class), result.getInt(2)),
+						week(first), to.atEndOfMonth())));
+	}
+
+	/**
+	 * Count a visit booked for the given pet. Must be called in the transaction of the
+	 * booking.
+	 * @param petId the id of the pet
+	 * @param date the date of the visit
+	 */
+	void visitAdded(int petId, LocalDate date) {
+		if (date == null) {
+			return;
+		}
+		Deltas deltas = new Deltas();
+		this.jdbc.query("SELECT p.type_id, o.city FROM pets p JOIN owners o ON o.id = p.owner_id WHERE p.id = ?",
+				(result) -> {
+					deltas.visits(date, result.getInt(1), result.getString(2), 1);
+				}, petId);
+		apply(deltas);
+	}
+
+	/**
+	 * Count an owner registered on the given day. Must be called in the transaction
+	 * inserting the owner.
+	 * @param registeredOn the day of the registration
+	 */
+	void ownerRegistered(LocalDate registeredOn) {
+		if (registeredOn != null) {
+			apply(new Deltas().owners(registeredOn, 1));
+		}
+	}
+
+	/**
+	 * Move the visits of the given owner to the given city, if that is not the city in
+	 * the database. Must be called in the updating transaction, before the update is
+	 * executed.
+	 * @param ownerId the id of the owner
+	 * @param city the new city of the owner
+	 */
+	void ownerUpdating(int ownerId, String city) {
+		List<String> previous = this.jdbc.queryForList("SELECT city FROM owners WHERE id = ?", String.class, ownerId);
+		if (previous.isEmpty() || Objects.equals(previous.get(0), city)) {
+			return;
+		}
+		Deltas deltas = new Deltas();
+		this.jdbc.query("SELECT v.visit_date, count(*) FROM pets p JOIN visits v ON v.pet_id = p.id "
+				+ "WHERE p.owner_id = ? AND v.visit_date IS NOT NULL GROUP BY v.visit_date", (result) -> {
+					LocalDate date = result.getObject(1, LocalDate.class);
+					deltas.visits(date, null, previous.get(0), -result.getInt(2))
+						.visits(date, null, city, result.getInt(2));
+				}, ownerId);
+		apply(deltas);
+	}
+
+	/**
+	 * Move the visits of the given pet to the given type, if that is not the type in the
+	 * database. Must be called in the updating transaction, before the update is
+	 * executed.
+	 * @param petId the id of the pet
+	 * @param typeId the id of the new type of the pet
+	 */
+	void petUpdating(int petId, Integer typeId) {
+		List<Integer> previous = this.jdbc.queryForList("SELECT type_id FROM pets WHERE id = ?", Integer.class, petId);
+		if (previous.isEmpty() || Objects.equals(previous.get(0), typeId)) {
+			return;
+		}
+		Deltas deltas = new Deltas();
+		this.jdbc.query("SELECT visit_date, count(*) FROM visits WHERE pet_id = ? AND visit_date IS NOT NULL "
+				+ "GROUP BY visit_date", (result) -> {
+					LocalDate date = result.getObject(1, LocalDate.class);
+					deltas.visits(date, previous.get(0), null, -result.getInt(2))
+						.visits(date, typeId, null, result.getInt(2));
+				}, petId);
+		apply(deltas);
+	}
+
+	/**
+	 * Add the given counts to the summaries. Must be called in the transaction of the
+	 * write that changed them.
+	 * @param deltas the changes of the counts
+	 */
+	void apply(Deltas deltas) {
+		deltas.counts.forEach((summary, counts) -> {
+			List<Object[]> rows = new ArrayList<>();
+			counts.forEach((key, delta) -> {
+				if (delta != 0) {
+					rows.add(Stream.concat(key.stream(), Stream.of(delta)).toArray());
+				}
+			});
+			// the same order in every transaction, so concurrent writers cannot deadlock
+			rows.sort(Comparator.comparing((row) -> List.of(row).toString()));
+			if (!rows.isEmpty()) {
+				this.jdbc.batchUpdate(this.dialect.upsert(summary), rows);
+			}
+		});
+	}
+
+	/**
+	 * Compute the summaries from the {@code owners}, {@code pets} and {@code visits}
+	 * tables and correct the rows that drifted. Both are read from one snapshot and the
+	 * corrections are added like any other change, so writes running meanwhile are
+	 * neither lost nor counted twice.
+	 * @return the number of corrected summary rows
+	 */
+	@Scheduled(cron = "${petclinic.analytics.reconcile-cron:0 30 3 * * *}")
+	public int reconcile() {
+		long start = System.nanoTime();
+		Deltas drift = this.snapshots.execute((status) -> {
+			Deltas deltas = new Deltas();
+			for (Summary summary : Summary.values()) {
+				read(summary.compute(this.dialect), summary, deltas, 1);
+				read(summary.select(), summary, deltas, -1);
+			}
+			return deltas;
+		});
+		int corrected = drift.size();
+		this.transactions.executeWithoutResult((status) -> {
+			apply(drift);
+			for (Summary summary : Summary.values()) {
+				this.jdbc.update("DELETE FROM " + summary.table + " WHERE " + summary.count + " = 0");
+			}
+		});
+		String message = String.format("Reconciled the analytics summaries in %.1f s, %d rows corrected",
+				(System.nanoTime() - start) / 1e9, corrected);
+		if (corrected > 0) {
+			logger.warn(message);
+		}
+		else {
+			logger.info(message);
+		}
+		return corrected;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void reconcileIfEmpty() {
+		Integer rows = this.jdbc.queryForObject("SELECT count(*) FROM " + Summary.VISITS_BY_TYPE.table, Integer.class);
+		if (rows != null && rows == 0) {
+			reconcile();
+		}
+	}
+
+	private void read(String sql, Summary summary, Deltas deltas, int sign) {
+		this.jdbc.query(sql, (result) -> {
+			List<Object> key = new ArrayList<>(summary.keys.size());
+			for (int i = 0; i < summary.keys.size(); i++) {
+				key.add(result.getObject(i + 1, summary.keys.get(i).type()));
+			}
+			deltas.add(summary, key, sign * result.getInt(summary.keys.size() + 1));
+		});
+	}
+
+	private static YearMonth month(ResultSet result) throws SQLException {
+		return YearMonth.from(result.getObject(1, LocalDate.class));
+	}
+
+	private static LocalDate week(LocalDate date) {
+		return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+	}
+
+	/**
+	 * Changes of the summary counts, keyed by summary row.
+	 */
+	static final class Deltas {
+
+		private final Map<Summary, Map<List<Object>, Integer>> counts = new EnumMap<>(Summary.class);
+
+		/**
+		 * Count visits on the given day, by pet type and by city where given.
+		 */
+		Deltas visits(LocalDate date, Integer typeId, String city, int visits) {
+			LocalDate month = date.withDayOfMonth(1);
+			if (typeId != null) {
+				add(Summary.VISITS_BY_TYPE, List.of(month, typeId), visits);
+			}
+			if (city != null) {
+				add(Summary.VISITS_BY_CITY, List.of(month, city), visits);
+			}
+			return this;
+		}
+
+		/**
+		 * Count owners registered on the given day.
+		 */
+		Deltas owners(LocalDate registeredOn, int owners) {
+			return add(Summary.NEW_OWNERS, List.of(week(registeredOn)), owners);
+		}
+
+		private Deltas add(Summary summary, List<Object> key, int delta) {
+			this.counts.computeIfAbsent(summary, (s) -> new LinkedHashMap<>()).merge(key, delta, Integer::sum);
+			return this;
+		}
+
+		/**
+		 * Return the number of summary rows that change.
+		 */
+		int size() {
+			return (int) this.counts.values()
+				.stream()
+				.flatMap((counts) -> counts.values().stream())
+				.filter((delta) -> delta != 0)
+				.count();
+		}
+
+	}
+
+	/**
+	 * A key column of a summary table.
+	 */
+	private record Column(String name, Class<?> type, String sqlType) {
+
+	}
+
+	/**
+	 * The summary tables, a count per key.
+	 */
+	enum Summary {
+
+		VISITS_BY_TYPE("visits_by_month_and_type", "visits", new Column("visit_month", LocalDate.class, "DATE"),
+				new Column("type_id", Integer.class, "INTEGER")) {
+
+			@Override
+			String compute(Dialect dialect) {
+				String month = dialect.month("v.visit_date");
+				return "SELECT " + month + ", p.type_id, count(*) FROM visits v JOIN pets p ON p.id = v.pet_id "
+						+ "WHERE v.visit_date IS NOT NULL GROUP BY " + month + ", p.type_id";
+			}
+
+		},
+
+		VISITS_BY_CITY("visits_by_month_and_city", "visits", new Column("visit_month", LocalDate.class, "DATE"),
+				new Column("city", String.class, "VARCHAR(80)")) {
+
+			@Override
+			String compute(Dialect dialect) {
+				String month = dialect.month("v.visit_date");
+				return "SELECT " + month + ", o.city, count(*) FROM visits v JOIN pets p ON p.id = v.pet_id "
+						+ "JOIN owners o ON o.id = p.owner_id WHERE v.visit_date IS NOT NULL AND o.city IS NOT NULL "
+						+ "GROUP BY " + month + ", o.city";
+			}
+
+		},
+
+		NEW_OWNERS("owners_by_week", "owners", new Column("registration_week", LocalDate.class, "DATE")) {
+
+			@Override
+			String compute(Dialect dialect) {
+				String week = dialect.week("registered_on");
+				return "SELECT " + week + ", count(*) FROM owners WHERE registered_on IS NOT NULL GROUP BY " + week;
+			}
+
+		};
+
+		private final String table;
+
+		private final String count;
+
+		private final List<Column> keys;
+
+		Summary(String table, String count, Column... keys) {
+			this.table = table;
+			this.count = count;
+			this.keys = List.of(keys);
+		}
+
+		/**
+		 * Return the query computing the keys and counts of this summary from the
+		 * history.
+		 */
+		abstract String compute(Dialect dialect);
+
+		/**
+		 * Return the query reading the keys and counts of this summary.
+		 */
+		String select() {
+			return "SELECT " + columns() + " FROM " + this.table;
+		}
+
+		String columns() {
+			return Stream.concat(this.keys.stream().map(Column::name), Stream.of(this.count))
+				.collect(Collectors.joining(", "));
+		}
+
+	}
+
+	/**
+	 * How summary rows are upserted and dates truncated on each database.
+	 */
+	enum Dialect {
+
+		H2("H2") {
+
+			@Override
+			String month(String date) {
+				return "CAST(DATE_TRUNC('MONTH', " + date + ") AS DATE)";
+			}
+
+			@Override
+			String week(String date) {
+				return "CAST(DATE_TRUNC('ISO_WEEK', " + date + ") AS DATE)";
+			}
+
+			@Override
+			String upsert(Summary summary) {
+				return merge(summary);
+			}
+
+		},
+
+		HSQLDB("HSQL Database Engine") {
+
+			@Override
+			String month(String date) {
+				return "CAST(TRUNC(" + date + ", 'MM') AS DATE)";
+			}
+
+			@Override
+			String week(String date) {
+				return "CAST(TRUNC(" + date + ", 'IW') AS DATE)";
+			}
+
+			@Override
+			String upsert(Summary summary) {
+				return merge(summary);
+			}
+
+		},
+
+		POSTGRES("PostgreSQL") {
+
+			@Override
+			String month(String date) {
+				return "CAST(date_trunc('month', " + date + ") AS DATE)";
+			}
+
+			@Override
+			String week(String date) {
+				return "CAST(date_trunc('week', " + date + ") AS DATE)";
+			}
+
+			@Override
+			String upsert(Summary summary) {
+				return "INSERT INTO " + summary.table + " (" + summary.columns() + ") VALUES (" + parameters(summary)
+						+ ") ON CONFLICT (" + keys(summary, Function.identity(), ", ") + ") DO UPDATE SET "
+						+ summary.count + " = " + summary.table + "." + summary.count + " + EXCLUDED." + summary.count;
+			}
+
+		},
+
+		MYSQL("MySQL") {
+
+			@Override
+			String month(String date) {
+				return "CAST(DATE_FORMAT(" + date + ", '%Y-%m-01') AS DATE)";
+			}
+
+			@Override
+			String week(String date) {
+				return "(" + date + " - INTERVAL WEEKDAY(" + date + ") DAY)";
+			}
+
+			@Override
+			String upsert(Summary summary) {
+				return "INSERT INTO " + summary.table + " (" + summary.columns() + ") VALUES (" + parameters(summary)
+						+ ") ON DUPLICATE KEY UPDATE " + summary.count + " = " + summary.count + " + VALUES("
+						+ summary.count + ")";
+			}
+
+		};
+
+		private final String productName;
+
+		Dialect(String productName) {
+			this.productName = productName;
+		}
+
+		/**
+		 * Return an expression truncating the given date to the first day of its month.
+		 */
+		abstract String month(String date);
+
+		/**
+		 * Return an expression truncating the given date to the Monday of its week.
+		 */
+		abstract String week(String date);
+
+		/**
+		 * Return a statement adding a count to a row of the given summary, inserting the
+		 * row if needed, with the key columns and the count as parameters.
+		 */
+		abstract String upsert(Summary summary);
+
+		static Dialect of(DataSource dataSource) {
+			try {
+				String productName = JdbcUtils.extractDatabaseMetaData(dataSource,
+						DatabaseMetaData::getDatabaseProductName);
+				for (Dialect dialect : values()) {
+					if (dialect.productName.equals(productName)) {
+						return dialect;
+					}
+				}
+				throw new IllegalStateException("Clinic analytics do not support " + productName);
+			}
+			catch (MetaDataAccessException ex) {
+				throw new IllegalStateException("Cannot determine the database for the clinic analytics", ex);
+			}
+		}
+
+		private static String merge(Summary summary) {
+			String source = Stream.concat(summary.keys.stream().map(Column::sqlType), Stream.of("INTEGER"))
+				.map((type) -> "CAST(? AS " + type + ")")
+				.collect(Collectors.joining(", "));
+			return "MERGE INTO " + summary.table + " USING (VALUES (" + source + ")) AS d (" + summary.columns()
+					+ ") ON " + keys(summary, (key) -> summary.table + "." + key + " = d." + key, " AND ")
+					+ " WHEN MATCHED THEN UPDATE SET " + summary.count + " = " + summary.table + "." + summary.count
+					+ " + d." + summary.count + " WHEN NOT MATCHED THEN INSERT (" + summary.columns() + ") VALUES ("
+					+ keys(summary, (key) -> "d." + key, ", ") + ", d." + summary.count + ")";
+		}
+
+		private static String parameters(Summary summary) {
+			return String.join(", ", Collections.nCopies(summary.keys.size() + 1, "?"));
+		}
+
+		private static String keys(Summary summary, Function<String, String> key, String separator) {
+			return summary.keys.stream().map(Column::name).map(key).collect(Collectors.joining(separator));
+		}
+
+	}
+
+}
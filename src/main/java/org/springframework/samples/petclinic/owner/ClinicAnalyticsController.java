@@ -0,0 +1,65 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import java.time.YearMonth;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Visits per month by pet type and by city, and new owners per week, served from the
+ * {@link ClinicAnalytics} summaries.
+ */
+@Controller
+class ClinicAnalyticsController {
+
+	private final ClinicAnalytics analytics;
+
+	private final int months;
+
+	public ClinicAnalyticsController(ClinicAnalytics analytics, @Value("${petclinic.analytics.months:12}") int months) {
+		this.analytics = analytics;
+		this.months = months;
+	}
+
+	/**
+	 * Report the given range of months, by default the last
+	 * {@code petclinic.analytics.months} months up to the current one.
+	 * @param from the first month, as {@code yyyy-MM}
+	 * @param to the last month, as {@code yyyy-MM}
+	 * @return the report
+	 */
+	@GetMapping("/analytics")
+	public @ResponseBody ClinicAnalyticsReport report(
+			@RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+			@RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to) {
+		YearMonth last = (to != null) ? to : YearMonth.now();
+		YearMonth first = (from != null) ? from : last.minusMonths(Math.max(this.months, 1) - 1);
+		if (first.isAfter(last)) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The range of months starts after " + last);
+		}
+		return this.analytics.report(first, last);
+	}
+
+}
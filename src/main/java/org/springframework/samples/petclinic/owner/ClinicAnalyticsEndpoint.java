@@ -0,0 +1,44 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint to reconcile the {@link ClinicAnalytics} summaries with the database
+ * right away, e.g. after bulk changes that bypassed the application.
+ */
+@Component
+@Endpoint(id = "analytics")
+class ClinicAnalyticsEndpoint {
+
+	private final ClinicAnalytics analytics;
+
+	ClinicAnalyticsEndpoint(ClinicAnalytics analytics) {
+		this.analytics = analytics;
+	}
+
+	@WriteOperation
+	public Map<String, Integer> reconcile() {
+		return Map.of("corrected", this.analytics.reconcile());
+	}
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import org.springframework.beans.factory.ObjectProvider;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PreUpdate;
+
+/**
+ * JPA entity listener keeping the {@link ClinicAnalytics} summaries in line with the
+ * {@link Owner}s and {@link Pet}s written through the persistence context: a new owner
+ * counts as registered, and moving an owner to another city or changing the type of a pet
+ * moves their visits to other summary rows. The listener runs while the changes are
+ * flushed, so the summaries change in the same transaction; on update the previous city
+ * or type is still in the database.
+ */
+class ClinicAnalyticsListener {
+
+	private final ObjectProvider<ClinicAnalytics> analytics;
+
+	ClinicAnalyticsListener(ObjectProvider<ClinicAnalytics> analytics) {
+		this.analytics = analytics;
+	}
+
+	@PostPersist
+	void persisted(Object entity) {
+		ClinicAnalytics analytics = this.analytics.getIfAvailable();
+		if (analytics != null && entity instanceof Owner owner) {
+			analytics.ownerRegistered(owner.getRegisteredOn());
+		}
+	}
+
+	@PreUpdate
+	void updating(Object entity) {
+		ClinicAnalytics analytics = this.analytics.getIfAvailable();
+		if (analytics == null) {
+			return;
+		}
+		if (entity instanceof Owner owner) {
+			analytics.ownerUpdating(owner.getId(), owner.getCity());
+		}
+		else if (entity instanceof Pet pet && pet.getType() != null) {
+			analytics.petUpdating(pet.getId(), pet.getType().getId());
+		}
+	}
+
+}
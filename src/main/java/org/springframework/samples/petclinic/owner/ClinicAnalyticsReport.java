@@ -0,0 +1,68 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Clinic analytics for a range of months, read from the {@link ClinicAnalytics}
+ * summaries.
+ *
+ * @param from the first month
+ * @param to the last month
+ * @param visitsByType the visits per month and pet type
+ * @param visitsByCity the visits per month and city of the owner, busiest cities first
+ * @param newOwners the owners registered per week, for the weeks starting in the range
+ */
+public record ClinicAnalyticsReport(YearMonth from, YearMonth to, List<TypeVisits> visitsByType,
+		List<CityVisits> visitsByCity, List<NewOwners> newOwners) {
+
+	/**
+	 * The visits of one month for one pet type.
+	 *
+	 * @param month the month
+	 * @param type the name of the pet type
+	 * @param visits the number of visits
+	 */
+	public record TypeVisits(YearMonth month, String type, int visits) {
+
+	}
+
+	/**
+	 * The visits of one month for the owners living in one city.
+	 *
+	 * @param month the month
+	 * @param city the city
+	 * @param visits the number of visits
+	 */
+	public record CityVisits(YearMonth month, String city, int visits) {
+
+	}
+
+	/**
+	 * The owners registered in one week.
+	 *
+	 * @param week the Monday of the week
+	 * @param owners the number of owners
+	 */
+	public record NewOwners(LocalDate week, int owners) {
+
+	}
+
+}
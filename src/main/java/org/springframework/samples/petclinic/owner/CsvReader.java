@@ -0,0 +1,144 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental reader of RFC 4180 CSV: comma separated, optionally double quoted fields
+ * that may contain commas, escaped quotes and line breaks. Only the current record is
+ * held in memory.
+ */
+class CsvReader {
+
+	private final Reader reader;
+
+	private final char[] buffer = new char[8192];
+
+	private final List<String> fields = new ArrayList<>();
+
+	private final StringBuilder field = new StringBuilder();
+
+	private int position;
+
+	private int limit;
+
+	private long line = 1;
+
+	private long recordLine;
+
+	CsvReader(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Read the next record.
+	 * @return the fields of the record, or {@literal null} at the end of the input
+	 * @throws IOException if the input cannot be read
+	 * @throws MalformedCsvException if the input is not valid CSV
+	 */
+	String[] next() throws IOException {
+		int c = read();
+		if (c == -1) {
+			return null;
+		}
+		this.recordLine = this.line;
+		List<String> fields = this.fields;
+		StringBuilder field = this.field;
+		fields.clear();
+		field.setLength(0);
+		boolean quoted = false;
+		while (true) {
+			if (quoted) {
+				if (c == -1) {
+					throw new MalformedCsvException("Unterminated quoted field starting on line " + this.recordLine);
+				}
+				if (c == '"') {
+					c = read();
+					if (c == '"') {
+						field.append('"');
+						c = read();
+					}
+					else {
+						quoted = false;
+					}
+					continue;
+				}
+				if (c == '\n') {
+					this.line++;
+				}
+				field.append((char) c);
+			}
+			else if (c == '"' && field.isEmpty()) {
+				quoted = true;
+			}
+			else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			}
+			else if (c == '\n' || c == -1) {
+				if (c == '\n') {
+					this.line++;
+				}
+				int last = field.length() - 1;
+				if (last >= 0 && field.charAt(last) == '\r') {
+					field.setLength(last);
+				}
+				fields.add(field.toString());
+				return fields.toArray(new String[fields.size()]);
+			}
+			else {
+				field.append((char) c);
+			}
+			c = read();
+		}
+	}
+
+	/**
+	 * Return the line on which the record last returned by {@link #next()} started.
+	 */
+	long line() {
+		return this.recordLine;
+	}
+
+	private int read() throws IOException {
+		if (this.position == this.limit) {
+			this.limit = this.reader.read(this.buffer);
+			this.position = 0;
+			if (this.limit <= 0) {
+				this.limit = 0;
+				return -1;
+			}
+		}
+		return this.buffer[this.position++];
+	}
+
+	/**
+	 * Thrown when the input is not valid CSV, as opposed to when it cannot be read.
+	 */
+	static class MalformedCsvException extends IOException {
+
+		MalformedCsvException(String message) {
+			super(message);
+		}
+
+	}
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writer of RFC 4180 CSV, the counterpart of {@link CsvReader}. Fields are only quoted
+ * when they contain a comma, a double quote or a line break; {@literal null} is written
+ * as an empty field.
+ */
+class CsvWriter implements Flushable {
+
+	private final Writer writer;
+
+	CsvWriter(Writer writer) {
+		this.writer = writer;
+	}
+
+	/**
+	 * Write one record.
+	 * @param fields the fields of the record
+	 * @throws IOException if the output cannot be written
+	 */
+	void write(Object... fields) throws IOException {
+		for (int i = 0; i < fields.length; i++) {
+			if (i > 0) {
+				this.writer.write(',');
+			}
+			if (fields[i] != null) {
+				writeField(fields[i].toString());
+			}
+		}
+		this.writer.write("\r\n");
+	}
+
+	private void writeField(String field) throws IOException {
+		boolean quote = false;
+		for (int i = 0; !quote && i < field.length(); i++) {
+			char c = field.charAt(i);
+			quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+		}
+		if (!quote) {
+			this.writer.write(field);
+			return;
+		}
+		this.writer.write('"');
+		this.writer.write(field.replace("\"", "\"\""));
+		this.writer.write('"');
+	}
+
+	@Override
+	public void flush() throws IOException {
+		this.writer.flush();
+	}
+
+}
@@ -15,21 +15,28 @@
  */
 package org.springframework.samples.petclinic.owner;
 
-import java.util.ArrayList;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
+import org.hibernate.annotations.OptimisticLock;
 import org.springframework.core.style.ToStringCreator;
+import org.springframework.data.domain.DomainEvents;
 import org.springframework.samples.petclinic.model.Person;
 import org.springframework.util.Assert;
 
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OrderBy;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotBlank;
 
@@ -44,6 +51,7 @@ import jakarta.validation.constraints.NotBlank;
  */
 @Entity
 @Table(name = "owners")
+@EntityListeners({ OwnerNameIndexListener.class, ClinicAnalyticsListener.class })
 public class Owner extends Person {
 
 	@Column(name = "address")
@@ -59,10 +67,22 @@ public class Owner extends Person {
 	@Digits(fraction = 0, integer = 10)
 	private String telephone;
 
+	@Version
+	@Column(name = "version")
+	private Integer version;
+
+	@Column(name = "registered_on", updatable = false)
+	private LocalDate registeredOn = LocalDate.now();
+
+	// pet and visit changes bump the version explicitly, see
+	// OwnerRepository#incrementVersion, rather than through a checked owner update
 	@OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+	@OptimisticLock(excluded = true)
 	@JoinColumn(name = "owner_id")
 	@OrderBy("name")
-	private List<Pet> pets = new ArrayList<>();
+	// a set, not a bag: fetched together with the visits, a list would hold each pet
+	// once per visit
+	private Set<Pet> pets = new LinkedHashSet<>();
 
 	public String getAddress() {
 		return this.address;
@@ -88,13 +108,34 @@ public class Owner extends Person {
 		this.telephone = telephone;
 	}
 
+	/**
+	 * Return the optimistic-lock version of this owner. It is incremented whenever the
+	 * owner, one of its pets or one of their visits changes.
+	 * @return the version, or {@literal null} if this owner has not been saved yet
+	 */
+	public Integer getVersion() {
+		return this.version;
+	}
+
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
+
+	/**
+	 * Return the day this owner was registered, the day it was created for new owners.
+	 * @return the day of the registration, or {@literal null} if it is not known
+	 */
+	public LocalDate getRegisteredOn() {
+		return this.registeredOn;
+	}
+
 	public List<Pet> getPets() {
-		return this.pets;
+		return List.copyOf(this.pets);
 	}
 
 	public void addPet(Pet pet) {
 		if (pet.isNew()) {
-			getPets().add(pet);
+			this.pets.add(pet);
 		}
 	}
 
@@ -151,9 +192,19 @@ public class Owner extends Person {
 			.append("address", this.address)
 			.append("city", this.city)
 			.append("telephone", this.telephone)
+			.append("version", this.version)
 			.toString();
 	}
 
+	/**
+	 * Domain event published by the {@link OwnerRepository} whenever this owner is saved.
+	 * @return the event announcing the change of this owner
+	 */
+	@DomainEvents
+	Collection<OwnerChangedEvent> changedEvents() {
+		return List.of(new OwnerChangedEvent(getId()));
+	}
+
 	/**
 	 * Adds the given {@link Visit} to the {@link Pet} with the given identifier.
 	 * @param petId the identifier of the {@link Pet}, must not be {@literal null}.
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Bounded cache of the {@link OwnerDetails} shown on the owner page, an {@link Owner}
+ * with its pets and types plus the last {@code petclinic.owners.recent-visits} visits of
+ * each pet, kept in the {@code owners} cache region and keyed by owner id. The details
+ * are loaded in read-write transactions, so that they come from the primary database even
+ * with a read replica configured: an entry loaded from a lagging replica right after a
+ * write had evicted it would otherwise be served until it expires. They are shared
+ * between requests once the loading request has closed its persistence context, so they
+ * are only handed to views that display them; forms keep binding onto owners loaded
+ * through the {@link OwnerResolver}.
+ * <p>
+ * An entry is evicted as soon as a transaction changing the owner commits (see
+ * {@link OwnerChangedEvent}), before the writing request redirects to the owner page.
+ * Besides the {@code cache.*} meters of the region, the hit ratio, the age of the entries
+ * served and the entries found stale by a version check are exported as metrics. Without
+ * an {@code owners} region, owners are loaded from the repository every time.
+ */
+@Component
+class OwnerCache {
+
+	static final String CACHE_NAME = "owners";
+
+	static final String HIT_RATIO_METRIC = "petclinic.owners.cache.hit.ratio";
+
+	static final String AGE_METRIC = "petclinic.owners.cache.age";
+
+	static final String STALE_METRIC = "petclinic.owners.cache.stale";
+
+	private final OwnerRepository owners;
+
+	private final VisitRepository visits;
+
+	private final int recentVisits;
+
+	private final VisitWindow window;
+
+	private final TransactionTemplate primary;
+
+	private final Cache cache;
+
+	private final Timer age;
+
+	private final Counter stale;
+
+	OwnerCache(OwnerRepository owners, VisitRepository visits,
+			@Value("${petclinic.owners.recent-visits:5}") int recentVisits, VisitWindow window,
+			ObjectProvider<CacheManager> cacheManager, PlatformTransactionManager transactionManager,
+			MeterRegistry registry) {
+		this.owners = owners;
+		this.visits = visits;
+		this.recentVisits = recentVisits;
+		this.window = window;
+		// not read-only, so that the routing data source hands out a primary connection
+		this.primary = new TransactionTemplate(transactionManager);
+		CacheManager manager = cacheManager.getIfAvailable();
+		this.cache = (manager != null) ? manager.getCache(CACHE_NAME) : null;
+		if (this.cache != null
+				&& this.cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine) {
+			Gauge.builder(HIT_RATIO_METRIC, caffeine, (c) -> c.stats().hitRate())
+				.description("Share of owner page lookups answered from the cache")
+				.register(registry);
+		}
+		this.age = Timer.builder(AGE_METRIC)
+			.description("Time since the owner aggregates served from the cache were loaded")
+			.register(registry);
+		this.stale = Counter.builder(STALE_METRIC)
+			.description("Cached owner aggregates found older than the stored owner")
+			.register(registry);
+	}
+
+	/**
+	 * Return the {@link OwnerDetails} of the owner with the given id, from the cache if
+	 * possible. The returned owner is shared and must not be modified.
+	 * @param ownerId the id of the owner
+	 * @param version the current version of the owner if the caller has looked it up,
+	 * used to replace an entry that missed an update
+	 * @return the details, or {@literal null} if no owner was found
+	 */
+	OwnerDetails findById(int ownerId, Integer version) {
+		if (this.cache == null) {
+			return load(ownerId);
+		}
+		long start = System.nanoTime();
+		Entry entry = this.cache.get(ownerId, () -> loadEntry(ownerId));
+		if (entry == null || entry.loadedAt() > start) {
+			return (entry != null) ? entry.details() : null;
+		}
+		if (version != null && !version.equals(entry.details().owner().getVersion())) {
+			this.stale.increment();
+			this.cache.evict(ownerId);
+			entry = this.cache.get(ownerId, () -> loadEntry(ownerId));
+			return (entry != null) ? entry.details() : null;
+		}
+		this.age.record(Duration.ofNanos(start - entry.loadedAt()));
+		return entry.details();
+	}
+
+	/**
+	 * Load the {@link OwnerDetails} of the owner with the given id, bypassing the cache.
+	 * Takes two statements: one for the owner, its pets and their types, and one for the
+	 * recent visits of all pets. Only the visits inside the {@link VisitWindow} are
+	 * looked at, and pets born before it are assumed to have an older history.
+	 * @param ownerId the id of the owner
+	 * @return the details, or {@literal null} if no owner was found
+	 */
+	OwnerDetails load(int ownerId) {
+		Owner owner = this.owners.findWithPetsById(ownerId);
+		if (owner == null) {
+			return null;
+		}
+		LocalDate since = this.window.since();
+		if (since == null) {
+			return new OwnerDetails(owner, this.visits.findRecentVisits(ownerId, this.recentVisits, null));
+		}
+		Map<Integer, RecentVisits> recent = new HashMap<>(
+				this.visits.findRecentVisits(ownerId, this.recentVisits, since));
+		for (Pet pet : owner.getPets()) {
+			RecentVisits visits = recent.get(pet.getId());
+			if ((visits == null || !visits.hasOlder())
+					&& (pet.getBirthDate() == null || pet.getBirthDate().isBefore(since))) {
+				recent.put(pet.getId(), new RecentVisits((visits != null) ? visits.visits() : List.of(), true));
+			}
+		}
+		return new OwnerDetails(owner, recent);
+	}
+
+	private Entry loadEntry(int ownerId) {
+		OwnerDetails details = this.primary.execute((status) -> load(ownerId));
+		return (details != null) ? new Entry(details, System.nanoTime()) : null;
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	void ownerChanged(OwnerChangedEvent event) {
+		if (this.cache != null && event.ownerId() != null) {
+			this.cache.evict(event.ownerId());
+		}
+	}
+
+	private record Entry(OwnerDetails details, long loadedAt) {
+
+	}
+
+}
@@ -16,11 +16,21 @@
 package org.springframework.samples.petclinic.owner;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Window;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -31,10 +41,15 @@ import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.ModelAndView;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import org.springframework.web.servlet.support.RequestContextUtils;
 
 /**
  * @author Juergen Hoeller
@@ -49,18 +64,41 @@ class OwnerController {
 
 	private final OwnerRepository owners;
 
-	public OwnerController(OwnerRepository clinicService) {
+	private final OwnerResolver ownerResolver;
+
+	private final OwnerCache ownerCache;
+
+	private final OwnerNameIndex ownerNameIndex;
+
+	private final int defaultPageSize;
+
+	private final int maxPageSize;
+
+	public OwnerController(OwnerRepository clinicService, OwnerResolver ownerResolver, OwnerCache ownerCache,
+			OwnerNameIndex ownerNameIndex, @Value("${petclinic.owners.page-size:5}") int defaultPageSize,
+			@Value("${petclinic.owners.max-page-size:50}") int maxPageSize) {
 		this.owners = clinicService;
+		this.ownerResolver = ownerResolver;
+		this.ownerCache = ownerCache;
+		this.ownerNameIndex = ownerNameIndex;
+		this.defaultPageSize = defaultPageSize;
+		this.maxPageSize = maxPageSize;
 	}
 
 	@InitBinder
 	public void setAllowedFields(WebDataBinder dataBinder) {
-		dataBinder.setDisallowedFields("id");
+		dataBinder.setDisallowedFields("id", "version");
 	}
 
 	@ModelAttribute("owner")
-	public Owner findOwner(@PathVariable(name = "ownerId", required = false) Integer ownerId) {
-		return ownerId == null ? new Owner() : this.owners.findById(ownerId);
+	public Owner findOwner(@PathVariable(name = "ownerId", required = false) Integer ownerId,
+			HttpServletRequest request) {
+		// only form submissions bind onto the stored owner; the GET handlers load it
+		// themselves, so a conditional GET can be answered without loading it at all
+		if (ownerId == null || HttpMethod.GET.matches(request.getMethod())) {
+			return new Owner();
+		}
+		return this.ownerResolver.findById(ownerId);
 	}
 
 	@GetMapping("/owners/new")
@@ -88,15 +126,22 @@ class OwnerController {
 	}
 
 	@GetMapping("/owners")
-	public String processFindForm(@RequestParam(defaultValue = "1") int page, Owner owner, BindingResult result,
-			Model model) {
+	public String processFindForm(@RequestParam(defaultValue = "1") int page,
+			@RequestParam(required = false) String cursor, @RequestParam(required = false) Integer size, Owner owner,
+			BindingResult result, Model model) {
 		// allow parameterless GET request for /owners to return all records
 		if (owner.getLastName() == null) {
 			owner.setLastName(""); // empty string signifies broadest possible search
 		}
 
+		int pageSize = pageSize(size);
+		if (cursor != null) {
+			// keyset pagination: no count query, cost independent of the page depth
+			return processKeysetFindForm(cursor, pageSize, owner, result, model);
+		}
+
 		// find owners by last name
-		Page<Owner> ownersResults = findPaginatedForOwnersLastName(page, owner.getLastName());
+		Page<OwnerSummary> ownersResults = findPaginatedForOwnersLastName(page, pageSize, owner.getLastName());
 		if (ownersResults.isEmpty()) {
 			// no owners found
 			result.rejectValue("lastName", "notFound", "not found");
@@ -105,16 +150,57 @@ class OwnerController {
 
 		if (ownersResults.getTotalElements() == 1) {
 			// 1 owner found
-			owner = ownersResults.iterator().next();
-			return "redirect:/owners/" + owner.getId();
+			return "redirect:/owners/" + ownersResults.iterator().next().id();
 		}
 
 		// multiple owners found
 		return addPaginationModel(page, model, ownersResults);
 	}
 
-	private String addPaginationModel(int page, Model model, Page<Owner> paginated) {
-		List<Owner> listOwners = paginated.getContent();
+	private String processKeysetFindForm(String cursor, int pageSize, Owner owner, BindingResult result, Model model) {
+		KeysetScrollPosition position;
+		try {
+			position = OwnerSearchCursor.decode(cursor);
+		}
+		catch (IllegalArgumentException ex) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
+		}
+		Window<OwnerSummary> ownersResults = this.owners.findOwnerSummariesByLastName(owner.getLastName(), position,
+				pageSize);
+		if (ownersResults.isEmpty() && position.isInitial()) {
+			// no owners found
+			result.rejectValue("lastName", "notFound", "not found");
+			return "owners/findOwners";
+		}
+
+		if (position.isInitial() && ownersResults.size() == 1 && !ownersResults.hasNext()) {
+			// 1 owner found
+			return "redirect:/owners/" + ownersResults.getContent().get(0).id();
+		}
+
+		// multiple owners found
+		boolean hasPrevious = position.scrollsBackward() ? ownersResults.hasNext() : !position.isInitial();
+		boolean hasNext = position.scrollsBackward() || ownersResults.hasNext();
+		if (!ownersResults.isEmpty()) {
+			KeysetScrollPosition first = (KeysetScrollPosition) ownersResults.positionAt(0);
+			KeysetScrollPosition last = (KeysetScrollPosition) ownersResults.positionAt(ownersResults.size() - 1);
+			model.addAttribute("previousCursor", hasPrevious ? OwnerSearchCursor.encode(first.backward()) : null);
+			model.addAttribute("nextCursor", hasNext ? OwnerSearchCursor.encode(last.forward()) : null);
+		}
+		model.addAttribute("pageSize", pageSize);
+		model.addAttribute("listOwners", ownersResults.getContent());
+		return "owners/ownersList";
+	}
+
+	private int pageSize(Integer size) {
+		if (size == null || size < 1) {
+			return this.defaultPageSize;
+		}
+		return Math.min(size, this.maxPageSize);
+	}
+
+	private String addPaginationModel(int page, Model model, Page<OwnerSummary> paginated) {
+		List<OwnerSummary> listOwners = paginated.getContent();
 		model.addAttribute("currentPage", page);
 		model.addAttribute("totalPages", paginated.getTotalPages());
 		model.addAttribute("totalItems", paginated.getTotalElements());
@@ -122,44 +208,104 @@ class OwnerController {
 		return "owners/ownersList";
 	}
 
-	private Page<Owner> findPaginatedForOwnersLastName(int page, String lastname) {
-		int pageSize = 5;
+	private Page<OwnerSummary> findPaginatedForOwnersLastName(int page, int pageSize, String lastname) {
 		Pageable pageable = PageRequest.of(page - 1, pageSize);
-		return owners.findByLastName(lastname, pageable);
+		return owners.findOwnerSummariesByLastName(lastname, pageable);
+	}
+
+	/**
+	 * Suggest owners whose last name starts with the given prefix, served from the
+	 * in-memory {@link OwnerNameIndex}.
+	 * @param prefix the last name prefix typed so far
+	 * @param limit the maximum number of suggestions
+	 * @return the matching owner names in last name order
+	 */
+	@GetMapping("/owners/autocomplete")
+	public @ResponseBody List<OwnerName> autocompleteLastName(
+			@RequestParam(name = "q", defaultValue = "") String prefix, @RequestParam(defaultValue = "10") int limit) {
+		int max = pageSize(limit);
+		if (this.ownerNameIndex.isComplete()) {
+			return this.ownerNameIndex.findByLastNamePrefix(prefix, max);
+		}
+		// the index is over capacity, ask the database instead
+		return this.owners.findOwnerNamesByLastNamePrefix(prefix.toLowerCase(Locale.ROOT), Limit.of(max));
 	}
 
 	@GetMapping("/owners/{ownerId}/edit")
 	public String initUpdateOwnerForm(@PathVariable("ownerId") int ownerId, Model model) {
-		Owner owner = this.owners.findById(ownerId);
+		Owner owner = this.ownerResolver.findById(ownerId);
 		model.addAttribute(owner);
 		return VIEWS_OWNER_CREATE_OR_UPDATE_FORM;
 	}
 
 	@PostMapping("/owners/{ownerId}/edit")
 	public String processUpdateOwnerForm(@Valid Owner owner, BindingResult result, @PathVariable("ownerId") int ownerId,
-			RedirectAttributes redirectAttributes) {
+			@RequestParam(name = "version", required = false) Integer version, RedirectAttributes redirectAttributes) {
 		if (result.hasErrors()) {
 			redirectAttributes.addFlashAttribute("error", "There was an error in updating the owner.");
 			return VIEWS_OWNER_CREATE_OR_UPDATE_FORM;
 		}
 
 		owner.setId(ownerId);
-		this.owners.save(owner);
+		// the form carries the version it was rendered from, a form without one
+		// overwrites
+		if (version != null && !version.equals(owner.getVersion())) {
+			return rejectConcurrentUpdate(redirectAttributes);
+		}
+		try {
+			this.owners.save(owner);
+		}
+		catch (ObjectOptimisticLockingFailureException ex) {
+			return rejectConcurrentUpdate(redirectAttributes);
+		}
 		redirectAttributes.addFlashAttribute("message", "Owner Values Updated");
 		return "redirect:/owners/{ownerId}";
 	}
 
+	private String rejectConcurrentUpdate(RedirectAttributes redirectAttributes) {
+		redirectAttributes.addFlashAttribute("error",
+				"The owner has been changed by someone else, please review and update again.");
+		return "redirect:/owners/{ownerId}";
+	}
+
 	/**
-	 * Custom handler for displaying an owner.
+	 * Custom handler for displaying an owner. The page carries an ETag derived from the
+	 * owner's version, so a conditional request for an unchanged owner is answered with a
+	 * 304 after a single version lookup, without loading or rendering the aggregate.
+	 * Otherwise the owner and the recent visits of its pets are served from the
+	 * {@link OwnerCache}; older visits are reached through the paginated history of each
+	 * pet.
 	 * @param ownerId the ID of the owner to display
-	 * @return a ModelMap with the model attributes for the view
+	 * @param request the current request
+	 * @return a ModelMap with the model attributes for the view, or {@literal null} if
+	 * the owner has not been modified
 	 */
 	@GetMapping("/owners/{ownerId}")
-	public ModelAndView showOwner(@PathVariable("ownerId") int ownerId) {
+	public ModelAndView showOwner(@PathVariable("ownerId") int ownerId, ServletWebRequest request) {
+		Integer version = null;
+		// redirected here by a write: render the page with its flash message
+		boolean afterWrite = RequestContextUtils.getInputFlashMap(request.getRequest()) != null;
+		if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null && !afterWrite) {
+			version = this.owners.findVersionById(ownerId);
+			if (version != null && request.checkNotModified(ownerETag(ownerId, version))) {
+				return null;
+			}
+		}
 		ModelAndView mav = new ModelAndView("owners/ownerDetails");
-		Owner owner = this.owners.findById(ownerId);
+		OwnerDetails details = this.ownerCache.findById(ownerId, version);
+		Owner owner = (details != null) ? details.owner() : null;
 		mav.addObject(owner);
+		mav.addObject("recentVisits", (details != null) ? details.recentVisits() : Map.of());
+		if (version == null && owner != null && owner.getVersion() != null) {
+			request.checkNotModified(ownerETag(ownerId, owner.getVersion()));
+		}
+		request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
 		return mav;
 	}
 
+	private static String ownerETag(int ownerId, int version) {
+		// the page is rendered in the user's locale, so the tag covers it as well
+		return "W/\"" + ownerId + "-" + version + "-" + LocaleContextHolder.getLocale().toLanguageTag() + "\"";
+	}
+
 }
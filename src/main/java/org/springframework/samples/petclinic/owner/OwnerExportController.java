@@ -0,0 +1,61 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import java.io.IOException;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Bulk export of owners, their pets and their visits, see {@link OwnerExporter}. The
+ * response has no content length and is sent with chunked transfer encoding while the
+ * rows are read; {@code ?format=csv} selects CSV instead of newline delimited JSON.
+ */
+@Controller
+class OwnerExportController {
+
+	private final OwnerExporter exporter;
+
+	OwnerExportController(OwnerExporter exporter) {
+		this.exporter = exporter;
+	}
+
+	@GetMapping("/owners/export")
+	public void exportNdjson(HttpServletResponse response) throws IOException {
+		prepare(response, MediaType.APPLICATION_NDJSON_VALUE, "owners.ndjson");
+		this.exporter.exportNdjson(response.getOutputStream());
+	}
+
+	@GetMapping(path = "/owners/export", params = "format=csv")
+	public void exportCsv(HttpServletResponse response) throws IOException {
+		prepare(response, "text/csv;charset=UTF-8", "owners.csv");
+		this.exporter.exportCsv(response.getOutputStream());
+	}
+
+	private static void prepare(HttpServletResponse response, String contentType, String filename) {
+		response.setContentType(contentType);
+		response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+				ContentDisposition.attachment().filename(filename).build().toString());
+	}
+
+}
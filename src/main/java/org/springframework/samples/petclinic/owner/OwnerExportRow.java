@@ -0,0 +1,41 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+
+/**
+ * Flat, read-only projection of a visit together with its pet and owner, streamed by
+ * {@link OwnerExporter}. Owners without pets and pets without visits are represented by a
+ * single row with the missing columns left {@literal null}.
+ *
+ * @param ownerId the id of the owner
+ * @param firstName the first name of the owner
+ * @param lastName the last name of the owner
+ * @param address the address of the owner
+ * @param city the city of the owner
+ * @param telephone the telephone number of the owner
+ * @param petName the name of the pet
+ * @param birthDate the birth date of the pet
+ * @param type the name of the type of the pet
+ * @param visitDate the date of the visit
+ * @param description the description of the visit
+ */
+public record OwnerExportRow(Integer ownerId, String firstName, String lastName, String address, String city,
+		String telephone, String petName, LocalDate birthDate, String type, LocalDate visitDate, String description) {
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Export of all owners, their pets and their visits, one {@link OwnerExportRow} per
+ * visit, as newline delimited JSON or as CSV in the format read by {@link OwnerImporter}.
+ * <p>
+ * Rows are streamed from {@link OwnerRepository#streamExportRows()} and written as they
+ * are read, flushing the output every {@code petclinic.export.flush-size} rows, so the
+ * memory used does not depend on the number of rows and the client starts receiving data
+ * right away.
+ */
+@Component
+public class OwnerExporter {
+
+	private static final Log logger = LogFactory.getLog(OwnerExporter.class);
+
+	private final OwnerRepository owners;
+
+	private final ObjectWriter json;
+
+	private final int flushSize;
+
+	public OwnerExporter(OwnerRepository owners, ObjectMapper objectMapper,
+			@Value("${petclinic.export.flush-size:1000}") int flushSize) {
+		this.owners = owners;
+		this.json = objectMapper.writerFor(OwnerExportRow.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		this.flushSize = flushSize;
+	}
+
+	/**
+	 * Write all rows as newline delimited JSON, one object per line.
+	 * @param out the output, left open
+	 * @return the number of rows written
+	 * @throws IOException if the output cannot be written
+	 */
+	@Transactional(readOnly = true)
+	public long exportNdjson(OutputStream out) throws IOException {
+		JsonGenerator generator = this.json.createGenerator(out);
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		generator.setRootValueSeparator(null);
+		return export(generator, (row) -> {
+			this.json.writeValue(generator, row);
+			generator.writeRaw('\n');
+		});
+	}
+
+	/**
+	 * Write all rows as UTF-8 encoded CSV, starting with a header row naming the
+	 * {@link OwnerImporter#COLUMNS}.
+	 * @param out the output, left open
+	 * @return the number of rows written, not counting the header
+	 * @throws IOException if the output cannot be written
+	 */
+	@Transactional(readOnly = true)
+	public long exportCsv(OutputStream out) throws IOException {
+		CsvWriter csv = new CsvWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+		csv.write(OwnerImporter.COLUMNS.toArray());
+		return export(csv, (row) -> csv.write(row.ownerId(), row.firstName(), row.lastName(), row.address(), row.city(),
+				row.telephone(), row.petName(), row.birthDate(), row.type(), row.visitDate(), row.description()));
+	}
+
+	private long export(Flushable output, RowWriter writer) throws IOException {
+		long start = System.nanoTime();
+		long count = 0;
+		try (Stream<OwnerExportRow> rows = this.owners.streamExportRows()) {
+			for (Iterator<OwnerExportRow> iterator = rows.iterator(); iterator.hasNext();) {
+				writer.write(iterator.next());
+				if (++count % this.flushSize == 0) {
+					output.flush();
+				}
+			}
+		}
+		output.flush();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		logger.info(String.format("Exported %d rows in %.1f s (%.0f rows/s)", count, seconds, count / seconds));
+		return count;
+	}
+
+	@FunctionalInterface
+	private interface RowWriter {
+
+		void write(OwnerExportRow row) throws IOException;
+
+	}
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Bulk import of a CSV export of owners, pets and visits, see {@link OwnerImporter}. An
+ * import that stopped on a database error answers with status 500, one that stopped on
+ * malformed CSV with status 400, both with the checkpoint to pass as {@code resumeAfter}
+ * when uploading the file again.
+ */
+@Controller
+class OwnerImportController {
+
+	private final OwnerImporter importer;
+
+	OwnerImportController(OwnerImporter importer) {
+		this.importer = importer;
+	}
+
+	@PostMapping(path = "/owners/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+	public ResponseEntity<OwnerImportReport> importOwners(@RequestParam("file") MultipartFile file,
+			@RequestParam(defaultValue = "0") long resumeAfter) throws IOException {
+		try (Reader reader = new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8)) {
+			OwnerImportReport report = this.importer.importCsv(reader, resumeAfter, (checkpoint) -> {
+			});
+			HttpStatus status = report.completed() ? HttpStatus.OK
+					: report.malformed() ? HttpStatus.BAD_REQUEST : HttpStatus.INTERNAL_SERVER_ERROR;
+			return ResponseEntity.status(status).body(report);
+		}
+		catch (IllegalArgumentException ex) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
+		}
+	}
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import java.util.List;
+
+/**
+ * Outcome of an {@link OwnerImporter} run.
+ *
+ * @param rows the number of data rows read, including rejected and skipped ones
+ * @param owners the number of imported owners
+ * @param pets the number of imported pets
+ * @param visits the number of imported visits
+ * @param rejected the number of rows rejected as invalid
+ * @param errors the first rejected rows with the reason
+ * @param checkpoint the line of the last row that is committed, pass it to resume an
+ * interrupted import
+ * @param failure why the import stopped before the end of the input, or {@literal null}
+ * if it completed
+ * @param malformed whether the import stopped because the input is not valid CSV, rather
+ * than on a database error
+ */
+public record OwnerImportReport(long rows, long owners, long pets, long visits, long rejected, List<RowError> errors,
+		long checkpoint, String failure, boolean malformed) {
+
+	public boolean completed() {
+		return this.failure == null;
+	}
+
+	/**
+	 * A rejected row.
+	 *
+	 * @param line the line the row starts on
+	 * @param message why the row was rejected
+	 */
+	public record RowError(long line, String message) {
+
+	}
+
+}
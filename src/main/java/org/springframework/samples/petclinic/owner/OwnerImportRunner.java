@@ -0,0 +1,84 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Imports the CSV file named by {@code petclinic.import.file} on startup, see
+ * {@link OwnerImporter}. The checkpoint is kept in a {@code .checkpoint} file next to the
+ * CSV until the import completes, so running the same command again after a failure
+ * resumes where it stopped. Combine with {@code --spring.main.web-application-type=none}
+ * to exit once the import is done.
+ */
+@Component
+@ConditionalOnProperty("petclinic.import.file")
+class OwnerImportRunner implements ApplicationRunner {
+
+	private static final Log logger = LogFactory.getLog(OwnerImportRunner.class);
+
+	private final OwnerImporter importer;
+
+	private final Path file;
+
+	OwnerImportRunner(OwnerImporter importer, @Value("${petclinic.import.file}") Path file) {
+		this.importer = importer;
+		this.file = file;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) throws IOException {
+		Path checkpointFile = this.file.resolveSibling(this.file.getFileName() + ".checkpoint");
+		long resumeAfter = Files.exists(checkpointFile) ? Long.parseLong(Files.readString(checkpointFile).trim()) : 0;
+		if (resumeAfter > 0) {
+			logger.info("Resuming import of " + this.file + " after line " + resumeAfter);
+		}
+		OwnerImportReport report;
+		try (Reader reader = Files.newBufferedReader(this.file)) {
+			report = this.importer.importCsv(reader, resumeAfter, (line) -> {
+				try {
+					Files.writeString(checkpointFile, Long.toString(line));
+				}
+				catch (IOException ex) {
+					throw new UncheckedIOException(ex);
+				}
+			});
+		}
+		report.errors().forEach((error) -> logger.warn("Rejected line " + error.line() + ": " + error.message()));
+		if (report.rejected() > report.errors().size()) {
+			logger.warn((report.rejected() - report.errors().size()) + " more rows were rejected");
+		}
+		if (!report.completed()) {
+			throw new IllegalStateException("Import of " + this.file + " stopped after line " + report.checkpoint()
+					+ ", run it again to resume: " + report.failure());
+		}
+		Files.deleteIfExists(checkpointFile);
+	}
+
+}
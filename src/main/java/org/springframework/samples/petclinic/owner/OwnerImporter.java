@@ -0,0 +1,470 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.samples.petclinic.owner.OwnerImportReport.RowError;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Bulk import of owners, their pets and their visits from a CSV export with one row per
+ * visit, grouped by owner:
+ *
+ * <pre class="code">
+ * owner_id,first_name,last_name,address,city,telephone,pet_name,birth_date,type,visit_date,description
+ * </pre>
+ *
+ * The {@code owner_id} only identifies the rows of one owner within the file, owners get
+ * new ids. Pets are identified by name within their owner; the pet and visit columns may
+ * be left empty for owners without pets and pets without visits.
+ * <p>
+ * Rows are parsed incrementally and written in chunks of whole owners through JDBC
+ * batches, one transaction per chunk, bypassing the persistence context: owners and pets
+ * use identity columns, which rule out insert batching through JPA. Each chunk updates
+ * the {@link ClinicAnalytics} summaries in its transaction, and once committed adds its
+ * owners to the {@link OwnerNameIndex} and the {@link OwnerSearchIndex}. Invalid rows are
+ * reported with their line and skipped. After each chunk the line of its last row is
+ * reported as a checkpoint, from which an interrupted import can be resumed.
+ */
+@Component
+public class OwnerImporter {
+
+	private static final Log logger = LogFactory.getLog(OwnerImporter.class);
+
+	static final List<String> COLUMNS = List.of("owner_id", "first_name", "last_name", "address", "city", "telephone",
+			"pet_name", "birth_date", "type", "visit_date", "description");
+
+	private static final String INSERT_OWNER = "INSERT INTO owners (first_name, last_name, address, city, telephone, registered_on) VALUES (?, ?, ?, ?, ?, ?)";
+
+	private static final String INSERT_PET = "INSERT INTO pets (name, birth_date, type_id, owner_id) VALUES (?, ?, ?, ?)";
+
+	private static final String INSERT_VISIT = "INSERT INTO visits (pet_id, visit_date, description) VALUES (?, ?, ?)";
+
+	private static final String[] ID_COLUMN = { "id" };
+
+	private final JdbcTemplate jdbc;
+
+	private final TransactionTemplate transactions;
+
+	private final PetTypeCache petTypes;
+
+	private final OwnerNameIndex nameIndex;
+
+	private final OwnerSearchIndex searchIndex;
+
+	private final ClinicAnalytics analytics;
+
+	private final int chunkSize;
+
+	private final int maxErrors;
+
+	public OwnerImporter(JdbcTemplate jdbc, TransactionTemplate transactions, PetTypeCache petTypes,
+			OwnerNameIndex nameIndex, OwnerSearchIndex searchIndex, ClinicAnalytics analytics,
+			@Value("${petclinic.import.chunk-size:5000}") int chunkSize,
+			@Value("${petclinic.import.max-errors:100}") int maxErrors) {
+		this.jdbc = jdbc;
+		this.transactions = transactions;
+		this.petTypes = petTypes;
+		this.nameIndex = nameIndex;
+		this.searchIndex = searchIndex;
+		this.analytics = analytics;
+		this.chunkSize = chunkSize;
+		this.maxErrors = maxErrors;
+	}
+
+	/**
+	 * Import the given CSV.
+	 * @param source the CSV, starting with a header row naming the {@link #COLUMNS}
+	 * @param resumeAfter the checkpoint of an earlier, interrupted import of the same
+	 * input, or {@code 0} to import all rows
+	 * @param checkpoints notified with the line of the last committed row after each
+	 * chunk
+	 * @return the report of the import
+	 * @throws IOException if the source cannot be read
+	 * @throws IllegalArgumentException if the header misses a column
+	 */
+	public OwnerImportReport importCsv(Reader source, long resumeAfter, LongConsumer checkpoints) throws IOException {
+		long start = System.nanoTime();
+		CsvReader csv = new CsvReader(source);
+		int[] columns = columns(csv.next());
+		Map<String, Integer> types = this.petTypes.findAll()
+			.stream()
+			.collect(Collectors.toMap((type) -> type.getName().toLowerCase(Locale.ROOT), PetType::getId,
+					(first, last) -> first));
+		Run run = new Run(resumeAfter);
+		try {
+			Chunk chunk = new Chunk();
+			String ownerKey = null;
+			ImportedOwner owner = null;
+			for (String[] record = csv.next(); record != null; record = csv.next()) {
+				long line = csv.line();
+				if (line <= resumeAfter || (record.length == 1 && record[0].isBlank())) {
+					continue;
+				}
+				run.rows++;
+				Row row = new Row(line, record, columns);
+				String key = row.get(0);
+				if (ownerKey == null || !ownerKey.equals(key)) {
+					if (chunk.rows >= this.chunkSize) {
+						commit(chunk, run, checkpoints);
+						chunk = new Chunk();
+					}
+					ownerKey = key;
+					owner = owner(row, run);
+					if (owner != null) {
+						chunk.owners.add(owner);
+					}
+				}
+				else if (owner == null) {
+					run.reject(line, "owner " + key + " was rejected");
+				}
+				chunk.rows++;
+				chunk.lastLine = line;
+				if (owner != null) {
+					addPetAndVisit(owner, row, types, run);
+				}
+			}
+			commit(chunk, run, checkpoints);
+		}
+		catch (DataAccessException | TransactionException ex) {
+			run.failure = ex.getMostSpecificCause().getMessage();
+		}
+		catch (CsvReader.MalformedCsvException ex) {
+			run.failure = ex.getMessage();
+			run.malformed = true;
+		}
+		catch (IOException ex) {
+			run.failure = ex.getMessage();
+		}
+		finally {
+			OwnerImportReport report = run.report();
+			double seconds = (System.nanoTime() - start) / 1e9;
+			logger.info(String.format("Imported %d owners, %d pets and %d visits from %d rows in %.1f s (%.0f rows/s)",
+					report.owners(), report.pets(), report.visits(), report.rows(), seconds, report.rows() / seconds));
+		}
+		return run.report();
+	}
+
+	private static int[] columns(String[] header) {
+		if (header == null) {
+			throw new IllegalArgumentException("The CSV is empty");
+		}
+		List<String> names = Arrays.stream(header).map((name) -> name.trim().toLowerCase(Locale.ROOT)).toList();
+		int[] columns = new int[COLUMNS.size()];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = names.indexOf(COLUMNS.get(i));
+			if (columns[i] < 0) {
+				throw new IllegalArgumentException("The CSV header has no " + COLUMNS.get(i) + " column");
+			}
+		}
+		return columns;
+	}
+
+	private ImportedOwner owner(Row row, Run run) {
+		String error = row.missing(0, "owner_id");
+		for (int i = 1; error == null && i <= 4; i++) {
+			error = row.missing(i, COLUMNS.get(i));
+		}
+		if (error == null) {
+			error = row.tooLong(1, 30);
+		}
+		if (error == null) {
+			error = row.tooLong(2, 30);
+		}
+		if (error == null) {
+			error = row.tooLong(3, 255);
+		}
+		if (error == null) {
+			error = row.tooLong(4, 80);
+		}
+		if (error == null && !row.get(5).matches("\\d{1,10}")) {
+			error = "telephone must be 1 to 10 digits";
+		}
+		if (error != null) {
+			run.reject(row.line, error);
+			return null;
+		}
+		return new ImportedOwner(row.get(1), row.get(2), row.get(3), row.get(4), row.get(5));
+	}
+
+	private void addPetAndVisit(ImportedOwner owner, Row row, Map<String, Integer> types, Run run) {
+		String petName = row.get(6);
+		boolean hasVisit = !row.get(9).isEmpty() || !row.get(10).isEmpty();
+		if (petName.isEmpty()) {
+			if (hasVisit) {
+				run.reject(row.line, "a visit needs a pet_name");
+			}
+			return;
+		}
+		ImportedPet pet = owner.pets.get(petName.toLowerCase(Locale.ROOT));
+		if (pet == null) {
+			Integer typeId = types.get(row.get(8).toLowerCase(Locale.ROOT));
+			LocalDate birthDate = row.date(7);
+			String error = row.tooLong(6, 30);
+			if (error == null && typeId == null) {
+				error = "unknown pet type '" + row.get(8) + "'";
+			}
+			else if (error == null && (birthDate == null || birthDate.isAfter(LocalDate.now()))) {
+				error = "birth_date must be a past date as yyyy-MM-dd";
+			}
+			if (error != null) {
+				run.reject(row.line, error);
+				return;
+			}
+			pet = new ImportedPet(petName, birthDate, typeId);
+			owner.pets.put(petName.toLowerCase(Locale.ROOT), pet);
+		}
+		if (hasVisit) {
+			LocalDate date = row.date(9);
+			String error = (date == null) ? "visit_date must be a date as yyyy-MM-dd" : row.missing(10, "description");
+			if (error == null) {
+				error = row.tooLong(10, 255);
+			}
+			if (error != null) {
+				run.reject(row.line, error);
+				return;
+			}
+			pet.visits.add(new ImportedVisit(date, row.get(10)));
+		}
+	}
+
+	private void commit(Chunk chunk, Run run, LongConsumer checkpoints) {
+		if (chunk.rows == 0) {
+			return;
+		}
+		List<Integer> ownerIds = this.transactions.execute((status) -> write(chunk));
+		index(chunk, ownerIds);
+		run.owners += chunk.owners.size();
+		run.pets += chunk.owners.stream().mapToLong((owner) -> owner.pets.size()).sum();
+		run.visits += chunk.owners.stream()
+			.flatMap((owner) -> owner.pets.values().stream())
+			.mapToLong((pet) -> pet.visits.size())
+			.sum();
+		run.checkpoint = chunk.lastLine;
+		checkpoints.accept(chunk.lastLine);
+	}
+
+	/**
+	 * Add the committed owners of a chunk to the name and search indexes, which only
+	 * follow changes made through the {@link OwnerRepository} by themselves.
+	 */
+	private void index(Chunk chunk, List<Integer> ownerIds) {
+		List<OwnerName> names = new ArrayList<>(ownerIds.size());
+		for (int i = 0; i < ownerIds.size(); i++) {
+			ImportedOwner owner = chunk.owners.get(i);
+			names.add(new OwnerName(ownerIds.get(i), owner.firstName, owner.lastName));
+		}
+		this.nameIndex.putAll(names);
+		this.searchIndex.reindex(ownerIds);
+	}
+
+	private List<Integer> write(Chunk chunk) {
+		List<ImportedOwner> owners = chunk.owners;
+		LocalDate today = LocalDate.now();
+		ClinicAnalytics.Deltas counts = new ClinicAnalytics.Deltas().owners(today, owners.size());
+		List<Integer> ownerIds = insert(INSERT_OWNER, owners.size(), (statement, i) -> {
+			ImportedOwner owner = owners.get(i);
+			statement.setString(1, owner.firstName);
+			statement.setString(2, owner.lastName);
+			statement.setString(3, owner.address);
+			statement.setString(4, owner.city);
+			statement.setString(5, owner.telephone);
+			statement.setDate(6, Date.valueOf(today));
+		});
+		List<ImportedPet> pets = new ArrayList<>();
+		List<Integer> petOwnerIds = new ArrayList<>();
+		for (int i = 0; i < owners.size(); i++) {
+			for (ImportedPet pet : owners.get(i).pets.values()) {
+				pets.add(pet);
+				petOwnerIds.add(ownerIds.get(i));
+				for (ImportedVisit visit : pet.visits) {
+					counts.visits(visit.date, pet.typeId, owners.get(i).city, 1);
+				}
+			}
+		}
+		List<Integer> petIds = insert(INSERT_PET, pets.size(), (statement, i) -> {
+			ImportedPet pet = pets.get(i);
+			statement.setString(1, pet.name);
+			statement.setDate(2, Date.valueOf(pet.birthDate));
+			statement.setInt(3, pet.typeId);
+			statement.setInt(4, petOwnerIds.get(i));
+		});
+		List<Object[]> visits = new ArrayList<>();
+		for (int i = 0; i < pets.size(); i++) {
+			for (ImportedVisit visit : pets.get(i).visits) {
+				visits.add(new Object[] { petIds.get(i), Date.valueOf(visit.date), visit.description });
+			}
+		}
+		this.jdbc.batchUpdate(INSERT_VISIT, visits);
+		this.analytics.apply(counts);
+		return ownerIds;
+	}
+
+	private List<Integer> insert(String sql, int size, StatementSetter setter) {
+		if (size == 0) {
+			return List.of();
+		}
+		KeyHolder keys = new GeneratedKeyHolder();
+		this.jdbc.batchUpdate((connection) -> connection.prepareStatement(sql, ID_COLUMN),
+				new BatchPreparedStatementSetter() {
+
+					@Override
+					public void setValues(PreparedStatement statement, int i) throws SQLException {
+						setter.setValues(statement, i);
+					}
+
+					@Override
+					public int getBatchSize() {
+						return size;
+					}
+
+				}, keys);
+		return keys.getKeyList().stream().map((key) -> ((Number) key.values().iterator().next()).intValue()).toList();
+	}
+
+	@FunctionalInterface
+	private interface StatementSetter {
+
+		void setValues(PreparedStatement statement, int i) throws SQLException;
+
+	}
+
+	private record Row(long line, String[] record, int[] columns) {
+
+		String get(int column) {
+			int index = this.columns[column];
+			return (index < this.record.length) ? this.record[index].trim() : "";
+		}
+
+		String missing(int column, String name) {
+			return get(column).isEmpty() ? name + " is required" : null;
+		}
+
+		String tooLong(int column, int maxLength) {
+			return (get(column).length() > maxLength)
+					? COLUMNS.get(column) + " must be at most " + maxLength + " characters" : null;
+		}
+
+		LocalDate date(int column) {
+			try {
+				return LocalDate.parse(get(column));
+			}
+			catch (DateTimeParseException ex) {
+				return null;
+			}
+		}
+
+	}
+
+	private record ImportedOwner(String firstName, String lastName, String address, String city, String telephone,
+			Map<String, ImportedPet> pets) {
+
+		ImportedOwner(String firstName, String lastName, String address, String city, String telephone) {
+			this(firstName, lastName, address, city, telephone, new LinkedHashMap<>());
+		}
+
+	}
+
+	private record ImportedPet(String name, LocalDate birthDate, int typeId, List<ImportedVisit> visits) {
+
+		ImportedPet(String name, LocalDate birthDate, int typeId) {
+			this(name, birthDate, typeId, new ArrayList<>());
+		}
+
+	}
+
+	private record ImportedVisit(LocalDate date, String description) {
+
+	}
+
+	/**
+	 * The owners of whole CSV rows written in one transaction.
+	 */
+	private static class Chunk {
+
+		private final List<ImportedOwner> owners = new ArrayList<>();
+
+		private int rows;
+
+		private long lastLine;
+
+	}
+
+	private class Run {
+
+		private long rows;
+
+		private long owners;
+
+		private long pets;
+
+		private long visits;
+
+		private long rejected;
+
+		private final List<RowError> errors = new ArrayList<>();
+
+		private long checkpoint;
+
+		private String failure;
+
+		private boolean malformed;
+
+		Run(long checkpoint) {
+			this.checkpoint = checkpoint;
+		}
+
+		void reject(long line, String message) {
+			this.rejected++;
+			if (this.errors.size() < OwnerImporter.this.maxErrors) {
+				this.errors.add(new RowError(line, message));
+			}
+		}
+
+		OwnerImportReport report() {
+			return new OwnerImportReport(this.rows, this.owners, this.pets, this.visits, this.rejected,
+					List.copyOf(this.errors), this.checkpoint, this.failure, this.malformed);
+		}
+
+	}
+
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+/**
+ * The name of an {@link Owner}, as held by the {@link OwnerNameIndex} and returned by the
+ * owner autocomplete endpoint.
+ *
+ * @param id the id of the owner
+ * @param firstName the first name of the owner
+ * @param lastName the last name of the owner
+ */
+public record OwnerName(Integer id, String firstName, String lastName) {
+
+}
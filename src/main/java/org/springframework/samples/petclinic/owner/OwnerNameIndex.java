@@ -0,0 +1,202 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory index of owner names sorted by last name, answering last name prefix lookups
+ * without touching the database. The index is built from the {@link OwnerRepository} on
+ * startup and kept up to date by the {@link OwnerNameIndexListener}.
+ * <p>
+ * Memory is bounded by <code>petclinic.owners.name-index.max-entries</code>: if the
+ * clinic has more owners than that, the index is discarded and {@link #isComplete()}
+ * returns {@literal false}, so that callers can fall back to a database query. A
+ * discarded index is rebuilt every <code>petclinic.owners.name-index.retry-delay</code>
+ * and takes over again once it fits.
+ */
+@Component
+public class OwnerNameIndex {
+
+	private final OwnerRepository owners;
+
+	private final int maxEntries;
+
+	/**
+	 * The complete index, or {@literal null} while it is discarded. A rebuild fills new
+	 * entries and only then publishes them, so lookups never see a partial index.
+	 */
+	private volatile Entries entries;
+
+	public OwnerNameIndex(OwnerRepository owners,
+			@Value("${petclinic.owners.name-index.max-entries:100000}") int maxEntries) {
+		this.owners = owners;
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Rebuild the index from the database. Lookups keep using the current index until the
+	 * new one is complete.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public synchronized void rebuild() {
+		List<OwnerName> all = this.owners.findOwnerNames(Limit.of(this.maxEntries + 1));
+		if (all.size() > this.maxEntries) {
+			this.entries = null;
+			return;
+		}
+		Entries rebuilt = new Entries();
+		all.forEach(rebuilt::put);
+		this.entries = rebuilt;
+	}
+
+	/**
+	 * Rebuild the index if it was discarded for being over capacity.
+	 */
+	@Scheduled(fixedDelayString = "${petclinic.owners.name-index.retry-delay:PT10M}",
+			initialDelayString = "${petclinic.owners.name-index.retry-delay:PT10M}")
+	public void rebuildIfIncomplete() {
+		if (this.entries == null) {
+			rebuild();
+		}
+	}
+
+	/**
+	 * Whether the index holds every owner. Lookups on an incomplete index may miss
+	 * owners.
+	 * @return {@literal true} if the index is complete
+	 */
+	public boolean isComplete() {
+		return this.entries != null;
+	}
+
+	/**
+	 * Return the owners whose last name starts with the given prefix, ignoring case, in
+	 * last name order.
+	 * @param prefix the last name prefix
+	 * @param limit the maximum number of owners to return
+	 * @return the matching owner names
+	 */
+	public List<OwnerName> findByLastNamePrefix(String prefix, int limit) {
+		Entries entries = this.entries;
+		List<OwnerName> result = new ArrayList<>(Math.min(limit, 16));
+		if (entries == null) {
+			return result;
+		}
+		String from = normalize(prefix);
+		for (OwnerName name : entries.names.subMap(from, true, from + Character.MAX_VALUE, false).values()) {
+			if (result.size() >= limit) {
+				break;
+			}
+			result.add(name);
+		}
+		return result;
+	}
+
+	/**
+	 * Add or replace the name of the given owner.
+	 * @param owner the owner
+	 */
+	synchronized void put(Owner owner) {
+		put(new OwnerName(owner.getId(), owner.getFirstName(), owner.getLastName()));
+	}
+
+	/**
+	 * Add or replace the given owner names.
+	 * @param names the names
+	 */
+	synchronized void putAll(Collection<OwnerName> names) {
+		names.forEach(this::put);
+	}
+
+	/**
+	 * Remove the owner with the given id from the index.
+	 * @param ownerId the id of the owner
+	 */
+	synchronized void remove(Integer ownerId) {
+		Entries entries = this.entries;
+		if (entries != null) {
+			entries.remove(ownerId);
+		}
+	}
+
+	private void put(OwnerName name) {
+		Entries entries = this.entries;
+		if (entries == null || name.id() == null || name.lastName() == null) {
+			return;
+		}
+		if (!entries.keysById.containsKey(name.id()) && entries.keysById.size() >= this.maxEntries) {
+			// over capacity: drop the index rather than grow without bounds
+			this.entries = null;
+			return;
+		}
+		entries.put(name);
+	}
+
+	private static String normalize(String lastName) {
+		return lastName.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * The names of the index. Changed only while holding the lock of the index, read
+	 * concurrently by lookups.
+	 */
+	private static final class Entries {
+
+		/**
+		 * Owner names keyed by lower case last name followed by the owner id, so that
+		 * owners sharing a last name are kept apart and ordered by id.
+		 */
+		private final NavigableMap<String, OwnerName> names = new ConcurrentSkipListMap<>();
+
+		private final Map<Integer, String> keysById = new ConcurrentHashMap<>();
+
+		void put(OwnerName name) {
+			if (name.id() == null || name.lastName() == null) {
+				return;
+			}
+			String key = normalize(name.lastName()) + '\0' + String.format("%010d", name.id());
+			String previous = this.keysById.put(name.id(), key);
+			if (previous != null && !previous.equals(key)) {
+				this.names.remove(previous);
+			}
+			this.names.put(key, name);
+		}
+
+		void remove(Integer ownerId) {
+			String key = this.keysById.remove(ownerId);
+			if (key != null) {
+				this.names.remove(key);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * JPA entity listener keeping the {@link OwnerNameIndex} in line with the {@link Owner}s
+ * in the database. Changes are applied once the surrounding transaction has committed, so
+ * rolled back changes never reach the index.
+ */
+class OwnerNameIndexListener {
+
+	private final ObjectProvider<OwnerNameIndex> index;
+
+	OwnerNameIndexListener(ObjectProvider<OwnerNameIndex> index) {
+		this.index = index;
+	}
+
+	@PostPersist
+	@PostUpdate
+	void ownerSaved(Owner owner) {
+		afterCommit(index -> index.put(owner));
+	}
+
+	@PostRemove
+	void ownerRemoved(Owner owner) {
+		Integer ownerId = owner.getId();
+		afterCommit(index -> index.remove(ownerId));
+	}
+
+	private void afterCommit(Consumer<OwnerNameIndex> action) {
+		OwnerNameIndex index = this.index.getIfAvailable();
+		if (index == null) {
+			return;
+		}
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.accept(index);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				action.accept(index);
+			}
+		});
+	}
+
+}
@@ -15,15 +15,30 @@
  */
 package org.springframework.samples.petclinic.owner;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.Repository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.QueryHint;
+
 /**
  * Repository class for <code>Owner</code> domain objects All method names are compliant
  * with Spring Data naming conventions so this interface can easily be extended for Spring
@@ -37,6 +52,15 @@ import org.springframework.transaction.annotation.Transactional;
  */
 public interface OwnerRepository extends Repository<Owner, Integer> {
 
+	String OWNER_SUMMARY_SELECT = "SELECT new org.springframework.samples.petclinic.owner.OwnerSummary("
+			+ "owner.id, owner.firstName, owner.lastName, owner.address, owner.city, owner.telephone, "
+			+ "listagg(pet.name, ', ') within group (order by pet.name)) FROM Owner owner left join owner.pets pet ";
+
+	String OWNER_SUMMARY_GROUP_BY = "GROUP BY owner.id, owner.firstName, owner.lastName, owner.address, owner.city, "
+			+ "owner.telephone ";
+
+	String EXPORT_FETCH_SIZE = "1000";
+
 	/**
 	 * Retrieve all {@link PetType}s from the data store.
 	 * @return a Collection of {@link PetType}s.
@@ -57,21 +81,217 @@ public interface OwnerRepository extends Repository<Owner, Integer> {
 	@Transactional(readOnly = true)
 	Page<Owner> findByLastName(@Param("lastName") String lastName, Pageable pageable);
 
+	/**
+	 * Retrieve a page of {@link OwnerSummary} projections for the owners whose last name
+	 * <i>starts</i> with the given name. Pet names are aggregated in SQL, so no
+	 * {@link Owner}, {@link Pet} or {@link Visit} entities are hydrated.
+	 * @param lastName Value to search for
+	 * @param pageable the page to retrieve
+	 * @return a page of matching {@link OwnerSummary}s
+	 */
+	@Query(value = OWNER_SUMMARY_SELECT + "WHERE owner.lastName LIKE :lastName% " + OWNER_SUMMARY_GROUP_BY
+			+ "ORDER BY owner.lastName, owner.id",
+			countQuery = "SELECT count(owner) FROM Owner owner WHERE owner.lastName LIKE :lastName%")
+	@Transactional(readOnly = true)
+	Page<OwnerSummary> findOwnerSummariesByLastName(@Param("lastName") String lastName, Pageable pageable);
+
+	/**
+	 * Retrieve a window of {@link OwnerSummary} projections for the owners whose last
+	 * name <i>starts</i> with the given name, scrolling by <code>(lastName, id)</code>
+	 * from the given keyset position. Unlike
+	 * {@link #findOwnerSummariesByLastName(String, Pageable)} no count query is issued
+	 * and the cost of a window does not depend on how deep it is.
+	 * @param lastName Value to search for
+	 * @param position the keyset position to scroll from
+	 * @param limit the maximum number of owners to return
+	 * @return a window of matching {@link OwnerSummary}s in <code>(lastName, id)</code>
+	 * order
+	 */
+	default Window<OwnerSummary> findOwnerSummariesByLastName(String lastName, KeysetScrollPosition position,
+			int limit) {
+		String afterLastName = position.isInitial() ? "" : (String) position.getKeys().get("lastName");
+		int afterId = position.isInitial() ? 0 : (Integer) position.getKeys().get("id");
+		List<OwnerSummary> summaries;
+		if (position.scrollsBackward()) {
+			summaries = new ArrayList<>(
+					findOwnerSummariesByLastNameBefore(lastName, afterLastName, afterId, Limit.of(limit + 1)));
+		}
+		else {
+			summaries = findOwnerSummariesByLastNameAfter(lastName, afterLastName, afterId, Limit.of(limit + 1));
+		}
+		boolean hasMore = summaries.size() > limit;
+		List<OwnerSummary> content = summaries.subList(0, Math.min(limit, summaries.size()));
+		if (position.scrollsBackward()) {
+			Collections.reverse(content);
+		}
+		return Window.from(content,
+				i -> ScrollPosition.forward(Map.of("lastName", content.get(i).lastName(), "id", content.get(i).id())),
+				hasMore);
+	}
+
+	@Query(OWNER_SUMMARY_SELECT + "WHERE owner.lastName LIKE :lastName% AND (owner.lastName > :afterLastName "
+			+ "OR (owner.lastName = :afterLastName AND owner.id > :afterId)) " + OWNER_SUMMARY_GROUP_BY
+			+ "ORDER BY owner.lastName, owner.id")
+	@Transactional(readOnly = true)
+	List<OwnerSummary> findOwnerSummariesByLastNameAfter(@Param("lastName") String lastName,
+			@Param("afterLastName") String afterLastName, @Param("afterId") int afterId, Limit limit);
+
+	@Query(OWNER_SUMMARY_SELECT + "WHERE owner.lastName LIKE :lastName% AND (owner.lastName < :beforeLastName "
+			+ "OR (owner.lastName = :beforeLastName AND owner.id < :beforeId)) " + OWNER_SUMMARY_GROUP_BY
+			+ "ORDER BY owner.lastName DESC, owner.id DESC")
+	@Transactional(readOnly = true)
+	List<OwnerSummary> findOwnerSummariesByLastNameBefore(@Param("lastName") String lastName,
+			@Param("beforeLastName") String beforeLastName, @Param("beforeId") int beforeId, Limit limit);
+
+	/**
+	 * Retrieve the names of all {@link Owner}s, used to build the {@link OwnerNameIndex}.
+	 * @param limit the maximum number of names to return
+	 * @return the names of the owners
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.owner.OwnerName(owner.id, owner.firstName, owner.lastName) "
+			+ "FROM Owner owner")
+	@Transactional(readOnly = true)
+	List<OwnerName> findOwnerNames(Limit limit);
+
+	/**
+	 * Retrieve the names of the {@link Owner}s whose last name <i>starts</i> with the
+	 * given prefix, ignoring case, in the order of the {@link OwnerNameIndex}. Used for
+	 * autocompletion while the index is over capacity.
+	 * @param prefix the last name prefix, in lower case
+	 * @param limit the maximum number of names to return
+	 * @return the matching owner names
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.owner.OwnerName(owner.id, owner.firstName, owner.lastName) "
+			+ "FROM Owner owner WHERE lower(owner.lastName) LIKE :prefix% ORDER BY lower(owner.lastName), owner.id")
+	@Transactional(readOnly = true)
+	List<OwnerName> findOwnerNamesByLastNamePrefix(@Param("prefix") String prefix, Limit limit);
+
 	/**
 	 * Retrieve an {@link Owner} from the data store by id.
+	 * <p>
+	 * The whole aggregate (pets, their types and their visits) is fetched in a single
+	 * statement, so the number of queries does not grow with the number of pets. Reads
+	 * every visit of the pets, on a partitioned <code>visits</code> table every
+	 * partition: the pages of the application read {@link #findWithPetsById(Integer)}
+	 * instead.
 	 * @param id the id to search for
 	 * @return the {@link Owner} if found
 	 */
-	@Query("SELECT owner FROM Owner owner left join fetch owner.pets WHERE owner.id =:id")
+	@Query("SELECT DISTINCT owner FROM Owner owner left join fetch owner.pets pet left join fetch pet.type "
+			+ "left join fetch pet.visits WHERE owner.id =:id")
 	@Transactional(readOnly = true)
 	Owner findById(@Param("id") Integer id);
 
+	/**
+	 * Retrieve an {@link Owner} with its pets and their types, but without their visits,
+	 * in a single statement. Used by the owner page, which displays the visits from
+	 * {@link VisitRepository#findRecentVisits(int, int, java.time.LocalDate)}, the visit
+	 * history, which displays a page of them, and the forms, which display none, so the
+	 * cost does not grow with the age of the pets. The visits of the returned pets must
+	 * not be accessed outside of the persistence context.
+	 * @param id the id to search for
+	 * @return the {@link Owner} if found
+	 */
+	@Query("SELECT DISTINCT owner FROM Owner owner left join fetch owner.pets pet left join fetch pet.type "
+			+ "WHERE owner.id = :id")
+	@Transactional(readOnly = true)
+	Owner findWithPetsById(@Param("id") Integer id);
+
+	/**
+	 * Retrieve the version of the {@link Owner} with the given id, without loading the
+	 * aggregate. Used to answer conditional requests.
+	 * @param id the id of the owner
+	 * @return the version, or {@literal null} if no owner was found
+	 */
+	@Query("SELECT owner.version FROM Owner owner WHERE owner.id = :id")
+	@Transactional(readOnly = true)
+	Integer findVersionById(@Param("id") Integer id);
+
+	/**
+	 * Increment the version of the {@link Owner} with the given id. Changes to pets do
+	 * not touch the <code>owners</code> row, so they bump the version of the aggregate
+	 * explicitly.
+	 * @param id the id of the owner
+	 * @return the number of updated rows
+	 */
+	@Modifying
+	@Query("UPDATE Owner owner SET owner.version = owner.version + 1 WHERE owner.id = :id")
+	@Transactional
+	int incrementVersion(@Param("id") Integer id);
+
+	/**
+	 * Retrieve the ids of the {@link Owner}s following the given id, in id order. Used to
+	 * walk over all owners in batches.
+	 * @param afterId the id to start after
+	 * @param limit the maximum number of ids to return
+	 * @return the owner ids
+	 */
+	@Query("SELECT owner.id FROM Owner owner WHERE owner.id > :afterId ORDER BY owner.id")
+	@Transactional(readOnly = true)
+	List<Integer> findOwnerIdsAfter(@Param("afterId") int afterId, Limit limit);
+
+	/**
+	 * Retrieve the {@link Owner} aggregates with the given ids, fetching pets, their
+	 * types and their visits in a single statement. Reads every visit of their pets, on a
+	 * partitioned <code>visits</code> table every partition, see
+	 * {@link #findAllWithPetsById(Collection)}.
+	 * @param ids the ids of the owners
+	 * @return the {@link Owner}s found
+	 */
+	@Query("SELECT DISTINCT owner FROM Owner owner left join fetch owner.pets pet left join fetch pet.type "
+			+ "left join fetch pet.visits WHERE owner.id IN :ids")
+	@Transactional(readOnly = true)
+	List<Owner> findAllById(@Param("ids") Collection<Integer> ids);
+
+	/**
+	 * Retrieve the {@link Owner}s with the given ids with their pets and their types, but
+	 * without their visits, in a single statement. Used with
+	 * {@link VisitRepository#findVisitsSince(Collection, java.time.LocalDate)} to read
+	 * only the recent visits. The visits of the returned pets must not be accessed
+	 * outside of the persistence context.
+	 * @param ids the ids of the owners
+	 * @return the {@link Owner}s found
+	 */
+	@Query("SELECT DISTINCT owner FROM Owner owner left join fetch owner.pets pet left join fetch pet.type "
+			+ "WHERE owner.id IN :ids")
+	@Transactional(readOnly = true)
+	List<Owner> findAllWithPetsById(@Param("ids") Collection<Integer> ids);
+
+	/**
+	 * Stream all owners, their pets and their visits as {@link OwnerExportRow}s, ordered
+	 * by owner, pet and visit. The rows are read through a forward-only cursor that
+	 * fetches {@value #EXPORT_FETCH_SIZE} rows per round trip and, being projections,
+	 * never enter the persistence context. The stream must be consumed and closed within
+	 * a transaction.
+	 * @return the rows of all owners
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.owner.OwnerExportRow(owner.id, owner.firstName, "
+			+ "owner.lastName, owner.address, owner.city, owner.telephone, pet.name, pet.birthDate, ptype.name, "
+			+ "visit.date, visit.description) FROM Owner owner left join owner.pets pet left join pet.type ptype "
+			+ "left join pet.visits visit ORDER BY owner.id, pet.id, visit.id")
+	@QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+			@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+	@Transactional(readOnly = true)
+	Stream<OwnerExportRow> streamExportRows();
+
 	/**
 	 * Save an {@link Owner} to the data store, either inserting or updating it.
 	 * @param owner the {@link Owner} to save
 	 */
 	void save(Owner owner);
 
+	/**
+	 * Save an {@link Owner} after a change to its pets and increment its version in the
+	 * same transaction, so that a changed aggregate never keeps its old version. Not
+	 * named <code>save*</code>, which would publish the domain events of the owner twice.
+	 * @param owner the {@link Owner} to save
+	 */
+	@Transactional
+	default void updatePets(Owner owner) {
+		save(owner);
+		incrementVersion(owner.getId());
+	}
+
 	/**
 	 * Returns all the owners from data store
 	 **/
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Request-scoped identity map for {@link Owner} aggregates. Every {@code @ModelAttribute}
+ * method and handler of a single request share the same instance, so each owner is loaded
+ * from the {@link OwnerRepository} at most once per request.
+ * <p>
+ * Owners are loaded with their pets but without the visits, which none of the forms
+ * display, so the cost of a form does not grow with the history of the pets. The visits
+ * of a pet are only loaded if accessed, within the request.
+ */
+@Component
+@RequestScope
+class OwnerResolver {
+
+	static final String AVOIDED_LOADS_METRIC = "petclinic.owner.loads.avoided";
+
+	private final OwnerRepository owners;
+
+	private final Counter avoidedLoads;
+
+	private final Map<Integer, Owner> resolved = new HashMap<>();
+
+	OwnerResolver(OwnerRepository owners, MeterRegistry registry) {
+		this.owners = owners;
+		this.avoidedLoads = Counter.builder(AVOIDED_LOADS_METRIC)
+			.description("Owner repository loads avoided by the request-scoped owner resolver")
+			.register(registry);
+	}
+
+	/**
+	 * Return the {@link Owner} with the given id, loading it from the repository only if
+	 * it has not already been resolved during the current request.
+	 * @param ownerId the id of the owner
+	 * @return the {@link Owner}, or {@literal null} if none found
+	 */
+	Owner findById(int ownerId) {
+		Owner owner = this.resolved.get(ownerId);
+		if (owner != null) {
+			this.avoidedLoads.increment();
+			return owner;
+		}
+		owner = this.owners.findWithPetsById(ownerId);
+		if (owner != null) {
+			this.resolved.put(ownerId, owner);
+		}
+		return owner;
+	}
+
+}
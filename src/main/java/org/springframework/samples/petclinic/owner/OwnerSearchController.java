@@ -0,0 +1,54 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Full-text search over owners, their pets and their visits, served from the
+ * {@link OwnerSearchIndex}.
+ */
+@Controller
+class OwnerSearchController {
+
+	private final OwnerSearchIndex searchIndex;
+
+	private final int maxPageSize;
+
+	public OwnerSearchController(OwnerSearchIndex searchIndex,
+			@Value("${petclinic.owners.max-page-size:50}") int maxPageSize) {
+		this.searchIndex = searchIndex;
+		this.maxPageSize = maxPageSize;
+	}
+
+	@GetMapping("/owners/search")
+	public @ResponseBody OwnerSearchResults search(@RequestParam("q") String text,
+			@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "10") int size) {
+		try {
+			return this.searchIndex.search(text, Math.max(page, 0), Math.max(1, Math.min(size, this.maxPageSize)));
+		}
+		catch (IllegalArgumentException ex) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
+		}
+	}
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.util.StringUtils;
+
+/**
+ * Opaque cursor tokens for keyset (seek) pagination of the owner search. A token captures
+ * the <code>(lastName, id)</code> key of the owner a page starts or ends with and the
+ * direction to scroll in, encoded as URL-safe Base64 so it can be passed around as a
+ * request parameter.
+ */
+final class OwnerSearchCursor {
+
+	private static final char FORWARD = 'f';
+
+	private static final char BACKWARD = 'b';
+
+	private OwnerSearchCursor() {
+	}
+
+	/**
+	 * Encode the given position as an opaque token.
+	 * @param position the position to encode
+	 * @return the token, or an empty String for the initial position
+	 */
+	static String encode(KeysetScrollPosition position) {
+		if (position.isInitial()) {
+			return "";
+		}
+		Map<String, Object> keys = position.getKeys();
+		String raw = (position.scrollsForward() ? FORWARD : BACKWARD) + String.valueOf(keys.get("id")) + ":"
+				+ keys.get("lastName");
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Decode a token created by {@link #encode(KeysetScrollPosition)}.
+	 * @param token the token, an empty token denotes the first page
+	 * @return the position to scroll from
+	 * @throws IllegalArgumentException if the token is malformed
+	 */
+	static KeysetScrollPosition decode(String token) {
+		if (!StringUtils.hasText(token)) {
+			return ScrollPosition.keyset();
+		}
+		String raw;
+		Map<String, Object> keys = new LinkedHashMap<>();
+		try {
+			raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			int separator = raw.indexOf(':');
+			keys.put("lastName", raw.substring(separator + 1));
+			keys.put("id", Integer.valueOf(raw.substring(1, separator)));
+		}
+		catch (IllegalArgumentException | IndexOutOfBoundsException ex) {
+			throw new IllegalArgumentException("Invalid owner search cursor: " + token, ex);
+		}
+		return switch (raw.charAt(0)) {
+			case FORWARD -> ScrollPosition.forward(keys);
+			case BACKWARD -> ScrollPosition.backward(keys);
+			default -> throw new IllegalArgumentException("Invalid owner search cursor: " + token);
+		};
+	}
+
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Embedded Lucene full-text index over {@link Owner} aggregates. Each owner is indexed as
+ * one document holding its names, address and city, the names and types of its pets and
+ * the descriptions of their visits inside the {@link VisitWindow}, so a search ranks
+ * owners by how well any of those match.
+ * <p>
+ * The index is updated in near real time: every {@link OwnerChangedEvent} re-indexes the
+ * changed owner once its transaction has committed, and searches see the change right
+ * away through a reopened reader. Changes are only committed to the directory every
+ * <code>petclinic.search.commit-interval</code> and on shutdown, so owner changes do not
+ * wait for a sync to disk. By default the index lives in memory and is rebuilt from the
+ * database on startup; with <code>petclinic.search.index-dir</code> set it is kept on
+ * disk and only rebuilt when empty or when asked to through {@link #rebuild()}. A rebuild
+ * does not hold up owner changes: it reads the database into a separate index and only
+ * locks the live one to swap the documents in.
+ */
+@Component
+public class OwnerSearchIndex implements DisposableBean {
+
+	private static final Log logger = LogFactory.getLog(OwnerSearchIndex.class);
+
+	private static final int REBUILD_BATCH_SIZE = 500;
+
+	/**
+	 * The number of ranked results that can be paged through; Lucene collects every
+	 * result up to the requested page.
+	 */
+	static final int MAX_RESULTS = 10_000;
+
+	private static final Map<String, Float> FIELD_BOOSTS = Map.of("lastName", 4f, "firstName", 3f, "pets", 2f, "city",
+			1.5f, "address", 1f, "visits", 1f);
+
+	private final OwnerRepository owners;
+
+	private final VisitRepository visits;
+
+	private final VisitWindow window;
+
+	private final Analyzer analyzer = new StandardAnalyzer();
+
+	private final Path indexDir;
+
+	private final Directory directory;
+
+	private final IndexWriter writer;
+
+	private final SearcherManager searcherManager;
+
+	private final Object rebuildLock = new Object();
+
+	/**
+	 * The owners re-indexed while a rebuild is running, {@literal null} otherwise.
+	 * Guarded by this index.
+	 */
+	private Set<Integer> changedDuringRebuild;
+
+	OwnerSearchIndex(OwnerRepository owners, VisitRepository visits, VisitWindow window,
+			@Value("${petclinic.search.index-dir:}") String indexDir) throws IOException {
+		this.owners = owners;
+		this.visits = visits;
+		this.window = window;
+		this.indexDir = StringUtils.hasText(indexDir) ? Path.of(indexDir) : null;
+		this.directory = (this.indexDir != null) ? FSDirectory.open(this.indexDir) : new ByteBuffersDirectory();
+		this.writer = new IndexWriter(this.directory, new IndexWriterConfig(this.analyzer));
+		this.searcherManager = new SearcherManager(this.writer, null);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuildIfEmpty() {
+		if (this.writer.getDocStats().numDocs == 0) {
+			rebuild();
+		}
+	}
+
+	/**
+	 * Rebuild the whole index from the database, walking over the owners in batches so
+	 * that memory use does not depend on the number of owners. The new index is built
+	 * aside, while the current one keeps serving searches and following owner changes,
+	 * and then swapped in; owners changed in the meantime are re-indexed once more after
+	 * the swap.
+	 * @return the number of indexed owners
+	 */
+	public int rebuild() {
+		synchronized (this.rebuildLock) {
+			synchronized (this) {
+				this.changedDuringRebuild = new HashSet<>();
+			}
+			Path rebuildDir = (this.indexDir != null)
+					? this.indexDir.resolveSibling(this.indexDir.getFileName() + ".rebuild") : null;
+			try {
+				int indexed;
+				try (Directory rebuilt = (rebuildDir != null) ? FSDirectory.open(rebuildDir)
+						: new ByteBuffersDirectory()) {
+					indexed = build(rebuilt);
+					swap(rebuilt);
+				}
+				logger.info("Indexed " + indexed + " owners for full-text search");
+				return indexed;
+			}
+			catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+			finally {
+				synchronized (this) {
+					this.changedDuringRebuild = null;
+				}
+				if (rebuildDir != null) {
+					deleteRecursively(rebuildDir);
+				}
+			}
+		}
+	}
+
+	private int build(Directory target) throws IOException {
+		int indexed = 0;
+		IndexWriterConfig config = new IndexWriterConfig(this.analyzer).setOpenMode(OpenMode.CREATE);
+		try (IndexWriter builder = new IndexWriter(target, config)) {
+			int afterId = 0;
+			List<Integer> ids;
+			while (!(ids = this.owners.findOwnerIdsAfter(afterId, Limit.of(REBUILD_BATCH_SIZE))).isEmpty()) {
+				for (Document document : documents(ids).values()) {
+					builder.addDocument(document);
+					indexed++;
+				}
+				afterId = ids.get(ids.size() - 1);
+			}
+			builder.commit();
+		}
+		return indexed;
+	}
+
+	/**
+	 * Replace the documents of the live index with the rebuilt ones, in one commit, and
+	 * re-index the owners that changed while the rebuilt index was read from the
+	 * database.
+	 */
+	private synchronized void swap(Directory rebuilt) throws IOException {
+		this.writer.deleteAll();
+		this.writer.addIndexes(rebuilt);
+		update(List.copyOf(this.changedDuringRebuild));
+		this.writer.commit();
+		this.searcherManager.maybeRefreshBlocking();
+	}
+
+	private static void deleteRecursively(Path path) {
+		try {
+			FileSystemUtils.deleteRecursively(path);
+		}
+		catch (IOException ex) {
+			logger.warn("Could not delete " + path + ": " + ex.getMessage());
+		}
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	void ownerChanged(OwnerChangedEvent event) {
+		if (event.ownerId() != null) {
+			reindex(event.ownerId());
+		}
+	}
+
+	/**
+	 * Re-index the owner with the given id, removing it from the index if it no longer
+	 * exists.
+	 * @param ownerId the id of the owner
+	 */
+	public synchronized void reindex(int ownerId) {
+		Document document = documents(List.of(ownerId)).get(ownerId);
+		if (this.changedDuringRebuild != null) {
+			this.changedDuringRebuild.add(ownerId);
+		}
+		try {
+			Term idTerm = new Term("id", String.valueOf(ownerId));
+			if (document == null) {
+				this.writer.deleteDocuments(idTerm);
+			}
+			else {
+				this.writer.updateDocument(idTerm, document);
+			}
+			this.searcherManager.maybeRefresh();
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	/**
+	 * Re-index the owners with the given ids, loading them in batches, and remove those
+	 * that no longer exist from the index.
+	 * @param ownerIds the ids of the owners
+	 */
+	public synchronized void reindex(Collection<Integer> ownerIds) {
+		if (this.changedDuringRebuild != null) {
+			this.changedDuringRebuild.addAll(ownerIds);
+		}
+		try {
+			update(List.copyOf(ownerIds));
+			this.searcherManager.maybeRefresh();
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	private void update(List<Integer> ids) throws IOException {
+		for (int from = 0; from < ids.size(); from += REBUILD_BATCH_SIZE) {
+			List<Integer> batch = ids.subList(from, Math.min(from + REBUILD_BATCH_SIZE, ids.size()));
+			Set<Integer> missing = new HashSet<>(batch);
+			for (Map.Entry<Integer, Document> document : documents(batch).entrySet()) {
+				this.writer.updateDocument(new Term("id", String.valueOf(document.getKey())), document.getValue());
+				missing.remove(document.getKey());
+			}
+			for (Integer ownerId : missing) {
+				this.writer.deleteDocuments(new Term("id", String.valueOf(ownerId)));
+			}
+		}
+	}
+
+	/**
+	 * Commit the changes made since the last commit, so that an index kept on disk
+	 * survives a crash.
+	 */
+	@Scheduled(fixedDelayString = "${petclinic.search.commit-interval:PT1M}")
+	public synchronized void commit() {
+		try {
+			if (this.writer.hasUncommittedChanges()) {
+				this.writer.commit();
+			}
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	/**
+	 * Search owners, best matches first.
+	 * @param text the text to search for, in Lucene query syntax
+	 * @param page the zero based page to return
+	 * @param size the size of the page
+	 * @return the page of results
+	 * @throws IllegalArgumentException if the text is blank or the page lies beyond the
+	 * first {@value #MAX_RESULTS} results
+	 */
+	public OwnerSearchResults search(String text, int page, int size) {
+		if (!StringUtils.hasText(text)) {
+			throw new IllegalArgumentException("Nothing to search for");
+		}
+		long end = ((long) page + 1) * size;
+		if (page < 0 || size < 1 || end > MAX_RESULTS) {
+			throw new IllegalArgumentException("Only the first " + MAX_RESULTS + " results can be paged through");
+		}
+		Query query = parse(text);
+		try {
+			IndexSearcher searcher = this.searcherManager.acquire();
+			try {
+				int from = page * size;
+				TopDocs topDocs = searcher.search(query, (int) end);
+				List<OwnerSearchResults.Hit> hits = new ArrayList<>(size);
+				for (int i = from; i < topDocs.scoreDocs.length; i++) {
+					ScoreDoc scoreDoc = topDocs.scoreDocs[i];
+					Document document = searcher.storedFields().document(scoreDoc.doc);
+					hits.add(new OwnerSearchResults.Hit(Integer.valueOf(document.get("id")), document.get("firstName"),
+							document.get("lastName"), document.get("city"), scoreDoc.score));
+				}
+				return new OwnerSearchResults(hits, topDocs.totalHits.value, page, size);
+			}
+			finally {
+				this.searcherManager.release(searcher);
+			}
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	private Query parse(String text) {
+		MultiFieldQueryParser parser = new MultiFieldQueryParser(FIELD_BOOSTS.keySet().toArray(String[]::new),
+				this.analyzer, FIELD_BOOSTS);
+		try {
+			return parser.parse(text);
+		}
+		catch (ParseException ex) {
+			// not valid query syntax, search for the plain words instead
+			try {
+				return parser.parse(QueryParser.escape(text));
+			}
+			catch (ParseException ex2) {
+				throw new IllegalArgumentException("Invalid search: " + text, ex2);
+			}
+		}
+	}
+
+	/**
+	 * Load the owners with the given ids and turn them into documents. Only the visits
+	 * inside the {@link VisitWindow} are indexed, so that on a partitioned
+	 * <code>visits</code> table only the monthly partitions are read.
+	 * @return the documents keyed by owner id, owners not found are absent
+	 */
+	private Map<Integer, Document> documents(List<Integer> ids) {
+		LocalDate since = this.window.since();
+		Map<Integer, Document> documents = new LinkedHashMap<>();
+		if (since == null) {
+			for (Owner owner : this.owners.findAllById(ids)) {
+				documents.put(owner.getId(), toDocument(owner,
+						(pet) -> pet.getVisits().stream().map(Visit::getDescription).collect(Collectors.toList())));
+			}
+			return documents;
+		}
+		Map<Integer, List<String>> descriptions = this.visits.findVisitsSince(ids, since)
+			.stream()
+			.collect(Collectors.groupingBy(PetVisit::petId,
+					Collectors.mapping(PetVisit::description, Collectors.toList())));
+		for (Owner owner : this.owners.findAllWithPetsById(ids)) {
+			documents.put(owner.getId(), toDocument(owner, (pet) -> descriptions.getOrDefault(pet.getId(), List.of())));
+		}
+		return documents;
+	}
+
+	private Document toDocument(Owner owner, Function<Pet, List<String>> visitDescriptions) {
+		Document document = new Document();
+		document.add(new StringField("id", String.valueOf(owner.getId()), Field.Store.YES));
+		document.add(new TextField("firstName", nullToEmpty(owner.getFirstName()), Field.Store.YES));
+		document.add(new TextField("lastName", nullToEmpty(owner.getLastName()), Field.Store.YES));
+		document.add(new TextField("address", nullToEmpty(owner.getAddress()), Field.Store.NO));
+		document.add(new TextField("city", nullToEmpty(owner.getCity()), Field.Store.YES));
+		for (Pet pet : owner.getPets()) {
+			document.add(new TextField("pets", nullToEmpty(pet.getName()), Field.Store.NO));
+			if (pet.getType() != null) {
+				document.add(new TextField("pets", nullToEmpty(pet.getType().getName()), Field.Store.NO));
+			}
+			String visits = visitDescriptions.apply(pet)
+				.stream()
+				.filter(StringUtils::hasText)
+				.collect(Collectors.joining("\n"));
+			document.add(new TextField("visits", visits, Field.Store.NO));
+		}
+		return document;
+	}
+
+	private static String nullToEmpty(String value) {
+		return value != null ? value : "";
+	}
+
+	@Override
+	public void destroy() throws IOException {
+		commit();
+		this.searcherManager.close();
+		this.writer.close();
+		this.directory.close();
+	}
+
+}
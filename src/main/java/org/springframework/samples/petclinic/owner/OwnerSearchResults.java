@@ -0,0 +1,43 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.List;
+
+/**
+ * A page of ranked results from the {@link OwnerSearchIndex}.
+ *
+ * @param hits the owners on this page, best matches first
+ * @param totalHits the total number of matching owners
+ * @param page the zero based number of this page
+ * @param size the requested page size
+ */
+public record OwnerSearchResults(List<Hit> hits, long totalHits, int page, int size) {
+
+	/**
+	 * A single matching owner.
+	 *
+	 * @param id the id of the owner
+	 * @param firstName the first name of the owner
+	 * @param lastName the last name of the owner
+	 * @param city the city of the owner
+	 * @param score the relevance of the match
+	 */
+	public record Hit(Integer id, String firstName, String lastName, String city, float score) {
+
+	}
+
+}
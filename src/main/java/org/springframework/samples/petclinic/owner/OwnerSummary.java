@@ -0,0 +1,35 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+/**
+ * Read-only projection of an {@link Owner} for the owners list page. The names of the
+ * owner's pets are aggregated by the database, so no {@link Pet} or {@link Visit}
+ * entities are loaded.
+ *
+ * @param id the id of the owner
+ * @param firstName the first name of the owner
+ * @param lastName the last name of the owner
+ * @param address the address of the owner
+ * @param city the city of the owner
+ * @param telephone the telephone number of the owner
+ * @param petNames the comma separated names of the owner's pets, {@literal null} if the
+ * owner has none
+ */
+public record OwnerSummary(Integer id, String firstName, String lastName, String address, String city, String telephone,
+		String petNames) {
+
+}
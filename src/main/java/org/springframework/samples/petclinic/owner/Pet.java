@@ -26,6 +26,7 @@ import org.springframework.samples.petclinic.model.NamedEntity;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
@@ -42,6 +43,7 @@ import jakarta.persistence.Table;
  */
 @Entity
 @Table(name = "pets")
+@EntityListeners(ClinicAnalyticsListener.class)
 public class Pet extends NamedEntity {
 
 	@Column(name = "birth_date")
@@ -52,7 +54,7 @@ public class Pet extends NamedEntity {
 	@JoinColumn(name = "type_id")
 	private PetType type;
 
-	@OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+	@OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
 	@JoinColumn(name = "pet_id")
 	@OrderBy("visit_date ASC")
 	private Set<Visit> visits = new LinkedHashSet<>();
@@ -46,19 +46,25 @@ class PetController {
 
 	private final OwnerRepository owners;
 
-	public PetController(OwnerRepository owners) {
+	private final OwnerResolver ownerResolver;
+
+	private final PetTypeCache petTypes;
+
+	public PetController(OwnerRepository owners, OwnerResolver ownerResolver, PetTypeCache petTypes) {
 		this.owners = owners;
+		this.ownerResolver = ownerResolver;
+		this.petTypes = petTypes;
 	}
 
 	@ModelAttribute("types")
 	public Collection<PetType> populatePetTypes() {
-		return this.owners.findPetTypes();
+		return this.petTypes.findAll();
 	}
 
 	@ModelAttribute("owner")
 	public Owner findOwner(@PathVariable("ownerId") int ownerId) {
 
-		Owner owner = this.owners.findById(ownerId);
+		Owner owner = this.ownerResolver.findById(ownerId);
 		if (owner == null) {
 			throw new IllegalArgumentException("Owner ID not found: " + ownerId);
 		}
@@ -73,7 +79,7 @@ class PetController {
 			return new Pet();
 		}
 
-		Owner owner = this.owners.findById(ownerId);
+		Owner owner = this.ownerResolver.findById(ownerId);
 		if (owner == null) {
 			throw new IllegalArgumentException("Owner ID not found: " + ownerId);
 		}
@@ -116,7 +122,7 @@ class PetController {
 			return VIEWS_PETS_CREATE_OR_UPDATE_FORM;
 		}
 
-		this.owners.save(owner);
+		this.owners.updatePets(owner);
 		redirectAttributes.addFlashAttribute("message", "New Pet has been Added");
 		return "redirect:/owners/{ownerId}";
 	}
@@ -154,7 +160,7 @@ class PetController {
 		}
 
 		owner.addPet(pet);
-		this.owners.save(owner);
+		this.owners.updatePets(owner);
 		redirectAttributes.addFlashAttribute("message", "Pet details has been edited");
 		return "redirect:/owners/{ownerId}";
 	}
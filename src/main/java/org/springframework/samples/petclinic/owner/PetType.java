@@ -18,6 +18,7 @@ package org.springframework.samples.petclinic.owner;
 import org.springframework.samples.petclinic.model.NamedEntity;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.Table;
 
 /**
@@ -25,6 +26,7 @@ import jakarta.persistence.Table;
  */
 @Entity
 @Table(name = "types")
+@EntityListeners(PetTypeCacheListener.class)
 public class PetType extends NamedEntity {
 
 }
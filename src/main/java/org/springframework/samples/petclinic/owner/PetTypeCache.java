@@ -0,0 +1,80 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Reference-data cache for {@link PetType}s. Pet types almost never change, so they are
+ * read from the {@link OwnerRepository} once and kept as an immutable, sorted list and
+ * name index until the {@link PetTypeCacheListener} reports a change.
+ */
+@Component
+public class PetTypeCache {
+
+	private final OwnerRepository owners;
+
+	private volatile Snapshot snapshot;
+
+	public PetTypeCache(OwnerRepository owners) {
+		this.owners = owners;
+	}
+
+	/**
+	 * Return all {@link PetType}s sorted by name.
+	 * @return an unmodifiable list of {@link PetType}s
+	 */
+	public List<PetType> findAll() {
+		return snapshot().sorted();
+	}
+
+	/**
+	 * Return the {@link PetType} with the given name.
+	 * @param name the name of the type
+	 * @return the {@link PetType}, or {@literal null} if none found
+	 */
+	public PetType findByName(String name) {
+		return snapshot().byName().get(name);
+	}
+
+	/**
+	 * Drop the cached pet types, so that they are read again on next access.
+	 */
+	public void invalidate() {
+		this.snapshot = null;
+	}
+
+	private Snapshot snapshot() {
+		Snapshot snapshot = this.snapshot;
+		if (snapshot == null) {
+			List<PetType> sorted = List.copyOf(this.owners.findPetTypes());
+			snapshot = new Snapshot(sorted, sorted.stream()
+				.collect(Collectors.toUnmodifiableMap(PetType::getName, Function.identity(), (first, last) -> first)));
+			this.snapshot = snapshot;
+		}
+		return snapshot;
+	}
+
+	private record Snapshot(List<PetType> sorted, Map<String, PetType> byName) {
+
+	}
+
+}
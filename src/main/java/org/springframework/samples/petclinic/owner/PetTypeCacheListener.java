@@ -0,0 +1,58 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * JPA entity listener invalidating the {@link PetTypeCache} whenever a {@link PetType} is
+ * written. The cache is invalidated once the surrounding transaction has completed, so
+ * that it cannot be refilled with the old types in the meantime.
+ */
+class PetTypeCacheListener {
+
+	private final ObjectProvider<PetTypeCache> cache;
+
+	PetTypeCacheListener(ObjectProvider<PetTypeCache> cache) {
+		this.cache = cache;
+	}
+
+	@PostPersist
+	@PostUpdate
+	@PostRemove
+	void petTypeChanged(PetType petType) {
+		PetTypeCache cache = this.cache.getIfAvailable();
+		if (cache == null) {
+			return;
+		}
+		cache.invalidate();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					cache.invalidate();
+				}
+			});
+		}
+	}
+
+}
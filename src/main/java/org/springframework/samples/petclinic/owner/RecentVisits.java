@@ -0,0 +1,30 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import java.util.List;
+
+/**
+ * The most recent visits of a {@link Pet}, newest first, as shown on the owner page.
+ *
+ * @param visits the most recent visits
+ * @param hasOlder whether the pet has, or may have, older visits, only reachable through
+ * the paginated history
+ */
+public record RecentVisits(List<PetVisit> visits, boolean hasOlder) {
+
+}
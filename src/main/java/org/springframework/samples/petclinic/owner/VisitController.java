@@ -17,14 +17,18 @@ package org.springframework.samples.petclinic.owner;
 
 import java.util.Map;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.InitBinder;
-import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import jakarta.validation.Valid;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
@@ -39,10 +43,23 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 @Controller
 class VisitController {
 
+	private final VisitRepository visits;
+
+	private final OwnerResolver ownerResolver;
+
 	private final OwnerRepository owners;
 
-	public VisitController(OwnerRepository owners) {
+	private final ApplicationEventPublisher events;
+
+	private final int historyPageSize;
+
+	public VisitController(VisitRepository visits, OwnerResolver ownerResolver, OwnerRepository owners,
+			ApplicationEventPublisher events, @Value("${petclinic.visits.page-size:20}") int historyPageSize) {
+		this.visits = visits;
+		this.ownerResolver = ownerResolver;
 		this.owners = owners;
+		this.events = events;
+		this.historyPageSize = historyPageSize;
 	}
 
 	@InitBinder
@@ -51,46 +68,73 @@ class VisitController {
 	}
 
 	/**
-	 * Called before each and every @RequestMapping annotated method. 2 goals: - Make sure
-	 * we always have fresh data - Since we do not use the session scope, make sure that
-	 * Pet object always has an id (Even though id is not part of the form fields)
+	 * Puts the owner and the pet into the model so the visit form can show them. Only
+	 * needed to render the form: booking a visit does not load the owner aggregate.
+	 * @param ownerId
 	 * @param petId
-	 * @return Pet
+	 * @param model
 	 */
-	@ModelAttribute("visit")
-	public Visit loadPetWithVisit(@PathVariable("ownerId") int ownerId, @PathVariable("petId") int petId,
-			Map<String, Object> model) {
-		Owner owner = this.owners.findById(ownerId);
-
-		Pet pet = owner.getPet(petId);
-		model.put("pet", pet);
+	private void populateOwnerAndPet(int ownerId, int petId, Map<String, Object> model) {
+		Owner owner = this.ownerResolver.findById(ownerId);
+		if (owner == null) {
+			throw new IllegalArgumentException("Owner ID not found: " + ownerId);
+		}
+		model.put("pet", owner.getPet(petId));
 		model.put("owner", owner);
-
-		Visit visit = new Visit();
-		pet.addVisit(visit);
-		return visit;
 	}
 
-	// Spring MVC calls method loadPetWithVisit(...) before initNewVisitForm is
-	// called
 	@GetMapping("/owners/{ownerId}/pets/{petId}/visits/new")
-	public String initNewVisitForm() {
+	public String initNewVisitForm(@PathVariable("ownerId") int ownerId, @PathVariable("petId") int petId,
+			Map<String, Object> model) {
+		populateOwnerAndPet(ownerId, petId, model);
+		model.put("visit", new Visit());
 		return "pets/createOrUpdateVisitForm";
 	}
 
-	// Spring MVC calls method loadPetWithVisit(...) before processNewVisitForm is
-	// called
 	@PostMapping("/owners/{ownerId}/pets/{petId}/visits/new")
-	public String processNewVisitForm(@ModelAttribute Owner owner, @PathVariable int petId, @Valid Visit visit,
-			BindingResult result, RedirectAttributes redirectAttributes) {
+	public String processNewVisitForm(@PathVariable("ownerId") int ownerId, @PathVariable("petId") int petId,
+			@Valid Visit visit, BindingResult result, Map<String, Object> model,
+			RedirectAttributes redirectAttributes) {
 		if (result.hasErrors()) {
+			populateOwnerAndPet(ownerId, petId, model);
 			return "pets/createOrUpdateVisitForm";
 		}
 
-		owner.addVisit(petId, visit);
-		this.owners.save(owner);
+		if (this.visits.addVisit(ownerId, petId, visit.getDate(), visit.getDescription()) == 0) {
+			throw new IllegalArgumentException("Pet ID " + petId + " not found for owner ID " + ownerId);
+		}
+		this.events.publishEvent(new OwnerChangedEvent(ownerId));
 		redirectAttributes.addFlashAttribute("message", "Your vist has been boked");
 		return "redirect:/owners/{ownerId}";
 	}
 
+	/**
+	 * Shows the visit history of a pet one page at a time, newest first. The owner page
+	 * only lists the most recent visits of each pet and links here for the older ones.
+	 * @param ownerId the id of the owner
+	 * @param petId the id of the pet
+	 * @param page the 1-based page number
+	 * @param model the model for the view
+	 * @return the name of the view
+	 */
+	@GetMapping("/owners/{ownerId}/pets/{petId}/visits")
+	public String showVisitHistory(@PathVariable("ownerId") int ownerId, @PathVariable("petId") int petId,
+			@RequestParam(defaultValue = "1") int page, Map<String, Object> model) {
+		Owner owner = this.owners.findWithPetsById(ownerId);
+		Pet pet = (owner != null) ? owner.getPet(petId) : null;
+		if (pet == null) {
+			throw new IllegalArgumentException("Pet ID " + petId + " not found for owner ID " + ownerId);
+		}
+		// a pet has no visits before its birth, so the partitions before it are skipped
+		Page<PetVisit> visits = this.visits.findVisitHistory(ownerId, petId, pet.getBirthDate(),
+				PageRequest.of(Math.max(page, 1) - 1, this.historyPageSize));
+		model.put("owner", owner);
+		model.put("pet", pet);
+		model.put("listVisits", visits.getContent());
+		model.put("currentPage", visits.getNumber() + 1);
+		model.put("totalPages", visits.getTotalPages());
+		model.put("totalItems", visits.getTotalElements());
+		return "pets/visitHistory";
+	}
+
 }
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+
+/**
+ * Repository fragment counting booked visits in the {@link ClinicAnalytics} summaries, so
+ * that {@link VisitRepository#addVisit} updates them in the transaction inserting the
+ * visit.
+ */
+public interface VisitCounter {
+
+	/**
+	 * Count a visit of the given pet in the summaries.
+	 * @param petId the id of the pet
+	 * @param date the date of the visit
+	 */
+	void countVisit(int petId, LocalDate date);
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * {@link VisitCounter} delegating to the {@link ClinicAnalytics}, if there are any in the
+ * application context.
+ */
+class VisitCounterImpl implements VisitCounter {
+
+	private final ObjectProvider<ClinicAnalytics> analytics;
+
+	VisitCounterImpl(ObjectProvider<ClinicAnalytics> analytics) {
+		this.analytics = analytics;
+	}
+
+	@Override
+	public void countVisit(int petId, LocalDate date) {
+		ClinicAnalytics analytics = this.analytics.getIfAvailable();
+		if (analytics != null) {
+			analytics.visitAdded(petId, date);
+		}
+	}
+
+}
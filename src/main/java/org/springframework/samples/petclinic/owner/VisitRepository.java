@@ -0,0 +1,213 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Repository class for <code>Visit</code> domain objects. Visits are append-only, so
+ * booking one does not need to load or merge the owning {@link Owner} aggregate.
+ */
+public interface VisitRepository extends Repository<Visit, Integer>, VisitCounter {
+
+	/**
+	 * Insert a new visit for the given pet, provided the pet belongs to the given owner,
+	 * and increment the version of the owner and count the visit in the
+	 * {@link ClinicAnalytics} in the same transaction.
+	 * @param ownerId the id of the owner the pet must belong to
+	 * @param petId the id of the pet
+	 * @param date the date of the visit
+	 * @param description the description of the visit
+	 * @return the number of inserted rows, <code>0</code> if the pet does not belong to
+	 * the owner
+	 */
+	@Transactional
+	default int addVisit(int ownerId, int petId, LocalDate date, String description) {
+		int inserted = insertVisit(ownerId, petId, date, description);
+		if (inserted > 0) {
+			incrementOwnerVersion(ownerId);
+			countVisit(petId, date);
+		}
+		return inserted;
+	}
+
+	/**
+	 * Insert a new visit for the given pet, provided the pet belongs to the given owner.
+	 * The ownership check and the insert are a single statement driven by the primary key
+	 * of <code>pets</code>, so its cost does not depend on the visit history.
+	 * @param ownerId the id of the owner the pet must belong to
+	 * @param petId the id of the pet
+	 * @param date the date of the visit
+	 * @param description the description of the visit
+	 * @return the number of inserted rows, <code>0</code> if the pet does not belong to
+	 * the owner
+	 */
+	@Modifying
+	@Query(value = "INSERT INTO visits (pet_id, visit_date, description) "
+			+ "SELECT id, :date, :description FROM pets WHERE id = :petId AND owner_id = :ownerId", nativeQuery = true)
+	@Transactional
+	int insertVisit(@Param("ownerId") int ownerId, @Param("petId") int petId, @Param("date") LocalDate date,
+			@Param("description") String description);
+
+	/**
+	 * Increment the version of the given {@link Owner}, see
+	 * {@link OwnerRepository#incrementVersion(Integer)}.
+	 * @param ownerId the id of the owner
+	 * @return the number of updated rows
+	 */
+	@Modifying
+	@Query("UPDATE Owner owner SET owner.version = owner.version + 1 WHERE owner.id = :ownerId")
+	@Transactional
+	int incrementOwnerVersion(@Param("ownerId") int ownerId);
+
+	String RECENT_VISITS_SELECT = "SELECT new org.springframework.samples.petclinic.owner.PetVisit(recent.petId, "
+			+ "recent.id, recent.date, recent.description) FROM (SELECT pet.id AS petId, visit.id AS id, "
+			+ "visit.date AS date, visit.description AS description, row_number() OVER (PARTITION BY pet.id "
+			+ "ORDER BY visit.date DESC, visit.id DESC) AS position FROM Owner owner JOIN owner.pets pet "
+			+ "JOIN pet.visits visit WHERE owner.id = :ownerId ";
+
+	String RECENT_VISITS_WHERE = ") recent WHERE recent.position <= :limit "
+			+ "ORDER BY recent.petId, recent.date DESC, recent.id DESC";
+
+	/**
+	 * Retrieve the most recent visits of each pet of the given owner, newest first.
+	 * @param ownerId the id of the owner
+	 * @param perPet the maximum number of visits per pet
+	 * @param since the first day to look at, or {@literal null} to look at all visits
+	 * @return the recent visits keyed by pet id, pets without visits are absent
+	 */
+	default Map<Integer, RecentVisits> findRecentVisits(int ownerId, int perPet, LocalDate since) {
+		// one more row per pet tells whether there is an older history
+		List<PetVisit> rows = (since != null) ? findRecentVisitsByPetSince(ownerId, since, perPet + 1)
+				: findRecentVisitsByPet(ownerId, perPet + 1);
+		Map<Integer, List<PetVisit>> byPet = new HashMap<>();
+		for (PetVisit visit : rows) {
+			byPet.computeIfAbsent(visit.petId(), (petId) -> new ArrayList<>()).add(visit);
+		}
+		Map<Integer, RecentVisits> recent = new HashMap<>();
+		byPet.forEach((petId, visits) -> recent.put(petId, new RecentVisits(
+				List.copyOf(visits.subList(0, Math.min(perPet, visits.size()))), visits.size() > perPet)));
+		return recent;
+	}
+
+	/**
+	 * Retrieve up to <code>limit</code> most recent visits of each pet of the given owner
+	 * in a single statement. The visits are ranked per pet by a window function, so only
+	 * the requested rows leave the database, however long the history of a pet is.
+	 * @param ownerId the id of the owner
+	 * @param limit the maximum number of visits per pet
+	 * @return the visits ordered by pet, newest first
+	 */
+	@Query(RECENT_VISITS_SELECT + RECENT_VISITS_WHERE)
+	@Transactional(readOnly = true)
+	List<PetVisit> findRecentVisitsByPet(@Param("ownerId") int ownerId, @Param("limit") int limit);
+
+	/**
+	 * Retrieve up to <code>limit</code> most recent visits of each pet of the given owner
+	 * since the given day, see {@link #findRecentVisitsByPet(int, int)}. On a partitioned
+	 * <code>visits</code> table only the partitions from that day on are read.
+	 * @param ownerId the id of the owner
+	 * @param since the first day to look at
+	 * @param limit the maximum number of visits per pet
+	 * @return the visits ordered by pet, newest first
+	 */
+	@Query(RECENT_VISITS_SELECT + "AND visit.date >= :since" + RECENT_VISITS_WHERE)
+	@Transactional(readOnly = true)
+	List<PetVisit> findRecentVisitsByPetSince(@Param("ownerId") int ownerId, @Param("since") LocalDate since,
+			@Param("limit") int limit);
+
+	String VISIT_HISTORY_FROM = "FROM Owner owner JOIN owner.pets pet JOIN pet.visits visit "
+			+ "WHERE owner.id = :ownerId AND pet.id = :petId ";
+
+	String VISIT_HISTORY_SELECT = "SELECT new org.springframework.samples.petclinic.owner.PetVisit(pet.id, visit.id, "
+			+ "visit.date, visit.description) " + VISIT_HISTORY_FROM;
+
+	String VISIT_HISTORY_ORDER_BY = " ORDER BY visit.date DESC, visit.id DESC";
+
+	/**
+	 * Retrieve a page of the visit history of the given pet, newest first, provided the
+	 * pet belongs to the given owner.
+	 * @param ownerId the id of the owner the pet must belong to
+	 * @param petId the id of the pet
+	 * @param since the birth date of the pet, before which it has no visits, or
+	 * {@literal null} to look at all visits
+	 * @param pageable the page to retrieve
+	 * @return a page of visits, empty if the pet does not belong to the owner
+	 */
+	default Page<PetVisit> findVisitHistory(int ownerId, int petId, LocalDate since, Pageable pageable) {
+		return (since != null) ? findVisitHistorySince(ownerId, petId, since, pageable)
+				: findVisitHistoryByPet(ownerId, petId, pageable);
+	}
+
+	/**
+	 * Retrieve a page of the whole visit history of the given pet, see
+	 * {@link #findVisitHistory(int, int, LocalDate, Pageable)}.
+	 * @param ownerId the id of the owner the pet must belong to
+	 * @param petId the id of the pet
+	 * @param pageable the page to retrieve
+	 * @return a page of visits, newest first
+	 */
+	@Query(value = VISIT_HISTORY_SELECT + VISIT_HISTORY_ORDER_BY,
+			countQuery = "SELECT count(visit) " + VISIT_HISTORY_FROM)
+	@Transactional(readOnly = true)
+	Page<PetVisit> findVisitHistoryByPet(@Param("ownerId") int ownerId, @Param("petId") int petId, Pageable pageable);
+
+	/**
+	 * Retrieve a page of the visit history of the given pet since the given day, see
+	 * {@link #findVisitHistory(int, int, LocalDate, Pageable)}. On a partitioned
+	 * <code>visits</code> table only the partitions from that day on are read, for the
+	 * page and for the count.
+	 * @param ownerId the id of the owner the pet must belong to
+	 * @param petId the id of the pet
+	 * @param since the first day to look at
+	 * @param pageable the page to retrieve
+	 * @return a page of visits, newest first
+	 */
+	@Query(value = VISIT_HISTORY_SELECT + "AND visit.date >= :since" + VISIT_HISTORY_ORDER_BY,
+			countQuery = "SELECT count(visit) " + VISIT_HISTORY_FROM + "AND visit.date >= :since")
+	@Transactional(readOnly = true)
+	Page<PetVisit> findVisitHistorySince(@Param("ownerId") int ownerId, @Param("petId") int petId,
+			@Param("since") LocalDate since, Pageable pageable);
+
+	/**
+	 * Retrieve the visits of the pets of the given owners since the given day, in no
+	 * particular order. Used with {@link OwnerRepository#findAllWithPetsById(Collection)}
+	 * instead of loading the whole aggregates, so that only the partitions from that day
+	 * on are read on a partitioned <code>visits</code> table.
+	 * @param ownerIds the ids of the owners
+	 * @param since the first day to look at
+	 * @return the visits
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.owner.PetVisit(pet.id, visit.id, visit.date, "
+			+ "visit.description) FROM Owner owner JOIN owner.pets pet JOIN pet.visits visit "
+			+ "WHERE owner.id IN :ownerIds AND visit.date >= :since")
+	@Transactional(readOnly = true)
+	List<PetVisit> findVisitsSince(@Param("ownerIds") Collection<Integer> ownerIds, @Param("since") LocalDate since);
+
+}
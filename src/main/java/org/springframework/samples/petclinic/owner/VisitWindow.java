@@ -0,0 +1,52 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The past months of visits read by default, by the owner page and the search index. With
+ * the <code>visits</code> table partitioned by month
+ * (<code>petclinic.visits.partitions.enabled</code>) the window defaults to the
+ * <code>petclinic.visits.partitions.hot-months</code> that have a partition of their own,
+ * so those queries skip the history partition; otherwise all visits are read.
+ * <code>petclinic.owners.recent-visits-months</code> overrides the window, <code>0</code>
+ * reading all visits.
+ */
+@Component
+class VisitWindow {
+
+	private final int months;
+
+	VisitWindow(@Value("${petclinic.visits.partitions.enabled:false}") boolean partitioned,
+			@Value("${petclinic.visits.partitions.hot-months:24}") int hotMonths,
+			@Value("${petclinic.owners.recent-visits-months:-1}") int months) {
+		this.months = (months >= 0) ? months : partitioned ? hotMonths : 0;
+	}
+
+	/**
+	 * Return the first day of the window, the first day of a month.
+	 * @return the first day, or {@literal null} if all visits are read
+	 */
+	LocalDate since() {
+		return (this.months != 0) ? LocalDate.now().withDayOfMonth(1).minusMonths(this.months) : null;
+	}
+
+}
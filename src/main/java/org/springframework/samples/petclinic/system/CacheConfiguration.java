@@ -16,38 +16,39 @@
 
 package org.springframework.samples.petclinic.system;
 
-import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import javax.cache.configuration.MutableConfiguration;
+import com.github.benmanes.caffeine.cache.Caffeine;
 
 /**
- * Cache configuration intended for caches providing the JCache API. This configuration
- * creates the used cache for the application and enables statistics that become
- * accessible via JMX.
+ * Cache configuration backed by Caffeine. Every region listed in
+ * {@link CacheRegionProperties} is created up front with its own size and expiry bounds,
+ * and the cache manager is switched to static mode so that a misspelled cache name fails
+ * instead of silently creating an unbounded region.
+ * <p>
+ * Statistics are recorded for every region; Spring Boot binds them to Micrometer as the
+ * {@code cache.gets}, {@code cache.puts} and {@code cache.evictions} meters, and the
+ * regions are listed by the {@code caches} actuator endpoint.
  */
 @Configuration(proxyBeanMethods = false)
 @EnableCaching
+@EnableConfigurationProperties(CacheRegionProperties.class)
 class CacheConfiguration {
 
 	@Bean
-	public JCacheManagerCustomizer petclinicCacheConfigurationCustomizer() {
-		return cm -> cm.createCache("vets", cacheConfiguration());
-	}
-
-	/**
-	 * Create a simple configuration that enable statistics via the JCache programmatic
-	 * configuration API.
-	 * <p>
-	 * Within the configuration object that is provided by the JCache API standard, there
-	 * is only a very limited set of configuration options. The really relevant
-	 * configuration options (like the size limit) must be set via a configuration
-	 * mechanism that is provided by the selected JCache implementation.
-	 */
-	private javax.cache.configuration.Configuration<Object, Object> cacheConfiguration() {
-		return new MutableConfiguration<>().setStatisticsEnabled(true);
+	public CacheManagerCustomizer<CaffeineCacheManager> petclinicCacheConfigurationCustomizer(
+			CacheRegionProperties properties) {
+		return cm -> {
+			cm.setCaffeine(Caffeine.from(properties.defaultSpec()).recordStats());
+			cm.setCacheNames(properties.regions().keySet());
+			properties.regions()
+				.forEach((name, spec) -> cm.registerCustomCache(name, Caffeine.from(spec).recordStats().build()));
+		};
 	}
 
 }
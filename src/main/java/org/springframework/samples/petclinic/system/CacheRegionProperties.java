@@ -0,0 +1,40 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Declarative cache topology bound from {@code petclinic.cache.*}. Each entry of
+ * {@code regions} maps a cache name to a Caffeine specification such as
+ * {@code maximumSize=100,expireAfterWrite=10m}.
+ *
+ * @param defaultSpec the Caffeine specification used for regions without their own
+ * @param regions the Caffeine specification of each cache region, keyed by cache name
+ */
+@ConfigurationProperties("petclinic.cache")
+record CacheRegionProperties(@DefaultValue("maximumSize=100,expireAfterWrite=10m") String defaultSpec,
+		Map<String, String> regions) {
+
+	CacheRegionProperties {
+		regions = (regions != null) ? Map.copyOf(regions) : Map.of();
+	}
+
+}
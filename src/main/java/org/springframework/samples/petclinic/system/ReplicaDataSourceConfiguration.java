@@ -0,0 +1,129 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.sql.init.SqlDataSourceScriptDatabaseInitializer;
+import org.springframework.boot.autoconfigure.sql.init.SqlInitializationProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.init.DataSourceScriptDatabaseInitializer;
+import org.springframework.boot.sql.init.DatabaseInitializationMode;
+import org.springframework.boot.sql.init.DatabaseInitializationSettings;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Splits the data source into a primary and a replica connection pool once
+ * {@code petclinic.datasource.replica.url} is set. The primary is configured with the
+ * usual {@code spring.datasource.*} properties, the replica with the same properties
+ * under {@code petclinic.datasource.replica}; both pools report their Hikari metrics
+ * under their pool name. Read-only transactions go to the replica (see
+ * {@link ReplicaRoutingDataSource}), except for clients that wrote within the last
+ * {@code petclinic.datasource.replica.sticky-for} (5 seconds by default).
+ * <p>
+ * An embedded replica is initialized with the same scripts as the primary, so two H2
+ * databases can stand in for a replicated one locally. Other replicas are left alone
+ * unless {@code petclinic.datasource.replica.sql.init.mode} is set to {@code always}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty("petclinic.datasource.replica.url")
+class ReplicaDataSourceConfiguration implements WebMvcConfigurer {
+
+	private final Duration stickyFor;
+
+	ReplicaDataSourceConfiguration(@Value("${petclinic.datasource.replica.sticky-for:5s}") Duration stickyFor) {
+		this.stickyFor = stickyFor;
+	}
+
+	@Bean
+	@Primary
+	@ConfigurationProperties("spring.datasource")
+	DataSourceProperties primaryDataSourceProperties() {
+		return new DataSourceProperties();
+	}
+
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	HikariDataSource primaryDataSource(DataSourceProperties primaryDataSourceProperties) {
+		return pool(primaryDataSourceProperties, "primary");
+	}
+
+	@Bean
+	@ConfigurationProperties("petclinic.datasource.replica")
+	DataSourceProperties replicaDataSourceProperties() {
+		return new DataSourceProperties();
+	}
+
+	@Bean
+	@ConfigurationProperties("petclinic.datasource.replica.hikari")
+	HikariDataSource replicaDataSource(
+			@Qualifier("replicaDataSourceProperties") DataSourceProperties replicaDataSourceProperties) {
+		HikariDataSource replica = pool(replicaDataSourceProperties, "replica");
+		replica.setReadOnly(true);
+		return replica;
+	}
+
+	private static HikariDataSource pool(DataSourceProperties properties, String name) {
+		HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		pool.setPoolName(name);
+		return pool;
+	}
+
+	@Bean
+	@Primary
+	DataSource dataSource(HikariDataSource primaryDataSource, HikariDataSource replicaDataSource,
+			MeterRegistry registry) {
+		return new LazyConnectionDataSourceProxy(
+				new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource, registry));
+	}
+
+	@Bean
+	DataSourceScriptDatabaseInitializer replicaDataSourceInitializer(HikariDataSource replicaDataSource,
+			Environment environment,
+			@Value("${petclinic.datasource.replica.sql.init.mode:embedded}") DatabaseInitializationMode mode) {
+		SqlInitializationProperties properties = Binder.get(environment)
+			.bind("spring.sql.init", SqlInitializationProperties.class)
+			.orElseGet(SqlInitializationProperties::new);
+		DatabaseInitializationSettings settings = SqlDataSourceScriptDatabaseInitializer.getSettings(properties);
+		// a real replica gets its schema and data from the primary through replication
+		settings.setMode(mode);
+		return new DataSourceScriptDatabaseInitializer(replicaDataSource, settings);
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(new ReplicaStickinessInterceptor(this.stickyFor));
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Hands out replica connections to read-only transactions and primary connections to
+ * everything else. It has to sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, so that the
+ * connection is only fetched on the first statement, once the transaction and its
+ * read-only flag are known.
+ * <p>
+ * Threads marked with {@link #usePrimary(boolean)} read from the primary as well, so that
+ * a client reads its own writes while the replica catches up. If the replica cannot hand
+ * out a connection, the primary is used instead.
+ */
+class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+	static final String ROUTING_METRIC = "petclinic.datasource.routing";
+
+	private static final Log logger = LogFactory.getLog(ReplicaRoutingDataSource.class);
+
+	private static final ThreadLocal<Boolean> primaryOnly = new ThreadLocal<>();
+
+	private final DataSource primary;
+
+	private final DataSource replica;
+
+	private final Counter writes;
+
+	private final Counter readYourWrites;
+
+	private final Counter reads;
+
+	private final Counter fallbacks;
+
+	ReplicaRoutingDataSource(DataSource primary, DataSource replica, MeterRegistry registry) {
+		this.primary = primary;
+		this.replica = replica;
+		this.writes = counter(registry, "primary", "write");
+		this.readYourWrites = counter(registry, "primary", "read-your-writes");
+		this.reads = counter(registry, "replica", "read-only");
+		this.fallbacks = counter(registry, "primary", "replica-unavailable");
+		setTargetDataSources(Map.of("primary", primary, "replica", replica));
+		setDefaultTargetDataSource(primary);
+		afterPropertiesSet();
+	}
+
+	private static Counter counter(MeterRegistry registry, String pool, String reason) {
+		return Counter.builder(ROUTING_METRIC)
+			.description("Connections handed out by the read/write routing data source")
+			.tag("pool", pool)
+			.tag("reason", reason)
+			.register(registry);
+	}
+
+	/**
+	 * Send the read-only transactions of the current thread to the primary as well, or
+	 * stop doing so.
+	 * @param enabled whether to use the primary only
+	 */
+	static void usePrimary(boolean enabled) {
+		if (enabled) {
+			primaryOnly.set(Boolean.TRUE);
+		}
+		else {
+			primaryOnly.remove();
+		}
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		return useReplica() ? "replica" : "primary";
+	}
+
+	private static boolean useReplica() {
+		return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && primaryOnly.get() == null;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+			this.writes.increment();
+			return this.primary.getConnection();
+		}
+		if (!useReplica()) {
+			this.readYourWrites.increment();
+			return this.primary.getConnection();
+		}
+		try {
+			Connection connection = this.replica.getConnection();
+			this.reads.increment();
+			return connection;
+		}
+		catch (SQLException ex) {
+			logger.warn("Replica unavailable, reading from the primary: " + ex.getMessage());
+			this.fallbacks.increment();
+			return this.primary.getConnection();
+		}
+	}
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+import java.util.Set;
+
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.util.WebUtils;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Gives clients read-your-writes consistency over a lagging replica: a request that may
+ * write leaves a cookie valid for the expected replica lag, and requests carrying it read
+ * from the primary, see {@link ReplicaRoutingDataSource#usePrimary(boolean)}.
+ */
+class ReplicaStickinessInterceptor implements HandlerInterceptor {
+
+	static final String COOKIE_NAME = "petclinic-primary";
+
+	private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+	private final Duration stickyFor;
+
+	ReplicaStickinessInterceptor(Duration stickyFor) {
+		this.stickyFor = stickyFor;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		boolean write = !SAFE_METHODS.contains(request.getMethod());
+		if (write && this.stickyFor.toSeconds() > 0) {
+			Cookie cookie = new Cookie(COOKIE_NAME, "1");
+			cookie.setPath("/");
+			cookie.setHttpOnly(true);
+			cookie.setMaxAge((int) this.stickyFor.toSeconds());
+			response.addCookie(cookie);
+		}
+		ReplicaRoutingDataSource.usePrimary(write || WebUtils.getCookie(request, COOKIE_NAME) != null);
+		return true;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+		ReplicaRoutingDataSource.usePrimary(false);
+	}
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.internal.StatisticsImpl;
+
+/**
+ * Counts the statements, rows and entity loads of the request handled by the current
+ * thread, between {@link #start(String)} and {@link #finish(int)}. Hibernate reports
+ * statements through the {@link Inspector} and rows and entity loads through the
+ * {@link Statistics}; work done outside of a request is not counted.
+ */
+final class RequestStatements {
+
+	private static final ThreadLocal<RequestStatements> current = new ThreadLocal<>();
+
+	private final String handler;
+
+	private final Map<String, Integer> statements = new HashMap<>();
+
+	private int statementCount;
+
+	private long rows;
+
+	private int entityLoads;
+
+	private RequestStatements(String handler) {
+		this.handler = handler;
+	}
+
+	static void start(String handler) {
+		current.set(new RequestStatements(handler));
+	}
+
+	/**
+	 * Stop counting for the current thread.
+	 * @param repeatThreshold the number of times a statement has to be prepared to be
+	 * reported as repeated
+	 * @return the statistics of the request, or {@literal null} if none was started
+	 */
+	static RequestStatistics finish(int repeatThreshold) {
+		RequestStatements request = current.get();
+		if (request == null) {
+			return null;
+		}
+		current.remove();
+		Map<String, Integer> repeated = request.statements.entrySet()
+			.stream()
+			.filter((statement) -> statement.getValue() >= repeatThreshold)
+			.collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, Map.Entry::getValue));
+		return new RequestStatistics(request.handler, request.statementCount, request.rows, request.entityLoads,
+				repeated);
+	}
+
+	/**
+	 * {@link StatementInspector} counting the statements of the current request by their
+	 * SQL, which Hibernate renders with parameter markers so repeated lookups share it.
+	 */
+	static class Inspector implements StatementInspector {
+
+		@Override
+		public String inspect(String sql) {
+			RequestStatements request = current.get();
+			if (request != null) {
+				request.statementCount++;
+				request.statements.merge(sql, 1, Integer::sum);
+			}
+			return sql;
+		}
+
+	}
+
+	/**
+	 * Hibernate statistics that also attribute query rows and entity loads to the current
+	 * request.
+	 */
+	static class Statistics extends StatisticsImpl {
+
+		Statistics(SessionFactoryImplementor sessionFactory) {
+			super(sessionFactory);
+		}
+
+		@Override
+		public void queryExecuted(String query, int rows, long time) {
+			super.queryExecuted(query, rows, time);
+			RequestStatements request = current.get();
+			if (request != null) {
+				request.rows += rows;
+			}
+		}
+
+		@Override
+		public void loadEntity(String entityName) {
+			super.loadEntity(entityName);
+			entityLoaded();
+		}
+
+		@Override
+		public void fetchEntity(String entityName) {
+			super.fetchEntity(entityName);
+			entityLoaded();
+		}
+
+		private static void entityLoaded() {
+			RequestStatements request = current.get();
+			if (request != null) {
+				request.entityLoads++;
+			}
+		}
+
+	}
+
+}
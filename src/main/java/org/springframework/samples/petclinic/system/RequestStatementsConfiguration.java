@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.spi.StatisticsFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Counts the SQL statements, rows and entity loads of every request to a handler method,
+ * including view rendering, and publishes them as a {@link RequestStatistics} event once
+ * the request completes. Turned off with {@code petclinic.statements.enabled=false}.
+ * <p>
+ * Rows and entity loads come from the Hibernate statistics, which are enabled for this.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "petclinic.statements.enabled", matchIfMissing = true)
+@EnableConfigurationProperties(RequestStatementsProperties.class)
+class RequestStatementsConfiguration implements WebMvcConfigurer {
+
+	private final ApplicationEventPublisher publisher;
+
+	private final RequestStatementsProperties properties;
+
+	RequestStatementsConfiguration(ApplicationEventPublisher publisher, RequestStatementsProperties properties) {
+		this.publisher = publisher;
+		this.properties = properties;
+	}
+
+	@Bean
+	HibernatePropertiesCustomizer requestStatementsHibernatePropertiesCustomizer() {
+		return (hibernateProperties) -> {
+			hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, new RequestStatements.Inspector());
+			hibernateProperties.put(AvailableSettings.GENERATE_STATISTICS, "true");
+			hibernateProperties.put(AvailableSettings.STATS_BUILDER,
+					(StatisticsFactory) RequestStatements.Statistics::new);
+			// the statistics would otherwise log a summary of every session
+			hibernateProperties.putIfAbsent(AvailableSettings.LOG_SESSION_METRICS, "false");
+		};
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(new HandlerInterceptor() {
+
+			@Override
+			public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+				if (handler instanceof HandlerMethod method) {
+					RequestStatements.start(method.getBeanType().getSimpleName() + "#" + method.getMethod().getName());
+				}
+				return true;
+			}
+
+			@Override
+			public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+					Exception ex) {
+				RequestStatistics statistics = RequestStatements.finish(properties.repeatThreshold());
+				if (statistics != null) {
+					publisher.publishEvent(statistics);
+				}
+			}
+
+		});
+	}
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Thresholds for the per-request database work reported by {@link RequestStatistics},
+ * bound from {@code petclinic.statements.*}.
+ *
+ * @param repeatThreshold how many times a request may prepare the same statement before
+ * it is reported as an N+1 select
+ * @param maxStatements the statement budget of a request, above which it is logged
+ */
+@ConfigurationProperties("petclinic.statements")
+record RequestStatementsProperties(@DefaultValue("3") int repeatThreshold, @DefaultValue("20") int maxStatements) {
+
+}
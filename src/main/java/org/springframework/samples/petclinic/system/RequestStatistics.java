@@ -0,0 +1,36 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import java.util.Map;
+
+/**
+ * Database work done while handling one HTTP request, published as an application event
+ * when the request completes.
+ *
+ * @param handler the handler method, as {@code SimpleClassName#method}
+ * @param statements the number of SQL statements prepared
+ * @param rows the number of rows returned by queries
+ * @param entityLoads the number of entities loaded or fetched
+ * @param repeatedStatements the statements prepared at least
+ * {@code petclinic.statements.repeat-threshold} times, with their count; usually the sign
+ * of an N+1 select
+ */
+public record RequestStatistics(String handler, int statements, long rows, int entityLoads,
+		Map<String, Integer> repeatedStatements) {
+
+}
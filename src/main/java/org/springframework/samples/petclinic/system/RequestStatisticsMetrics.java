@@ -0,0 +1,88 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Records {@link RequestStatistics} as distributions tagged with the handler, and logs
+ * requests that repeat a statement (a likely N+1 select) or exceed the statement budget.
+ * Percentile histograms can be enabled with
+ * {@code management.metrics.distribution.percentiles-histogram.petclinic.requests=true}.
+ */
+@Component
+@ConditionalOnProperty(name = "petclinic.statements.enabled", matchIfMissing = true)
+class RequestStatisticsMetrics {
+
+	static final String STATEMENTS_METRIC = "petclinic.requests.statements";
+
+	static final String ROWS_METRIC = "petclinic.requests.rows";
+
+	static final String ENTITY_LOADS_METRIC = "petclinic.requests.entity.loads";
+
+	static final String REPEATED_METRIC = "petclinic.requests.repeated.statements";
+
+	private static final Log logger = LogFactory.getLog(RequestStatisticsMetrics.class);
+
+	private final MeterRegistry registry;
+
+	private final RequestStatementsProperties properties;
+
+	RequestStatisticsMetrics(MeterRegistry registry, RequestStatementsProperties properties) {
+		this.registry = registry;
+		this.properties = properties;
+	}
+
+	@EventListener
+	void record(RequestStatistics statistics) {
+		summary(STATEMENTS_METRIC, "SQL statements per request", statistics).record(statistics.statements());
+		summary(ROWS_METRIC, "Rows returned by queries per request", statistics).record(statistics.rows());
+		summary(ENTITY_LOADS_METRIC, "Entities loaded per request", statistics).record(statistics.entityLoads());
+		if (!statistics.repeatedStatements().isEmpty()) {
+			Counter.builder(REPEATED_METRIC)
+				.description("Requests preparing the same statement repeatedly")
+				.tag("handler", statistics.handler())
+				.register(this.registry)
+				.increment();
+			if (logger.isWarnEnabled()) {
+				statistics.repeatedStatements()
+					.forEach((sql, count) -> logger.warn("Possible N+1 select in " + statistics.handler()
+							+ ", statement prepared " + count + " times: " + sql));
+			}
+		}
+		if (statistics.statements() > this.properties.maxStatements() && logger.isWarnEnabled()) {
+			logger.warn(statistics.handler() + " prepared " + statistics.statements()
+					+ " statements, more than the budget of " + this.properties.maxStatements());
+		}
+	}
+
+	private DistributionSummary summary(String name, String description, RequestStatistics statistics) {
+		return DistributionSummary.builder(name)
+			.description(description)
+			.tag("handler", statistics.handler())
+			.register(this.registry);
+	}
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.SmartLifecycle;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Reports virtual threads pinned to their carrier thread, using the
+ * {@code jdk.VirtualThreadPinned} JFR event of Java 21. Each event is recorded in the
+ * {@value #PINNED_METRIC} timer, tagged with the layer that caused it (JDBC driver,
+ * connection pool, Hibernate or application), and the first occurrence of each pinning
+ * frame is logged with its stack.
+ */
+class VirtualThreadPinningMonitor implements SmartLifecycle {
+
+	static final String PINNED_METRIC = "petclinic.threads.virtual.pinned";
+
+	private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+	private static final List<Layer> LAYERS = List.of(
+			new Layer("jdbc-driver", "org.h2.", "com.mysql.", "org.postgresql.", "org.hsqldb."),
+			new Layer("connection-pool", "com.zaxxer.hikari."), new Layer("hibernate", "org.hibernate."),
+			new Layer("application", "org.springframework.samples."));
+
+	private static final Log logger = LogFactory.getLog(VirtualThreadPinningMonitor.class);
+
+	private final MeterRegistry registry;
+
+	private final Duration threshold;
+
+	private final Set<String> reported = ConcurrentHashMap.newKeySet();
+
+	private volatile RecordingStream stream;
+
+	VirtualThreadPinningMonitor(MeterRegistry registry, Duration threshold) {
+		this.registry = registry;
+		this.threshold = threshold;
+	}
+
+	@Override
+	public void start() {
+		RecordingStream stream = new RecordingStream();
+		stream.enable(PINNED_EVENT).withThreshold(this.threshold).withStackTrace();
+		stream.onEvent(PINNED_EVENT, this::pinned);
+		stream.startAsync();
+		this.stream = stream;
+	}
+
+	@Override
+	public void stop() {
+		RecordingStream stream = this.stream;
+		if (stream != null) {
+			stream.close();
+			this.stream = null;
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.stream != null;
+	}
+
+	private void pinned(RecordedEvent event) {
+		List<String> frames = (event.getStackTrace() != null)
+				? event.getStackTrace().getFrames().stream().map(VirtualThreadPinningMonitor::describe).toList()
+				: List.of();
+		String layer = layer(frames);
+		Timer.builder(PINNED_METRIC)
+			.description("Virtual threads pinned to their carrier thread while blocking")
+			.tag("layer", layer)
+			.register(this.registry)
+			.record(event.getDuration());
+		String top = frames.isEmpty() ? layer : frames.get(0);
+		if (this.reported.add(top) && logger.isWarnEnabled()) {
+			logger.warn("Virtual thread pinned for " + event.getDuration().toMillis() + "ms in " + layer
+					+ " code:\n\tat " + String.join("\n\tat ", frames));
+		}
+	}
+
+	/**
+	 * Return the layer responsible for a pinning, that is the layer of the innermost
+	 * frame that belongs to one.
+	 * @param frames the stack frames, innermost first, as {@code class.method}
+	 * @return the layer name, {@literal "other"} if no frame matched
+	 */
+	static String layer(List<String> frames) {
+		for (String frame : frames) {
+			for (Layer layer : LAYERS) {
+				if (layer.matches(frame)) {
+					return layer.name();
+				}
+			}
+		}
+		return "other";
+	}
+
+	private static String describe(RecordedFrame frame) {
+		return frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+	}
+
+	private record Layer(String name, String... packages) {
+
+		boolean matches(String frame) {
+			for (String candidate : this.packages) {
+				if (frame.startsWith(candidate)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+	}
+
+}
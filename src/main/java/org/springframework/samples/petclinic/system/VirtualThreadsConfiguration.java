@@ -0,0 +1,102 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Configuration applied when request handling runs on virtual threads, that is with
+ * {@code spring.threads.virtual.enabled=true} on Java 21 or later (see the
+ * {@code virtual-threads} profile).
+ * <p>
+ * Virtual threads remove the Tomcat thread pool as the natural limit on concurrency, so
+ * the JDBC connection pool becomes the bottleneck and has to stay small with a short
+ * acquisition timeout; the application refuses to start otherwise. JFR pinning events are
+ * reported as metrics, because JDBC drivers and Hibernate still take monitors that pin
+ * the carrier thread while blocking.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnThreading(Threading.VIRTUAL)
+@EnableConfigurationProperties(VirtualThreadsProperties.class)
+class VirtualThreadsConfiguration {
+
+	@Bean
+	InitializingBean connectionPoolSizingCheck(ObjectProvider<DataSource> dataSource,
+			VirtualThreadsProperties properties) {
+		return () -> {
+			// every pool, the replica's included when reads are routed to one
+			for (DataSource candidate : dataSource) {
+				HikariDataSource hikari = unwrapHikari(candidate);
+				if (hikari != null) {
+					checkPoolSizing(hikari, properties);
+				}
+			}
+		};
+	}
+
+	@Bean
+	VirtualThreadPinningMonitor virtualThreadPinningMonitor(MeterRegistry registry,
+			VirtualThreadsProperties properties) {
+		return new VirtualThreadPinningMonitor(registry, properties.pinningThreshold());
+	}
+
+	/**
+	 * Check the pool settings against the virtual thread limits.
+	 * @param pool the connection pool configuration
+	 * @param properties the limits
+	 * @throws IllegalStateException if the pool is larger or waits longer than allowed
+	 */
+	static void checkPoolSizing(HikariConfig pool, VirtualThreadsProperties properties) {
+		if (pool.getMaximumPoolSize() > properties.maxPoolSize()) {
+			throw new IllegalStateException("spring.datasource.hikari.maximum-pool-size is " + pool.getMaximumPoolSize()
+					+ " but at most " + properties.maxPoolSize()
+					+ " is allowed with virtual threads: size the pool for the database "
+					+ "(about twice its cores), not for the number of concurrent requests");
+		}
+		if (pool.getConnectionTimeout() > properties.maxConnectionTimeout().toMillis()) {
+			throw new IllegalStateException("spring.datasource.hikari.connection-timeout is "
+					+ pool.getConnectionTimeout() + "ms but at most " + properties.maxConnectionTimeout().toMillis()
+					+ "ms is allowed with virtual threads, so that a burst fails fast instead of queueing");
+		}
+	}
+
+	private static HikariDataSource unwrapHikari(DataSource dataSource) throws SQLException {
+		if (dataSource instanceof HikariDataSource hikari) {
+			return hikari;
+		}
+		if (dataSource != null && dataSource.isWrapperFor(HikariDataSource.class)) {
+			return dataSource.unwrap(HikariDataSource.class);
+		}
+		return null;
+	}
+
+}
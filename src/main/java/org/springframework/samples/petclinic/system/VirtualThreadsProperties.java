@@ -0,0 +1,39 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Limits applied when requests run on virtual threads, bound from
+ * {@code petclinic.threads.virtual.*}.
+ *
+ * @param maxPoolSize the largest JDBC connection pool accepted; with virtual threads the
+ * pool, not the Tomcat thread pool, bounds the concurrent work sent to the database
+ * @param maxConnectionTimeout the longest accepted wait for a pooled connection, so that
+ * a burst fails fast instead of parking an unbounded number of virtual threads
+ * @param pinningThreshold the minimum duration of a carrier-thread pinning event worth
+ * reporting
+ */
+@ConfigurationProperties("petclinic.threads.virtual")
+record VirtualThreadsProperties(@DefaultValue("50") int maxPoolSize, @DefaultValue("5s") Duration maxConnectionTimeout,
+		@DefaultValue("20ms") Duration pinningThreshold) {
+
+}
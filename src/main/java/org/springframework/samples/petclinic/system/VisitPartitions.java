@@ -0,0 +1,386 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import java.sql.DatabaseMetaData;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Maintains the monthly partitions of the {@code visits} table created by the
+ * {@code schema-partitioned.sql} scripts of PostgreSQL and MySQL. The table is split into
+ * three tiers:
+ * <ul>
+ * <li>one partition per month, from {@code hotMonths} months ago to {@code monthsAhead}
+ * months ahead, holding the visits that are booked and shown on the owner page, so their
+ * indexes stay small;</li>
+ * <li>a single history partition for the visits before the first month, created once and
+ * then left alone;</li>
+ * <li>partitions ending more than {@code archiveAfterMonths} months ago, which are
+ * detached from the table and kept as plain tables: in the {@value #ARCHIVE_SCHEMA}
+ * schema on PostgreSQL, as {@code visits_archive_<partition>} on MySQL.</li>
+ * </ul>
+ * Rows that were written before their partition existed are moved into it when it is
+ * created. {@link #maintain()} is idempotent and runs on startup and every night; it does
+ * nothing when the {@code visits} table is not partitioned. It holds an advisory lock of
+ * the database while it runs, so that instances sharing the database do not create the
+ * same partition twice. On PostgreSQL the whole run is one transaction; on MySQL, where
+ * each statement changing the partitions commits, the lock is held by the session.
+ */
+public class VisitPartitions {
+
+	static final String ARCHIVE_SCHEMA = "visits_archive";
+
+	static final String LOCK_NAME = "petclinic.visits.partitions";
+
+	static final String HISTORY = "p_history";
+
+	private static final Log logger = LogFactory.getLog(VisitPartitions.class);
+
+	private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+	private final JdbcTemplate jdbc;
+
+	private final TransactionTemplate transactions;
+
+	private final int hotMonths;
+
+	private final int monthsAhead;
+
+	private final int archiveAfterMonths;
+
+	/**
+	 * Create a new instance.
+	 * @param dataSource the data source of the {@code visits} table
+	 * @param hotMonths the number of past months with a partition of their own
+	 * @param monthsAhead the number of future months to create partitions for in advance
+	 * @param archiveAfterMonths the age in months after which partitions are archived, or
+	 * {@code 0} to keep all of them
+	 */
+	public VisitPartitions(DataSource dataSource, int hotMonths, int monthsAhead, int archiveAfterMonths) {
+		if (archiveAfterMonths != 0 && archiveAfterMonths <= hotMonths) {
+			throw new IllegalArgumentException("Partitions can only be archived after the " + hotMonths
+					+ " hot months, not after " + archiveAfterMonths);
+		}
+		this.jdbc = new JdbcTemplate(dataSource);
+		this.transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		this.hotMonths = hotMonths;
+		this.monthsAhead = monthsAhead;
+		this.archiveAfterMonths = archiveAfterMonths;
+	}
+
+	/**
+	 * Create the missing partitions and archive the expired ones as of today.
+	 */
+	@Scheduled(cron = "${petclinic.visits.partitions.cron:0 0 3 * * *}")
+	public void maintain() {
+		maintain(LocalDate.now());
+	}
+
+	/**
+	 * Create the missing partitions and archive the expired ones as of the given day.
+	 * @param today the current day
+	 */
+	public void maintain(LocalDate today) {
+		Dialect dialect = dialect();
+		if (dialect == null) {
+			logger.warn("The visits table is not partitioned, see schema-partitioned.sql");
+			return;
+		}
+		// one connection for the whole run, which holds the lock
+		this.transactions.executeWithoutResult((status) -> {
+			dialect.lock(this.jdbc);
+			try {
+				maintain(dialect, today);
+			}
+			finally {
+				dialect.unlock(this.jdbc);
+			}
+		});
+	}
+
+	private void maintain(Dialect dialect, LocalDate today) {
+		List<Partition> existing = dialect.partitions(this.jdbc);
+		if (existing.isEmpty()) {
+			logger.warn("The visits table is not partitioned, see schema-partitioned.sql");
+			return;
+		}
+		Partition catchAll = existing.stream().filter((partition) -> partition.to() == null).findFirst().orElse(null);
+		for (Partition partition : missing(existing, today)) {
+			dialect.create(this.jdbc, partition, catchAll);
+			logger.info("Created visits partition " + partition);
+		}
+		for (Partition partition : expired(existing, today)) {
+			dialect.archive(this.jdbc, partition);
+			logger.info("Archived visits partition " + partition);
+		}
+	}
+
+	/**
+	 * Return the partitions to create as of the given day: the history partition if there
+	 * are no range partitions yet, then every month up to {@code monthsAhead} months
+	 * ahead that follows the newest partition.
+	 */
+	List<Partition> missing(List<Partition> existing, LocalDate today) {
+		LocalDate month = today.withDayOfMonth(1);
+		LocalDate coveredUntil = existing.stream()
+			.map(Partition::to)
+			.filter((to) -> to != null)
+			.max(LocalDate::compareTo)
+			.orElse(null);
+		List<Partition> missing = new ArrayList<>();
+		if (coveredUntil == null) {
+			coveredUntil = month.minusMonths(this.hotMonths);
+			missing.add(new Partition(HISTORY, null, coveredUntil));
+		}
+		LocalDate last = month.plusMonths(this.monthsAhead);
+		for (LocalDate from = coveredUntil; !from.isAfter(last); from = from.plusMonths(1)) {
+			missing.add(new Partition(MONTH.format(from), from, from.plusMonths(1)));
+		}
+		return missing;
+	}
+
+	/**
+	 * Return the partitions to archive as of the given day, those ending more than
+	 * {@code archiveAfterMonths} months ago.
+	 */
+	List<Partition> expired(List<Partition> existing, LocalDate today) {
+		if (this.archiveAfterMonths == 0) {
+			return List.of();
+		}
+		LocalDate cutoff = today.withDayOfMonth(1).minusMonths(this.archiveAfterMonths);
+		return existing.stream()
+			.filter((partition) -> partition.to() != null && !partition.to().isAfter(cutoff))
+			.toList();
+	}
+
+	private Dialect dialect() {
+		try {
+			String productName = JdbcUtils.extractDatabaseMetaData(this.jdbc.getDataSource(),
+					DatabaseMetaData::getDatabaseProductName);
+			for (Dialect dialect : Dialect.values()) {
+				if (dialect.productName.equals(productName)) {
+					return dialect;
+				}
+			}
+			return null;
+		}
+		catch (MetaDataAccessException ex) {
+			throw new IllegalStateException("Cannot determine the database of the visits table", ex);
+		}
+	}
+
+	/**
+	 * A partition of the {@code visits} table, holding the visits from {@code from}
+	 * inclusive to {@code to} exclusive.
+	 *
+	 * @param name the name of the partition, without the {@code visits_} table prefix
+	 * used on PostgreSQL
+	 * @param from the first day, {@literal null} for the history partition
+	 * @param to the day after the last day, {@literal null} for the partition catching
+	 * all later visits
+	 */
+	record Partition(String name, LocalDate from, LocalDate to) {
+
+		@Override
+		public String toString() {
+			return this.name + " [" + ((this.from != null) ? this.from : "") + ", " + ((this.to != null) ? this.to : "")
+					+ ")";
+		}
+
+	}
+
+	/**
+	 * How partitions are listed, created and archived on each database.
+	 */
+	enum Dialect {
+
+		POSTGRES("PostgreSQL") {
+
+			private static final Pattern BOUNDS = Pattern.compile("FROM \\((.+)\\) TO \\((.+)\\)");
+
+			@Override
+			List<Partition> partitions(JdbcTemplate jdbc) {
+				return jdbc.query(
+						"SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) FROM pg_inherits i "
+								+ "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = to_regclass('visits')",
+						(result, row) -> {
+							String name = result.getString(1).substring("visits_".length());
+							Matcher bounds = BOUNDS.matcher(result.getString(2));
+							if (!bounds.find()) {
+								// the default partition
+								return new Partition(name, null, null);
+							}
+							return new Partition(name, date(bounds.group(1)), date(bounds.group(2)));
+						});
+			}
+
+			@Override
+			void lock(JdbcTemplate jdbc) {
+				// released when the transaction ends
+				jdbc.queryForList("SELECT pg_advisory_xact_lock(hashtext(?))", LOCK_NAME);
+			}
+
+			@Override
+			void unlock(JdbcTemplate jdbc) {
+			}
+
+			@Override
+			void create(JdbcTemplate jdbc, Partition partition, Partition catchAll) {
+				String table = "visits_" + partition.name();
+				jdbc.execute("CREATE TABLE " + table + " (LIKE visits)");
+				if (catchAll != null) {
+					// attaching checks that the default partition holds no rows of the
+					// new range, so they are moved first
+					String range = "visit_date < ?" + ((partition.from() != null) ? " AND visit_date >= ?" : "");
+					Object[] bounds = (partition.from() != null) ? new Object[] { partition.to(), partition.from() }
+							: new Object[] { partition.to() };
+					jdbc.update("INSERT INTO " + table + " SELECT * FROM visits_" + catchAll.name() + " WHERE " + range,
+							bounds);
+					jdbc.update("DELETE FROM visits_" + catchAll.name() + " WHERE " + range, bounds);
+				}
+				jdbc.execute("ALTER TABLE visits ATTACH PARTITION " + table + " FOR VALUES FROM ("
+						+ ((partition.from() != null) ? "'" + partition.from() + "'" : "MINVALUE") + ") TO ('"
+						+ partition.to() + "')");
+			}
+
+			@Override
+			void archive(JdbcTemplate jdbc, Partition partition) {
+				String table = "visits_" + partition.name();
+				jdbc.execute("ALTER TABLE visits DETACH PARTITION " + table);
+				jdbc.execute("CREATE SCHEMA IF NOT EXISTS " + ARCHIVE_SCHEMA);
+				jdbc.execute("ALTER TABLE " + table + " SET SCHEMA " + ARCHIVE_SCHEMA);
+			}
+
+		},
+
+		MYSQL("MySQL") {
+
+			@Override
+			List<Partition> partitions(JdbcTemplate jdbc) {
+				List<Partition> partitions = new ArrayList<>();
+				jdbc.query("SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS "
+						+ "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'visits' AND PARTITION_NAME IS NOT NULL "
+						+ "ORDER BY PARTITION_ORDINAL_POSITION", (result) -> {
+							// ranges are consecutive, each one starts where the previous
+							// ends
+							LocalDate from = partitions.isEmpty() ? null : partitions.get(partitions.size() - 1).to();
+							partitions.add(new Partition(result.getString(1), from, date(result.getString(2))));
+						});
+				return partitions;
+			}
+
+			@Override
+			void lock(JdbcTemplate jdbc) {
+				// waits as long as it takes, like on PostgreSQL
+				Integer locked = jdbc.queryForObject("SELECT GET_LOCK(?, -1)", Integer.class, LOCK_NAME);
+				if (locked == null || locked != 1) {
+					throw new IllegalStateException("Could not lock the visits partitions");
+				}
+			}
+
+			@Override
+			void unlock(JdbcTemplate jdbc) {
+				jdbc.queryForObject("SELECT RELEASE_LOCK(?)", Integer.class, LOCK_NAME);
+			}
+
+			@Override
+			void create(JdbcTemplate jdbc, Partition partition, Partition catchAll) {
+				String definition = "PARTITION " + partition.name() + " VALUES LESS THAN ('" + partition.to() + "')";
+				if (catchAll == null) {
+					jdbc.execute("ALTER TABLE visits ADD PARTITION (" + definition + ")");
+				}
+				else {
+					// splitting the catch-all partition only copies its rows, usually
+					// none
+					jdbc.execute("ALTER TABLE visits REORGANIZE PARTITION " + catchAll.name() + " INTO (" + definition
+							+ ", PARTITION " + catchAll.name() + " VALUES LESS THAN (MAXVALUE))");
+				}
+			}
+
+			@Override
+			void archive(JdbcTemplate jdbc, Partition partition) {
+				String table = "visits_archive_" + partition.name();
+				jdbc.execute("CREATE TABLE " + table + " LIKE visits");
+				jdbc.execute("ALTER TABLE " + table + " REMOVE PARTITIONING");
+				jdbc.execute("ALTER TABLE visits EXCHANGE PARTITION " + partition.name() + " WITH TABLE " + table);
+				jdbc.execute("ALTER TABLE visits DROP PARTITION " + partition.name());
+			}
+
+		};
+
+		private final String productName;
+
+		Dialect(String productName) {
+			this.productName = productName;
+		}
+
+		/**
+		 * Return the partitions of the {@code visits} table, empty if it is not
+		 * partitioned.
+		 */
+		abstract List<Partition> partitions(JdbcTemplate jdbc);
+
+		/**
+		 * Take the advisory lock that serializes the maintenance across instances,
+		 * waiting for it if need be. Called within the transaction of the run.
+		 */
+		abstract void lock(JdbcTemplate jdbc);
+
+		/**
+		 * Release the lock taken by {@link #lock(JdbcTemplate)}, if it outlives the
+		 * transaction.
+		 */
+		abstract void unlock(JdbcTemplate jdbc);
+
+		/**
+		 * Create the given partition, moving its rows out of the catch-all partition.
+		 */
+		abstract void create(JdbcTemplate jdbc, Partition partition, Partition catchAll);
+
+		/**
+		 * Detach the given partition from the {@code visits} table into the archive.
+		 */
+		abstract void archive(JdbcTemplate jdbc, Partition partition);
+
+		/**
+		 * Parse a range bound as rendered by the catalog, {@literal null} for
+		 * {@code MINVALUE} and {@code MAXVALUE}.
+		 */
+		static LocalDate date(String bound) {
+			String value = bound.replace("'", "").trim();
+			return value.endsWith("VALUE") ? null : LocalDate.parse(value);
+		}
+
+	}
+
+}
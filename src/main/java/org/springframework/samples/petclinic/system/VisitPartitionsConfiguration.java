@@ -0,0 +1,49 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Maintains the partitions of the {@code visits} table on startup and every night (see
+ * {@code petclinic.visits.partitions.cron}) once
+ * {@code petclinic.visits.partitions.enabled} is set, as done by the {@code partitioned}
+ * profile.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty("petclinic.visits.partitions.enabled")
+@EnableConfigurationProperties(VisitPartitionsProperties.class)
+class VisitPartitionsConfiguration {
+
+	@Bean
+	VisitPartitions visitPartitions(DataSource dataSource, VisitPartitionsProperties properties) {
+		return new VisitPartitions(dataSource, properties.hotMonths(), properties.monthsAhead(),
+				properties.archiveAfterMonths());
+	}
+
+	@Bean
+	ApplicationRunner visitPartitionsRunner(VisitPartitions visitPartitions) {
+		return (args) -> visitPartitions.maintain();
+	}
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of the {@link VisitPartitions} maintenance, bound from
+ * {@code petclinic.visits.partitions.*}.
+ *
+ * @param hotMonths the number of past months with a partition of their own; older visits
+ * go to the history partition
+ * @param monthsAhead the number of future months to create partitions for in advance
+ * @param archiveAfterMonths the age in months after which partitions are detached into
+ * the archive, {@code 0} to keep all of them attached
+ */
+@ConfigurationProperties("petclinic.visits.partitions")
+record VisitPartitionsProperties(@DefaultValue("24") int hotMonths, @DefaultValue("3") int monthsAhead,
+		@DefaultValue("0") int archiveAfterMonths) {
+
+}
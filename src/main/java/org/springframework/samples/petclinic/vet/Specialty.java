@@ -18,6 +18,7 @@ package org.springframework.samples.petclinic.vet;
 import org.springframework.samples.petclinic.model.NamedEntity;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.Table;
 
 /**
@@ -27,6 +28,7 @@ import jakarta.persistence.Table;
  */
 @Entity
 @Table(name = "specialties")
+@EntityListeners(VetDirectoryListener.class)
 public class Specialty extends NamedEntity {
 
 }
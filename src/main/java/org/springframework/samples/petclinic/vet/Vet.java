@@ -15,17 +15,15 @@
  */
 package org.springframework.samples.petclinic.vet;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
-import org.springframework.beans.support.MutableSortDefinition;
-import org.springframework.beans.support.PropertyComparator;
 import org.springframework.samples.petclinic.model.Person;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
@@ -43,13 +41,19 @@ import jakarta.xml.bind.annotation.XmlElement;
  */
 @Entity
 @Table(name = "vets")
+@EntityListeners(VetDirectoryListener.class)
 public class Vet extends Person {
 
+	private static final Comparator<Specialty> BY_NAME = Comparator.comparing(Specialty::getName,
+			String.CASE_INSENSITIVE_ORDER);
+
 	@ManyToMany(fetch = FetchType.EAGER)
 	@JoinTable(name = "vet_specialties", joinColumns = @JoinColumn(name = "vet_id"),
 			inverseJoinColumns = @JoinColumn(name = "specialty_id"))
 	private Set<Specialty> specialties;
 
+	private transient List<Specialty> sortedSpecialties;
+
 	protected Set<Specialty> getSpecialtiesInternal() {
 		if (this.specialties == null) {
 			this.specialties = new HashSet<>();
@@ -59,13 +63,17 @@ public class Vet extends Person {
 
 	protected void setSpecialtiesInternal(Set<Specialty> specialties) {
 		this.specialties = specialties;
+		this.sortedSpecialties = null;
 	}
 
 	@XmlElement
 	public List<Specialty> getSpecialties() {
-		List<Specialty> sortedSpecs = new ArrayList<>(getSpecialtiesInternal());
-		PropertyComparator.sort(sortedSpecs, new MutableSortDefinition("name", true, true));
-		return Collections.unmodifiableList(sortedSpecs);
+		List<Specialty> sortedSpecs = this.sortedSpecialties;
+		if (sortedSpecs == null) {
+			sortedSpecs = getSpecialtiesInternal().stream().sorted(BY_NAME).toList();
+			this.sortedSpecialties = sortedSpecs;
+		}
+		return sortedSpecs;
 	}
 
 	public int getNrOfSpecialties() {
@@ -74,6 +82,7 @@ public class Vet extends Person {
 
 	public void addSpecialty(Specialty specialty) {
 		getSpecialtiesInternal().add(specialty);
+		this.sortedSpecialties = null;
 	}
 
 }
@@ -18,13 +18,16 @@ package org.springframework.samples.petclinic.vet;
 import java.util.List;
 
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.samples.petclinic.vet.VetRepresentations.Representation;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
-import org.springframework.web.bind.annotation.ResponseBody;
 
 /**
  * @author Juergen Hoeller
@@ -35,19 +38,18 @@ import org.springframework.web.bind.annotation.ResponseBody;
 @Controller
 class VetController {
 
-	private final VetRepository vetRepository;
+	private final VetDirectory vetDirectory;
 
-	public VetController(VetRepository clinicService) {
-		this.vetRepository = clinicService;
+	private final VetRepresentations vetRepresentations;
+
+	public VetController(VetDirectory vetDirectory, VetRepresentations vetRepresentations) {
+		this.vetDirectory = vetDirectory;
+		this.vetRepresentations = vetRepresentations;
 	}
 
 	@GetMapping("/vets.html")
 	public String showVetList(@RequestParam(defaultValue = "1") int page, Model model) {
-		// Here we are returning an object of type 'Vets' rather than a collection of Vet
-		// objects so it is simpler for Object-Xml mapping
-		Vets vets = new Vets();
 		Page<Vet> paginated = findPaginated(page);
-		vets.getVetList().addAll(paginated.toList());
 		return addPaginationModel(page, paginated, model);
 	}
 
@@ -62,17 +64,35 @@ class VetController {
 
 	private Page<Vet> findPaginated(int page) {
 		int pageSize = 5;
-		Pageable pageable = PageRequest.of(page - 1, pageSize);
-		return vetRepository.findAll(pageable);
+		return vetDirectory.findPage(page - 1, pageSize);
+	}
+
+	@GetMapping(value = { "/vets" }, produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_XML_VALUE })
+	public ResponseEntity<byte[]> showResourcesVetList(
+			@RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+		// The 'Vets' wrapper is serialized once per snapshot and media type; a matching
+		// If-None-Match is answered with 304 by the ETag check of ResponseEntity
+		Representation representation = this.vetRepresentations.get(negotiate(accept));
+		return ResponseEntity.ok()
+			.contentType(representation.contentType())
+			.eTag(representation.etag())
+			.varyBy(HttpHeaders.ACCEPT)
+			.body(representation.body());
 	}
 
-	@GetMapping({ "/vets" })
-	public @ResponseBody Vets showResourcesVetList() {
-		// Here we are returning an object of type 'Vets' rather than a collection of Vet
-		// objects so it is simpler for JSon/Object mapping
-		Vets vets = new Vets();
-		vets.getVetList().addAll(this.vetRepository.findAll());
-		return vets;
+	private MediaType negotiate(String accept) {
+		if (accept != null) {
+			List<MediaType> acceptable = MediaType.parseMediaTypes(accept);
+			MimeTypeUtils.sortBySpecificity(acceptable);
+			for (MediaType type : acceptable) {
+				for (MediaType supported : VetRepresentations.SUPPORTED) {
+					if (type.isCompatibleWith(supported)) {
+						return supported;
+					}
+				}
+			}
+		}
+		return MediaType.APPLICATION_JSON;
 	}
 
 }
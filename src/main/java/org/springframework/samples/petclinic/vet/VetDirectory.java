@@ -0,0 +1,87 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.util.Comparator;
+import java.util.List;
+
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+/**
+ * Immutable snapshot of all {@link Vet}s, ordered by id, with each vet's specialties
+ * already sorted. Both the vet list page and the {@code /vets} resource are served from
+ * it, so the hot path neither queries the database nor sorts. The snapshot is built from
+ * the {@link VetRepository} on first access and rebuilt after the
+ * {@link VetDirectoryListener} reports a change.
+ */
+@Component
+public class VetDirectory {
+
+	private final VetRepository vets;
+
+	private volatile Vets snapshot;
+
+	public VetDirectory(VetRepository vets) {
+		this.vets = vets;
+	}
+
+	/**
+	 * Return all {@link Vet}s wrapped for Object-Xml and JSON mapping.
+	 * @return the shared, unmodifiable {@link Vets}
+	 */
+	public Vets findAll() {
+		return snapshot();
+	}
+
+	/**
+	 * Return one page of {@link Vet}s.
+	 * @param page the zero-based page number
+	 * @param size the page size
+	 * @return the requested page, empty if past the last page
+	 */
+	public Page<Vet> findPage(int page, int size) {
+		List<Vet> all = snapshot().getVetList();
+		int from = (int) Math.min((long) page * size, all.size());
+		int to = Math.min(from + size, all.size());
+		return new PageImpl<>(all.subList(from, to), PageRequest.of(page, size), all.size());
+	}
+
+	/**
+	 * Drop the snapshot and the vet cache region, so that vets are read again on next
+	 * access.
+	 */
+	@CacheEvict(cacheNames = "vets", allEntries = true)
+	public void invalidate() {
+		this.snapshot = null;
+	}
+
+	private Vets snapshot() {
+		Vets snapshot = this.snapshot;
+		if (snapshot == null) {
+			List<Vet> sorted = this.vets.findAll().stream().sorted(Comparator.comparing(Vet::getId)).toList();
+			// sort the specialties now rather than on first render
+			sorted.forEach(Vet::getSpecialties);
+			snapshot = new Vets(sorted);
+			this.snapshot = snapshot;
+		}
+		return snapshot;
+	}
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * JPA entity listener invalidating the {@link VetDirectory} whenever a {@link Vet} or a
+ * {@link Specialty} is written. The directory is invalidated once the surrounding
+ * transaction has completed, so that it cannot be rebuilt from the old rows in the
+ * meantime.
+ */
+class VetDirectoryListener {
+
+	private final ObjectProvider<VetDirectory> directory;
+
+	VetDirectoryListener(ObjectProvider<VetDirectory> directory) {
+		this.directory = directory;
+	}
+
+	@PostPersist
+	@PostUpdate
+	@PostRemove
+	void vetChanged(Object entity) {
+		VetDirectory directory = this.directory.getIfAvailable();
+		if (directory == null) {
+			return;
+		}
+		directory.invalidate();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					directory.invalidate();
+				}
+			});
+		}
+	}
+
+}
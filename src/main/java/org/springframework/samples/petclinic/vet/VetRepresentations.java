@@ -0,0 +1,125 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Serialized representations of the {@link VetDirectory}, one per media type, each with a
+ * strong content-hash ETag. The bytes are produced once per directory snapshot through
+ * the application's {@link HttpMessageConverters}, so that polling clients are served
+ * without running Jackson or JAXB again; a new snapshot, built after vet data has
+ * changed, starts a fresh set of representations.
+ */
+@Component
+class VetRepresentations {
+
+	static final List<MediaType> SUPPORTED = List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML);
+
+	private final VetDirectory directory;
+
+	private final HttpMessageConverters converters;
+
+	private volatile Generation generation;
+
+	VetRepresentations(VetDirectory directory, HttpMessageConverters converters) {
+		this.directory = directory;
+		this.converters = converters;
+	}
+
+	/**
+	 * Return the current representation of all vets for the given media type.
+	 * @param mediaType one of the {@link #SUPPORTED} media types
+	 * @return the serialized representation
+	 */
+	Representation get(MediaType mediaType) {
+		Vets vets = this.directory.findAll();
+		Generation generation = this.generation;
+		if (generation == null || generation.source() != vets) {
+			generation = new Generation(vets, new ConcurrentHashMap<>());
+			this.generation = generation;
+		}
+		return generation.representations().computeIfAbsent(mediaType, (type) -> serialize(vets, type));
+	}
+
+	@SuppressWarnings("unchecked")
+	private Representation serialize(Vets vets, MediaType mediaType) {
+		for (HttpMessageConverter<?> converter : this.converters) {
+			if (converter.canWrite(Vets.class, mediaType)) {
+				BufferedOutputMessage message = new BufferedOutputMessage();
+				try {
+					((HttpMessageConverter<Object>) converter).write(vets, mediaType, message);
+				}
+				catch (IOException ex) {
+					throw new HttpMessageNotWritableException("Could not serialize vets as " + mediaType, ex);
+				}
+				byte[] body = message.body.toByteArray();
+				MediaType contentType = message.headers.getContentType();
+				String etag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+				return new Representation((contentType != null) ? contentType : mediaType, body, etag);
+			}
+		}
+		throw new HttpMessageNotWritableException("No converter for vets as " + mediaType);
+	}
+
+	/**
+	 * A serialized representation of all vets.
+	 *
+	 * @param contentType the content type written by the converter
+	 * @param body the serialized bytes, never to be modified
+	 * @param etag the strong, quoted ETag derived from the bytes
+	 */
+	record Representation(MediaType contentType, byte[] body, String etag) {
+
+	}
+
+	private record Generation(Vets source, Map<MediaType, Representation> representations) {
+
+	}
+
+	private static class BufferedOutputMessage implements HttpOutputMessage {
+
+		private final HttpHeaders headers = new HttpHeaders();
+
+		private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+		@Override
+		public OutputStream getBody() {
+			return this.body;
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return this.headers;
+		}
+
+	}
+
+}
@@ -16,6 +16,7 @@
 package org.springframework.samples.petclinic.vet;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import jakarta.xml.bind.annotation.XmlElement;
@@ -32,6 +33,13 @@ public class Vets {
 
 	private List<Vet> vets;
 
+	public Vets() {
+	}
+
+	Vets(List<Vet> vets) {
+		this.vets = Collections.unmodifiableList(vets);
+	}
+
 	@XmlElement
 	public List<Vet> getVetList() {
 		if (vets == null) {
@@ -1,3 +1,6 @@
+DROP TABLE owners_by_week IF EXISTS;
+DROP TABLE visits_by_month_and_city IF EXISTS;
+DROP TABLE visits_by_month_and_type IF EXISTS;
 DROP TABLE vet_specialties IF EXISTS;
 DROP TABLE vets IF EXISTS;
 DROP TABLE specialties IF EXISTS;
@@ -22,7 +25,8 @@ CREATE INDEX specialties_name ON specialties (name);
 
 CREATE TABLE vet_specialties (
   vet_id       INTEGER NOT NULL,
-  specialty_id INTEGER NOT NULL
+  specialty_id INTEGER NOT NULL,
+  PRIMARY KEY (vet_id, specialty_id)
 );
 ALTER TABLE vet_specialties ADD CONSTRAINT fk_vet_specialties_vets FOREIGN KEY (vet_id) REFERENCES vets (id);
 ALTER TABLE vet_specialties ADD CONSTRAINT fk_vet_specialties_specialties FOREIGN KEY (specialty_id) REFERENCES specialties (id);
@@ -39,7 +43,9 @@ CREATE TABLE owners (
   last_name  VARCHAR_IGNORECASE(30),
   address    VARCHAR(255),
   city       VARCHAR(80),
-  telephone  VARCHAR(20)
+  telephone  VARCHAR(20),
+  version    INTEGER DEFAULT 0 NOT NULL,
+  registered_on DATE
 );
 CREATE INDEX owners_last_name ON owners (last_name);
 
@@ -50,9 +56,10 @@ CREATE TABLE pets (
   type_id    INTEGER NOT NULL,
   owner_id   INTEGER
 );
+CREATE INDEX pets_name ON pets (name);
+CREATE INDEX pets_owner_id ON pets (owner_id);
 ALTER TABLE pets ADD CONSTRAINT fk_pets_owners FOREIGN KEY (owner_id) REFERENCES owners (id);
 ALTER TABLE pets ADD CONSTRAINT fk_pets_types FOREIGN KEY (type_id) REFERENCES types (id);
-CREATE INDEX pets_name ON pets (name);
 
 CREATE TABLE visits (
   id          INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -60,5 +67,25 @@ CREATE TABLE visits (
   visit_date  DATE,
   description VARCHAR(255)
 );
+CREATE INDEX visits_pet_id_visit_date ON visits (pet_id, visit_date);
 ALTER TABLE visits ADD CONSTRAINT fk_visits_pets FOREIGN KEY (pet_id) REFERENCES pets (id);
-CREATE INDEX visits_pet_id ON visits (pet_id);
+
+-- Summaries maintained with every write by ClinicAnalytics
+CREATE TABLE visits_by_month_and_type (
+  visit_month DATE    NOT NULL,
+  type_id     INTEGER NOT NULL,
+  visits      INTEGER NOT NULL,
+  PRIMARY KEY (visit_month, type_id)
+);
+
+CREATE TABLE visits_by_month_and_city (
+  visit_month DATE        NOT NULL,
+  city        VARCHAR(80) NOT NULL,
+  visits      INTEGER     NOT NULL,
+  PRIMARY KEY (visit_month, city)
+);
+
+CREATE TABLE owners_by_week (
+  registration_week DATE    NOT NULL PRIMARY KEY,
+  owners            INTEGER NOT NULL
+);
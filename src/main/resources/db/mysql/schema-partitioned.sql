@@ -0,0 +1,85 @@
+CREATE TABLE IF NOT EXISTS vets (
+  id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  first_name VARCHAR(30),
+  last_name VARCHAR(30),
+  INDEX(last_name)
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS specialties (
+  id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  name VARCHAR(80),
+  INDEX(name)
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS vet_specialties (
+  vet_id INT(4) UNSIGNED NOT NULL,
+  specialty_id INT(4) UNSIGNED NOT NULL,
+  FOREIGN KEY (vet_id) REFERENCES vets(id),
+  FOREIGN KEY (specialty_id) REFERENCES specialties(id),
+  PRIMARY KEY (vet_id,specialty_id)
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS types (
+  id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  name VARCHAR(80),
+  INDEX(name)
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS owners (
+  id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  first_name VARCHAR(30),
+  last_name VARCHAR(30) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci,
+  address VARCHAR(255),
+  city VARCHAR(80),
+  telephone VARCHAR(20),
+  version INT(4) UNSIGNED NOT NULL DEFAULT 0,
+  registered_on DATE,
+  INDEX(last_name)
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS pets (
+  id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  name VARCHAR(30),
+  birth_date DATE,
+  type_id INT(4) UNSIGNED NOT NULL,
+  owner_id INT(4) UNSIGNED,
+  INDEX(name),
+  INDEX(owner_id),
+  FOREIGN KEY (owner_id) REFERENCES owners(id),
+  FOREIGN KEY (type_id) REFERENCES types(id)
+) engine=InnoDB;
+
+-- Partitioned by month of visit_date, the partitions are split off p_future and
+-- archived by VisitPartitions. The partition key has to be part of the primary key, and
+-- partitioned InnoDB tables cannot have foreign keys.
+CREATE TABLE IF NOT EXISTS visits (
+  id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT,
+  pet_id INT(4) UNSIGNED,
+  visit_date DATE NOT NULL,
+  description VARCHAR(255),
+  PRIMARY KEY (id, visit_date),
+  INDEX(pet_id, visit_date)
+) engine=InnoDB
+PARTITION BY RANGE COLUMNS (visit_date) (
+  PARTITION p_future VALUES LESS THAN (MAXVALUE)
+);
+
+-- Summaries maintained with every write by ClinicAnalytics
+CREATE TABLE IF NOT EXISTS visits_by_month_and_type (
+  visit_month DATE NOT NULL,
+  type_id INT(4) UNSIGNED NOT NULL,
+  visits INT NOT NULL,
+  PRIMARY KEY (visit_month, type_id)
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS visits_by_month_and_city (
+  visit_month DATE NOT NULL,
+  city VARCHAR(80) NOT NULL,
+  visits INT NOT NULL,
+  PRIMARY KEY (visit_month, city)
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS owners_by_week (
+  registration_week DATE NOT NULL PRIMARY KEY,
+  owners INT NOT NULL
+) engine=InnoDB;
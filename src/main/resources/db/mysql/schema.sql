@@ -16,9 +16,18 @@ CREATE TABLE IF NOT EXISTS vet_specialties (
   specialty_id INT(4) UNSIGNED NOT NULL,
   FOREIGN KEY (vet_id) REFERENCES vets(id),
   FOREIGN KEY (specialty_id) REFERENCES specialties(id),
-  UNIQUE (vet_id,specialty_id)
+  PRIMARY KEY (vet_id,specialty_id)
 ) engine=InnoDB;
 
+-- keys and indexes added since the first release, for databases created before; each
+-- ALTER is only prepared when the catalog lacks what it adds, like the columns below
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.table_constraints WHERE table_schema = DATABASE()
+    AND table_name = 'vet_specialties' AND constraint_type = 'PRIMARY KEY') = 0,
+  'ALTER TABLE vet_specialties ADD PRIMARY KEY (vet_id, specialty_id)', 'DO 0');
+PREPARE add_key FROM @ddl;
+EXECUTE add_key;
+DEALLOCATE PREPARE add_key;
+
 CREATE TABLE IF NOT EXISTS types (
   id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
   name VARCHAR(80),
@@ -28,13 +37,37 @@ CREATE TABLE IF NOT EXISTS types (
 CREATE TABLE IF NOT EXISTS owners (
   id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
   first_name VARCHAR(30),
-  last_name VARCHAR(30),
+  last_name VARCHAR(30) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci,
   address VARCHAR(255),
   city VARCHAR(80),
   telephone VARCHAR(20),
+  version INT(4) UNSIGNED NOT NULL DEFAULT 0,
+  registered_on DATE,
   INDEX(last_name)
 ) engine=InnoDB;
 
+-- columns added since the first release, for databases created before; MySQL has no
+-- ADD COLUMN IF NOT EXISTS, so the ALTER is only prepared when the column is missing
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE()
+    AND table_name = 'owners' AND column_name = 'version') = 0,
+  'ALTER TABLE owners ADD COLUMN version INT(4) UNSIGNED NOT NULL DEFAULT 0', 'DO 0');
+PREPARE add_column FROM @ddl;
+EXECUTE add_column;
+DEALLOCATE PREPARE add_column;
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE()
+    AND table_name = 'owners' AND column_name = 'registered_on') = 0,
+  'ALTER TABLE owners ADD COLUMN registered_on DATE', 'DO 0');
+PREPARE add_column FROM @ddl;
+EXECUTE add_column;
+DEALLOCATE PREPARE add_column;
+-- case-insensitive prefix searches, like VARCHAR_IGNORECASE on H2 and HSQLDB
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE()
+    AND table_name = 'owners' AND column_name = 'last_name' AND collation_name <> 'utf8mb4_unicode_ci') = 0,
+  'DO 0', 'ALTER TABLE owners MODIFY COLUMN last_name VARCHAR(30) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci');
+PREPARE modify_column FROM @ddl;
+EXECUTE modify_column;
+DEALLOCATE PREPARE modify_column;
+
 CREATE TABLE IF NOT EXISTS pets (
   id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
   name VARCHAR(30),
@@ -42,14 +75,55 @@ CREATE TABLE IF NOT EXISTS pets (
   type_id INT(4) UNSIGNED NOT NULL,
   owner_id INT(4) UNSIGNED,
   INDEX(name),
+  INDEX(owner_id),
   FOREIGN KEY (owner_id) REFERENCES owners(id),
   FOREIGN KEY (type_id) REFERENCES types(id)
 ) engine=InnoDB;
 
+-- an index leading with owner_id, usually the one backing the foreign key
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE()
+    AND table_name = 'pets' AND column_name = 'owner_id' AND seq_in_index = 1) = 0,
+  'ALTER TABLE pets ADD INDEX owner_id (owner_id)', 'DO 0');
+PREPARE add_index FROM @ddl;
+EXECUTE add_index;
+DEALLOCATE PREPARE add_index;
+
 CREATE TABLE IF NOT EXISTS visits (
   id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
   pet_id INT(4) UNSIGNED,
   visit_date DATE,
   description VARCHAR(255),
+  INDEX(pet_id, visit_date),
   FOREIGN KEY (pet_id) REFERENCES pets(id)
 ) engine=InnoDB;
+
+-- the foreign key alone only indexes pet_id; the index it created is dropped in favour
+-- of the new one
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE()
+    AND table_name = 'visits' AND column_name = 'visit_date' AND seq_in_index = 2
+    AND index_name IN (SELECT index_name FROM information_schema.statistics WHERE table_schema = DATABASE()
+      AND table_name = 'visits' AND column_name = 'pet_id' AND seq_in_index = 1)) = 0,
+  'ALTER TABLE visits ADD INDEX pet_id_visit_date (pet_id, visit_date)', 'DO 0');
+PREPARE add_index FROM @ddl;
+EXECUTE add_index;
+DEALLOCATE PREPARE add_index;
+
+-- Summaries maintained with every write by ClinicAnalytics
+CREATE TABLE IF NOT EXISTS visits_by_month_and_type (
+  visit_month DATE NOT NULL,
+  type_id INT(4) UNSIGNED NOT NULL,
+  visits INT NOT NULL,
+  PRIMARY KEY (visit_month, type_id)
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS visits_by_month_and_city (
+  visit_month DATE NOT NULL,
+  city VARCHAR(80) NOT NULL,
+  visits INT NOT NULL,
+  PRIMARY KEY (visit_month, city)
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS owners_by_week (
+  registration_week DATE NOT NULL PRIMARY KEY,
+  owners INT NOT NULL
+) engine=InnoDB;
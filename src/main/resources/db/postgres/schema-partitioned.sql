@@ -0,0 +1,83 @@
+CREATE TABLE IF NOT EXISTS vets (
+  id         INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  first_name TEXT,
+  last_name  TEXT
+);
+CREATE INDEX IF NOT EXISTS vets_last_name ON vets (last_name);
+
+CREATE TABLE IF NOT EXISTS specialties (
+  id   INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  name TEXT
+);
+CREATE INDEX IF NOT EXISTS specialties_name ON specialties (name);
+
+CREATE TABLE IF NOT EXISTS vet_specialties (
+  vet_id       INT NOT NULL REFERENCES vets (id),
+  specialty_id INT NOT NULL REFERENCES specialties (id),
+  PRIMARY KEY (vet_id, specialty_id)
+);
+
+CREATE TABLE IF NOT EXISTS types (
+  id   INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  name TEXT
+);
+CREATE INDEX IF NOT EXISTS types_name ON types (name);
+
+CREATE TABLE IF NOT EXISTS owners (
+  id         INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  first_name TEXT,
+  last_name  TEXT,
+  address    TEXT,
+  city       TEXT,
+  telephone  TEXT,
+  version    INT NOT NULL DEFAULT 0,
+  registered_on DATE
+);
+CREATE INDEX IF NOT EXISTS owners_last_name ON owners (last_name);
+-- LIKE 'prefix%' only uses a btree index in the "C" collation or with pattern operators
+CREATE INDEX IF NOT EXISTS owners_last_name_pattern ON owners (last_name text_pattern_ops);
+-- case-insensitive prefix lookups of the owner name autocomplete
+CREATE INDEX IF NOT EXISTS owners_lower_last_name_pattern ON owners (lower(last_name) text_pattern_ops);
+
+CREATE TABLE IF NOT EXISTS pets (
+  id         INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  name       TEXT,
+  birth_date DATE,
+  type_id    INT NOT NULL REFERENCES types (id),
+  owner_id   INT REFERENCES owners (id)
+);
+CREATE INDEX IF NOT EXISTS pets_name ON pets (name);
+CREATE INDEX IF NOT EXISTS pets_owner_id ON pets (owner_id);
+
+-- Partitioned by month of visit_date, the partitions are created and archived by
+-- VisitPartitions. Until then, and for dates beyond the newest partition, rows land in
+-- the default partition. The partition key has to be part of the primary key.
+CREATE TABLE IF NOT EXISTS visits (
+  id          INT GENERATED BY DEFAULT AS IDENTITY,
+  pet_id      INT REFERENCES pets (id),
+  visit_date  DATE NOT NULL,
+  description TEXT,
+  PRIMARY KEY (id, visit_date)
+) PARTITION BY RANGE (visit_date);
+CREATE INDEX IF NOT EXISTS visits_pet_id_visit_date ON visits (pet_id, visit_date);
+CREATE TABLE IF NOT EXISTS visits_default PARTITION OF visits DEFAULT;
+
+-- Summaries maintained with every write by ClinicAnalytics
+CREATE TABLE IF NOT EXISTS visits_by_month_and_type (
+  visit_month DATE NOT NULL,
+  type_id     INT  NOT NULL,
+  visits      INT  NOT NULL,
+  PRIMARY KEY (visit_month, type_id)
+);
+
+CREATE TABLE IF NOT EXISTS visits_by_month_and_city (
+  visit_month DATE NOT NULL,
+  city        TEXT NOT NULL,
+  visits      INT  NOT NULL,
+  PRIMARY KEY (visit_month, city)
+);
+
+CREATE TABLE IF NOT EXISTS owners_by_week (
+  registration_week DATE NOT NULL PRIMARY KEY,
+  owners            INT  NOT NULL
+);
@@ -3,25 +3,34 @@ CREATE TABLE IF NOT EXISTS vets (
   first_name TEXT,
   last_name  TEXT
 );
-CREATE INDEX ON vets (last_name);
+CREATE INDEX IF NOT EXISTS vets_last_name ON vets (last_name);
 
 CREATE TABLE IF NOT EXISTS specialties (
   id   INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
   name TEXT
 );
-CREATE INDEX ON specialties (name);
+CREATE INDEX IF NOT EXISTS specialties_name ON specialties (name);
 
 CREATE TABLE IF NOT EXISTS vet_specialties (
   vet_id       INT NOT NULL REFERENCES vets (id),
   specialty_id INT NOT NULL REFERENCES specialties (id),
-  UNIQUE (vet_id, specialty_id)
+  PRIMARY KEY (vet_id, specialty_id)
 );
+-- the primary key was added since the first release, for databases created before; the
+-- block is quoted with single quotes so that the script runner does not split it
+DO '
+BEGIN
+  IF NOT EXISTS (SELECT 1 FROM information_schema.table_constraints WHERE table_schema = current_schema()
+      AND table_name = ''vet_specialties'' AND constraint_type = ''PRIMARY KEY'') THEN
+    ALTER TABLE vet_specialties ADD PRIMARY KEY (vet_id, specialty_id);
+  END IF;
+END';
 
 CREATE TABLE IF NOT EXISTS types (
   id   INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
   name TEXT
 );
-CREATE INDEX ON types (name);
+CREATE INDEX IF NOT EXISTS types_name ON types (name);
 
 CREATE TABLE IF NOT EXISTS owners (
   id         INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -29,9 +38,18 @@ CREATE TABLE IF NOT EXISTS owners (
   last_name  TEXT,
   address    TEXT,
   city       TEXT,
-  telephone  TEXT
+  telephone  TEXT,
+  version    INT NOT NULL DEFAULT 0,
+  registered_on DATE
 );
-CREATE INDEX ON owners (last_name);
+-- columns added since the first release, for databases created before
+ALTER TABLE owners ADD COLUMN IF NOT EXISTS version INT NOT NULL DEFAULT 0;
+ALTER TABLE owners ADD COLUMN IF NOT EXISTS registered_on DATE;
+CREATE INDEX IF NOT EXISTS owners_last_name ON owners (last_name);
+-- LIKE 'prefix%' only uses a btree index in the "C" collation or with pattern operators
+CREATE INDEX IF NOT EXISTS owners_last_name_pattern ON owners (last_name text_pattern_ops);
+-- case-insensitive prefix lookups of the owner name autocomplete
+CREATE INDEX IF NOT EXISTS owners_lower_last_name_pattern ON owners (lower(last_name) text_pattern_ops);
 
 CREATE TABLE IF NOT EXISTS pets (
   id         INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -40,8 +58,8 @@ CREATE TABLE IF NOT EXISTS pets (
   type_id    INT NOT NULL REFERENCES types (id),
   owner_id   INT REFERENCES owners (id)
 );
-CREATE INDEX ON pets (name);
-CREATE INDEX ON pets (owner_id);
+CREATE INDEX IF NOT EXISTS pets_name ON pets (name);
+CREATE INDEX IF NOT EXISTS pets_owner_id ON pets (owner_id);
 
 CREATE TABLE IF NOT EXISTS visits (
   id          INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -49,4 +67,24 @@ CREATE TABLE IF NOT EXISTS visits (
   visit_date  DATE,
   description TEXT
 );
-CREATE INDEX ON visits (pet_id);
+CREATE INDEX IF NOT EXISTS visits_pet_id_visit_date ON visits (pet_id, visit_date);
+
+-- Summaries maintained with every write by ClinicAnalytics
+CREATE TABLE IF NOT EXISTS visits_by_month_and_type (
+  visit_month DATE NOT NULL,
+  type_id     INT  NOT NULL,
+  visits      INT  NOT NULL,
+  PRIMARY KEY (visit_month, type_id)
+);
+
+CREATE TABLE IF NOT EXISTS visits_by_month_and_city (
+  visit_month DATE NOT NULL,
+  city        TEXT NOT NULL,
+  visits      INT  NOT NULL,
+  PRIMARY KEY (visit_month, city)
+);
+
+CREATE TABLE IF NOT EXISTS owners_by_week (
+  registration_week DATE NOT NULL PRIMARY KEY,
+  owners            INT  NOT NULL
+);
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.RequestEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.owner.VisitRepository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.aot.DisabledInAotMode;
+import org.springframework.web.client.RestTemplate;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Runs the application on the partitioned {@code visits} table of MySQL.
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({ "mysql", "partitioned" })
+@Testcontainers(disabledWithoutDocker = true)
+@DisabledInNativeImage
+@DisabledInAotMode
+class MySqlPartitionedIntegrationTests {
+
+	@ServiceConnection
+	@Container
+	static MySQLContainer<?> container = new MySQLContainer<>("mysql:8.2");
+
+	@LocalServerPort
+	int port;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Autowired
+	private VisitRepository visits;
+
+	@Autowired
+	private RestTemplateBuilder builder;
+
+	@Test
+	void testPartitionsAreCreatedOnStartup() {
+		List<String> partitions = this.jdbc.queryForList("SELECT PARTITION_NAME FROM information_schema.PARTITIONS "
+				+ "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'visits' ORDER BY PARTITION_ORDINAL_POSITION",
+				String.class);
+		assertThat(partitions).first().isEqualTo("p_history");
+		assertThat(partitions).last().isEqualTo("p_future");
+		assertThat(partitions).contains(String.format("p%1$tY%1$tm", LocalDate.now()));
+	}
+
+	@Test
+	void testBookedVisitIsShownOnOwnerPage() {
+		assertThat(this.visits.addVisit(1, 1, LocalDate.now(), "partitioned checkup")).isEqualTo(1);
+
+		RestTemplate template = builder.rootUri("http://localhost:" + port).build();
+		ResponseEntity<String> result = template.exchange(RequestEntity.get("/owners/1").build(), String.class);
+		assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(result.getBody()).contains("partitioned checkup");
+	}
+
+}
@@ -25,12 +25,16 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.RequestEntity;
 import org.springframework.http.ResponseEntity;
 import org.springframework.samples.petclinic.vet.VetRepository;
 import org.springframework.web.client.RestTemplate;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 @SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
 public class PetClinicIntegrationTests {
 
@@ -43,10 +47,31 @@ public class PetClinicIntegrationTests {
 	@Autowired
 	private RestTemplateBuilder builder;
 
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
 	@Test
 	void testFindAll() throws Exception {
 		vets.findAll();
 		vets.findAll(); // served from cache
+		assertThat(meterRegistry.get("cache.gets").tags("cache", "vets", "result", "hit").functionCounter().count())
+			.isGreaterThanOrEqualTo(1);
+	}
+
+	@Test
+	void testCacheRegionsAreBounded() {
+		vets.findAll();
+		vets.findAll(); // served from its own region
+
+		assertThat(cacheManager.getCacheNames()).containsExactlyInAnyOrder("vets", "owners");
+		assertThat(cacheManager.getCache("undeclared")).isNull();
+		CaffeineCache vetCache = (CaffeineCache) cacheManager.getCache("vets");
+		assertThat(vetCache.getNativeCache().policy().eviction().orElseThrow().getMaximum()).isEqualTo(1);
+		assertThat(vetCache.getNativeCache().policy().expireAfterWrite()).isPresent();
+		assertThat(vetCache.getNativeCache().stats().hitCount()).isGreaterThanOrEqualTo(1);
 	}
 
 	@Test
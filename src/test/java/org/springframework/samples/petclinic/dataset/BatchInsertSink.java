@@ -0,0 +1,83 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.dataset;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link RowSink} writing through a JDBC batch of prepared inserts, committing each batch
+ * so neither the driver nor the database accumulates the whole table.
+ */
+class BatchInsertSink implements RowSink {
+
+	private final Connection connection;
+
+	private final PreparedStatement insert;
+
+	private final int batchSize;
+
+	private int pending;
+
+	private long rows;
+
+	BatchInsertSink(Connection connection, String table, List<String> columns, int batchSize) throws SQLException {
+		this.connection = connection;
+		this.insert = connection.prepareStatement("INSERT INTO " + table + " (" + String.join(", ", columns)
+				+ ") VALUES (" + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")");
+		this.batchSize = batchSize;
+	}
+
+	@Override
+	public void row(Object... values) throws SQLException {
+		for (int i = 0; i < values.length; i++) {
+			this.insert.setObject(i + 1, values[i]);
+		}
+		this.insert.addBatch();
+		this.rows++;
+		if (++this.pending == this.batchSize) {
+			flush();
+		}
+	}
+
+	@Override
+	public long rows() {
+		return this.rows;
+	}
+
+	@Override
+	public void close() throws SQLException {
+		try {
+			flush();
+		}
+		finally {
+			this.insert.close();
+		}
+	}
+
+	private void flush() throws SQLException {
+		if (this.pending > 0) {
+			this.insert.executeBatch();
+			this.connection.commit();
+			this.pending = 0;
+		}
+	}
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.dataset;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The databases with a schema under {@code db/}, how rows are bulk loaded into each, and
+ * how to read their query plans.
+ */
+enum DatabasePlatform {
+
+	H2("h2", "H2", "ANALYZE", "/\\* PUBLIC\\.(\\w+)\\.tableScan"),
+
+	HSQLDB("hsqldb", "HSQL Database Engine", null, "table=(\\w+)(?:\\s+\\w+=[^\\n]*)*?\\s+access=FULL SCAN") {
+
+		@Override
+		String explain(String sql) {
+			return "EXPLAIN PLAN FOR " + sql;
+		}
+
+	},
+
+	MYSQL("mysql", "MySQL", "ANALYZE TABLE owners, pets, visits, vets, vet_specialties",
+			"table=(\\S+) partitions=\\S* type=ALL") {
+
+		@Override
+		void restartIdentity(Connection connection, String table) {
+			// InnoDB moves AUTO_INCREMENT past explicitly inserted ids
+		}
+
+	},
+
+	POSTGRES("postgres", "PostgreSQL", "ANALYZE", "Seq Scan on (\\w+)") {
+
+		@Override
+		RowSink sink(Connection connection, String table, List<String> columns, int batchSize) throws SQLException {
+			return new CopyInSink(connection, table, columns);
+		}
+
+		@Override
+		void restartIdentity(Connection connection, String table) throws SQLException {
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("SELECT setval(pg_get_serial_sequence('" + table + "', 'id'), (SELECT MAX(id) FROM "
+						+ table + "))");
+			}
+			connection.commit();
+		}
+
+	};
+
+	private final String directory;
+
+	private final String productName;
+
+	private final String analyze;
+
+	private final Pattern fullScan;
+
+	DatabasePlatform(String directory, String productName, String analyze, String fullScan) {
+		this.directory = directory;
+		this.productName = productName;
+		this.analyze = analyze;
+		this.fullScan = Pattern.compile(fullScan);
+	}
+
+	/**
+	 * Return the directory under {@code db/} holding the scripts for this platform.
+	 */
+	String directory() {
+		return this.directory;
+	}
+
+	/**
+	 * Create a sink writing rows into the given table.
+	 */
+	RowSink sink(Connection connection, String table, List<String> columns, int batchSize) throws SQLException {
+		return new BatchInsertSink(connection, table, columns, batchSize);
+	}
+
+	/**
+	 * Move the identity of the given table past its highest id, so rows inserted by the
+	 * application after a load with explicit ids do not collide.
+	 */
+	void restartIdentity(Connection connection, String table) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			long max = 0;
+			try (ResultSet result = statement.executeQuery("SELECT MAX(id) FROM " + table)) {
+				if (result.next()) {
+					max = result.getLong(1);
+				}
+			}
+			statement.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + (max + 1));
+		}
+		connection.commit();
+	}
+
+	/**
+	 * Update the statistics the query planner relies on, after a bulk load.
+	 */
+	void analyze(Connection connection) throws SQLException {
+		if (this.analyze != null) {
+			try (Statement statement = connection.createStatement()) {
+				statement.execute(this.analyze);
+			}
+		}
+	}
+
+	/**
+	 * Return the statement that explains how the given statement would be executed.
+	 */
+	String explain(String sql) {
+		return "EXPLAIN " + sql;
+	}
+
+	/**
+	 * Return the tables, or their aliases, that the given plan reads in full.
+	 * @param plan the output of the {@link #explain(String) explain} statement, one line
+	 * per row with multiple columns rendered as {@code name=value} pairs
+	 */
+	Set<String> fullScans(String plan) {
+		Set<String> tables = new LinkedHashSet<>();
+		Matcher matcher = this.fullScan.matcher(plan);
+		while (matcher.find()) {
+			tables.add(matcher.group(1).toLowerCase(Locale.ROOT));
+		}
+		return tables;
+	}
+
+	static DatabasePlatform of(Connection connection) throws SQLException {
+		String productName = connection.getMetaData().getDatabaseProductName();
+		for (DatabasePlatform platform : values()) {
+			if (platform.productName.equals(productName)) {
+				return platform;
+			}
+		}
+		throw new IllegalStateException("No schema for database " + productName);
+	}
+
+}
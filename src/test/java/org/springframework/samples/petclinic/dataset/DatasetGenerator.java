@@ -0,0 +1,221 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.dataset;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.samples.petclinic.system.VisitPartitions;
+
+/**
+ * Streams a large, realistic and reproducible dataset into any of the schemas under
+ * {@code db/}: owners registered over the last 20 years with a skewed number of pets,
+ * visits spread over the pets' lifetimes, and vets with specialties. Rows get explicit
+ * ids following the existing ones, are written with JDBC batches ({@code COPY} on
+ * PostgreSQL) and are never held in memory, so tens of millions of rows only cost time.
+ * Not a test: run the main method, optionally with any of
+ *
+ * <ul>
+ * <li>{@code --url=jdbc:h2:file:./target/dataset/petclinic} the database to fill</li>
+ * <li>{@code --username=sa} and {@code --password=}</li>
+ * <li>{@code --init} to first run the {@code schema.sql} and {@code data.sql} of the
+ * database's platform</li>
+ * <li>{@code --partitioned} to use {@code schema-partitioned.sql} instead, on PostgreSQL
+ * and MySQL, and create the {@link VisitPartitions} before loading the visits</li>
+ * <li>{@code --hot-months=24} and {@code --months-ahead=3} the partitions to create, as
+ * {@code petclinic.visits.partitions.*} of the application that will use the data</li>
+ * <li>{@code --owners=100000} the number of owners, about 20 visits are generated per
+ * owner</li>
+ * <li>{@code --vets} the number of vets, by default one per 200 owners</li>
+ * <li>{@code --seed=42} and {@code --until=2024-12-31}, which together determine every
+ * row</li>
+ * <li>{@code --batch-size=1000} the rows per JDBC batch and commit</li>
+ * </ul>
+ */
+public class DatasetGenerator {
+
+	private final Settings settings;
+
+	DatasetGenerator(Settings settings) {
+		this.settings = settings;
+	}
+
+	public static void main(String[] args) throws SQLException {
+		Settings settings = Settings.parse(args);
+		Properties properties = new Properties();
+		properties.setProperty("user", settings.username());
+		properties.setProperty("password", settings.password());
+		if (settings.url().startsWith("jdbc:mysql:")) {
+			properties.setProperty("rewriteBatchedStatements", "true");
+		}
+		long start = System.nanoTime();
+		try (Connection connection = DriverManager.getConnection(settings.url(), properties)) {
+			Map<String, Long> rows = new DatasetGenerator(settings).generate(connection);
+			long total = rows.values().stream().mapToLong(Long::longValue).sum();
+			System.out.printf("%,d rows in %.1f s%n", total, (System.nanoTime() - start) / 1e9);
+		}
+	}
+
+	/**
+	 * Generate the dataset into the given database.
+	 * @param connection the connection to use, left in manual commit mode
+	 * @return the number of rows written to each table
+	 */
+	Map<String, Long> generate(Connection connection) throws SQLException {
+		DatabasePlatform platform = DatabasePlatform.of(connection);
+		if (this.settings.init()) {
+			String schema = this.settings.partitioned() ? "schema-partitioned.sql" : "schema.sql";
+			ScriptUtils.executeSqlScript(connection,
+					new ClassPathResource("db/" + platform.directory() + "/" + schema));
+			ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/" + platform.directory() + "/data.sql"));
+		}
+		if (this.settings.partitioned()) {
+			// create the partitions first, so that the visits go straight to theirs;
+			// nothing is archived, the history partition takes the older visits
+			new VisitPartitions(new SingleConnectionDataSource(connection, true), this.settings.hotMonths(),
+					this.settings.monthsAhead(), 0)
+				.maintain();
+		}
+		connection.setAutoCommit(false);
+		Map<String, Integer> types = new LinkedHashMap<>();
+		query(connection, "SELECT id, name FROM types", (result) -> types.put(result.getString(2), result.getInt(1)));
+		if (types.isEmpty()) {
+			throw new IllegalStateException("No pet types found, run with --init or load data.sql first");
+		}
+		List<Integer> specialties = new ArrayList<>();
+		query(connection, "SELECT id FROM specialties", (result) -> specialties.add(result.getInt(1)));
+		SyntheticClinic.BaseIds base = new SyntheticClinic.BaseIds(maxId(connection, "owners"),
+				maxId(connection, "pets"), maxId(connection, "visits"), maxId(connection, "vets"));
+		int vets = (this.settings.vets() >= 0) ? this.settings.vets() : (int) Math.max(6, this.settings.owners() / 200);
+		SyntheticClinic clinic = new SyntheticClinic(this.settings.seed(), this.settings.until(),
+				this.settings.owners(), vets, base, types, specialties);
+
+		Map<String, Long> rows = new LinkedHashMap<>();
+		load(connection, platform, rows, "owners",
+				List.of("id", "first_name", "last_name", "address", "city", "telephone", "version", "registered_on"),
+				clinic::owners);
+		load(connection, platform, rows, "pets", List.of("id", "name", "birth_date", "type_id", "owner_id"),
+				clinic::pets);
+		load(connection, platform, rows, "visits", List.of("id", "pet_id", "visit_date", "description"),
+				clinic::visits);
+		load(connection, platform, rows, "vets", List.of("id", "first_name", "last_name"), clinic::vets);
+		load(connection, platform, rows, "vet_specialties", List.of("vet_id", "specialty_id"), clinic::vetSpecialties);
+		for (String table : List.of("owners", "pets", "visits", "vets")) {
+			platform.restartIdentity(connection, table);
+		}
+		return rows;
+	}
+
+	private void load(Connection connection, DatabasePlatform platform, Map<String, Long> rows, String table,
+			List<String> columns, Table generator) throws SQLException {
+		long start = System.nanoTime();
+		try (RowSink sink = platform.sink(connection, table, columns, this.settings.batchSize())) {
+			generator.writeTo(sink);
+			rows.put(table, sink.rows());
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%-16s %,12d rows %8.1f s %,12.0f rows/s%n", table, rows.get(table), seconds,
+				rows.get(table) / seconds);
+	}
+
+	private static long maxId(Connection connection, String table) throws SQLException {
+		long[] max = { 0 };
+		query(connection, "SELECT MAX(id) FROM " + table, (result) -> max[0] = result.getLong(1));
+		return max[0];
+	}
+
+	private static void query(Connection connection, String sql, RowCallback callback) throws SQLException {
+		try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(sql)) {
+			while (result.next()) {
+				callback.accept(result);
+			}
+		}
+	}
+
+	@FunctionalInterface
+	private interface Table {
+
+		void writeTo(RowSink sink) throws SQLException;
+
+	}
+
+	@FunctionalInterface
+	private interface RowCallback {
+
+		void accept(ResultSet result) throws SQLException;
+
+	}
+
+	/**
+	 * Settings of a generator run, see {@link DatasetGenerator} for their meaning. A
+	 * negative number of vets derives it from the number of owners.
+	 */
+	record Settings(String url, String username, String password, boolean init, boolean partitioned, long owners,
+			int vets, long seed, LocalDate until, int batchSize, int hotMonths, int monthsAhead) {
+
+		static Settings parse(String... args) {
+			String url = "jdbc:h2:file:./target/dataset/petclinic";
+			String username = "sa";
+			String password = "";
+			boolean init = false;
+			boolean partitioned = false;
+			long owners = 100_000;
+			int vets = -1;
+			long seed = 42;
+			LocalDate until = LocalDate.of(2024, 12, 31);
+			int batchSize = 1000;
+			int hotMonths = 24;
+			int monthsAhead = 3;
+			for (String arg : args) {
+				int separator = arg.indexOf('=');
+				String name = arg.substring(2, (separator > 0) ? separator : arg.length());
+				String value = (separator > 0) ? arg.substring(separator + 1) : "true";
+				switch (name) {
+					case "url" -> url = value;
+					case "username" -> username = value;
+					case "password" -> password = value;
+					case "init" -> init = Boolean.parseBoolean(value);
+					case "partitioned" -> partitioned = Boolean.parseBoolean(value);
+					case "owners" -> owners = Long.parseLong(value);
+					case "vets" -> vets = Integer.parseInt(value);
+					case "seed" -> seed = Long.parseLong(value);
+					case "until" -> until = LocalDate.parse(value);
+					case "batch-size" -> batchSize = Integer.parseInt(value);
+					case "hot-months" -> hotMonths = Integer.parseInt(value);
+					case "months-ahead" -> monthsAhead = Integer.parseInt(value);
+					default -> throw new IllegalArgumentException("Unknown argument " + arg);
+				}
+			}
+			return new Settings(url, username, password, init, partitioned, owners, vets, seed, until, batchSize,
+					hotMonths, monthsAhead);
+		}
+
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.dataset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link DatasetGenerator} against an embedded H2 database.
+ */
+class DatasetGeneratorTests {
+
+	@Test
+	void testGeneratesSkewedDatasetAfterSeedData() throws SQLException {
+		try (Connection connection = newDatabase()) {
+			Map<String, Long> rows = generate(connection, 42);
+
+			assertThat(rows).containsEntry("owners", 2000L).containsEntry("vets", 10L);
+			assertThat(rows.get("pets")).isGreaterThan(2000);
+			assertThat(rows.get("visits")).isGreaterThan(10 * rows.get("pets"));
+			assertThat(count(connection, "SELECT COUNT(*) FROM owners")).isEqualTo(10 + 2000);
+			assertThat(count(connection, "SELECT MAX(c) FROM (SELECT COUNT(*) c FROM pets GROUP BY owner_id)"))
+				.isGreaterThanOrEqualTo(5);
+			assertThat(count(connection,
+					"SELECT COUNT(*) FROM (SELECT owner_id, name FROM pets GROUP BY owner_id, name HAVING COUNT(*) > 1)"))
+				.isZero();
+			assertThat(count(connection,
+					"SELECT COUNT(*) FROM visits v JOIN pets p ON p.id = v.pet_id WHERE v.visit_date < p.birth_date"
+							+ " OR v.visit_date > DATE '2024-12-31'"))
+				.isZero();
+			assertThat(count(connection, "SELECT COUNT(*) FROM owners WHERE id > 10 AND (registered_on IS NULL"
+					+ " OR registered_on > DATE '2024-12-31')"))
+				.isZero();
+		}
+	}
+
+	@Test
+	void testIdentitiesContinueAfterGeneratedRows() throws SQLException {
+		try (Connection connection = newDatabase()) {
+			generate(connection, 42);
+			try (Statement statement = connection.createStatement()) {
+				statement.executeUpdate("INSERT INTO owners (first_name, last_name, address, city, telephone)"
+						+ " VALUES ('New', 'Owner', '1 Main St.', 'Madison', '6085550000')");
+			}
+			assertThat(count(connection, "SELECT id FROM owners WHERE last_name = 'Owner'")).isEqualTo(10 + 2000 + 1);
+		}
+	}
+
+	@Test
+	void testSameSeedGeneratesSameRows() throws SQLException {
+		try (Connection first = newDatabase(); Connection second = newDatabase(); Connection other = newDatabase()) {
+			generate(first, 7);
+			generate(second, 7);
+			generate(other, 8);
+
+			assertThat(fingerprint(second)).isEqualTo(fingerprint(first)).isNotEqualTo(fingerprint(other));
+		}
+	}
+
+	private static Map<String, Long> generate(Connection connection, long seed) throws SQLException {
+		return new DatasetGenerator(DatasetGenerator.Settings.parse("--init", "--owners=2000", "--vets=10",
+				"--seed=" + seed, "--batch-size=500"))
+			.generate(connection);
+	}
+
+	private static Connection newDatabase() throws SQLException {
+		return DriverManager.getConnection("jdbc:h2:mem:" + UUID.randomUUID(), "sa", "");
+	}
+
+	private static String fingerprint(Connection connection) throws SQLException {
+		return count(connection, "SELECT COUNT(*) FROM visits") + "/" + checksum(connection);
+	}
+
+	private static long checksum(Connection connection) throws SQLException {
+		long checksum = 0;
+		try (Statement statement = connection.createStatement();
+				ResultSet result = statement.executeQuery("SELECT v.id, v.visit_date, v.description, p.name,"
+						+ " p.birth_date, p.type_id, o.first_name, o.address FROM visits v JOIN pets p ON p.id = v.pet_id"
+						+ " JOIN owners o ON o.id = p.owner_id ORDER BY v.id")) {
+			while (result.next()) {
+				for (int i = 1; i <= 8; i++) {
+					checksum = 31 * checksum + result.getString(i).hashCode();
+				}
+			}
+		}
+		return checksum;
+	}
+
+	private static long count(Connection connection, String sql) throws SQLException {
+		try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(sql)) {
+			result.next();
+			return result.getLong(1);
+		}
+	}
+
+}
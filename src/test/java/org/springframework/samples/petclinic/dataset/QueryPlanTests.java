@@ -0,0 +1,435 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.dataset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.samples.petclinic.owner.OwnerExportRow;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.VisitRepository;
+import org.springframework.samples.petclinic.vet.VetRepository;
+
+/**
+ * Regression suite for the query plans of the repositories. The database is seeded with a
+ * {@link DatasetGenerator generated} clinic, deleted again after the tests, every
+ * repository query method is run once while its statements are recorded, and each
+ * statement is explained with the same parameters. A test fails when a statement reads
+ * one of the {@link #LARGE_TABLES} in full, unless the query is expected to. The plans
+ * are written to {@code target/query-plans} for review.
+ * <p>
+ * Runs against H2 by default, and against MySQL or PostgreSQL when their profile is
+ * active, like {@code ClinicServiceTests}.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanTests {
+
+	private static final long OWNERS = 20_000;
+
+	private static final Set<String> LARGE_TABLES = Set.of("owners", "pets", "visits");
+
+	private static final List<String> SEEDED_TABLES = List.of("visits", "pets", "owners", "vets");
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private StatementRecorder recorder;
+
+	@Autowired
+	private ApplicationContext context;
+
+	@Autowired
+	private OwnerRepository owners;
+
+	@Autowired
+	private VisitRepository visits;
+
+	@Autowired
+	private VetRepository vets;
+
+	private DatabasePlatform platform;
+
+	/**
+	 * The largest id of each {@link #SEEDED_TABLES seeded table} before seeding, empty if
+	 * the database was large enough already.
+	 */
+	private final Map<String, Long> seededAfter = new HashMap<>();
+
+	@BeforeAll
+	void seed() throws SQLException {
+		try (Connection connection = this.dataSource.getConnection()) {
+			this.platform = DatabasePlatform.of(connection);
+			long existing;
+			try (Statement statement = connection.createStatement();
+					ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM owners")) {
+				result.next();
+				existing = result.getLong(1);
+			}
+			if (existing < OWNERS) {
+				for (String table : SEEDED_TABLES) {
+					this.seededAfter.put(table, maxId(connection, table));
+				}
+				new DatasetGenerator(DatasetGenerator.Settings.parse("--owners=" + (OWNERS - existing)))
+					.generate(connection);
+			}
+			this.platform.analyze(connection);
+			connection.commit();
+		}
+	}
+
+	/**
+	 * Delete the generated clinic again, so that a MySQL or PostgreSQL database of a
+	 * developer is left as it was found.
+	 */
+	@AfterAll
+	void deleteSeed() throws SQLException {
+		if (this.seededAfter.isEmpty()) {
+			return;
+		}
+		try (Connection connection = this.dataSource.getConnection()) {
+			connection.setAutoCommit(false);
+			try (Statement statement = connection.createStatement()) {
+				statement.executeUpdate("DELETE FROM vet_specialties WHERE vet_id > " + this.seededAfter.get("vets"));
+				for (String table : SEEDED_TABLES) {
+					statement.executeUpdate("DELETE FROM " + table + " WHERE id > " + this.seededAfter.get(table));
+				}
+			}
+			connection.commit();
+			for (String table : SEEDED_TABLES) {
+				this.platform.restartIdentity(connection, table);
+			}
+		}
+	}
+
+	private static long maxId(Connection connection, String table) throws SQLException {
+		try (Statement statement = connection.createStatement();
+				ResultSet result = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+			result.next();
+			return result.getLong(1);
+		}
+	}
+
+	static Stream<QueryCase> queries() {
+		return Stream.of( //
+				query("OwnerRepository.findPetTypes", (test) -> test.owners.findPetTypes()),
+				query("OwnerRepository.findByLastName",
+						(test) -> test.owners.findByLastName("Dav", PageRequest.of(0, 5)).getTotalElements()),
+				query("OwnerRepository.findOwnerSummariesByLastName",
+						(test) -> test.owners.findOwnerSummariesByLastName("Dav", PageRequest.of(1, 5))
+							.getTotalElements()),
+				query("OwnerRepository.findOwnerSummariesByLastNameAfter",
+						(test) -> test.owners.findOwnerSummariesByLastNameAfter("Dav", "Davis", 100, Limit.of(6))),
+				query("OwnerRepository.findOwnerSummariesByLastNameBefore",
+						(test) -> test.owners.findOwnerSummariesByLastNameBefore("Dav", "Davis", 100, Limit.of(6))),
+				// reads all names to build the name index
+				query("OwnerRepository.findOwnerNames", (test) -> test.owners.findOwnerNames(Limit.of(100)), "owners"),
+				// matches on lower(last_name), only PostgreSQL has an index for that
+				query("OwnerRepository.findOwnerNamesByLastNamePrefix",
+						(test) -> test.owners.findOwnerNamesByLastNamePrefix("dav", Limit.of(10)), "owners"),
+				query("OwnerRepository.findById", (test) -> test.owners.findById(7)),
+				query("OwnerRepository.findWithPetsById", (test) -> test.owners.findWithPetsById(7)),
+				query("OwnerRepository.findVersionById", (test) -> test.owners.findVersionById(7)),
+				query("OwnerRepository.incrementVersion", (test) -> test.owners.incrementVersion(7)),
+				query("OwnerRepository.findOwnerIdsAfter",
+						(test) -> test.owners.findOwnerIdsAfter(1000, Limit.of(100))),
+				query("OwnerRepository.findAllById", (test) -> test.owners.findAllById(List.of(7, 1000, 15000))),
+				query("OwnerRepository.findAllWithPetsById",
+						(test) -> test.owners.findAllWithPetsById(List.of(7, 1000, 15000))),
+				// exports every row
+				query("OwnerRepository.streamExportRows", (test) -> {
+					try (Stream<OwnerExportRow> rows = test.owners.streamExportRows()) {
+						rows.limit(10).forEach((row) -> {
+						});
+					}
+				}, "owners", "pets", "visits"),
+				// pages through all owners
+				query("OwnerRepository.findAll", (test) -> test.owners.findAll(PageRequest.of(2, 5)).getTotalElements(),
+						"owners"),
+				query("VisitRepository.insertVisit",
+						(test) -> test.visits.insertVisit(7, 7, LocalDate.of(2024, 1, 1), "plan")),
+				query("VisitRepository.incrementOwnerVersion", (test) -> test.visits.incrementOwnerVersion(7)),
+				query("VisitRepository.findRecentVisitsByPet", (test) -> test.visits.findRecentVisitsByPet(7, 6)),
+				query("VisitRepository.findRecentVisitsByPetSince",
+						(test) -> test.visits.findRecentVisitsByPetSince(7, LocalDate.of(2023, 1, 1), 6)),
+				query("VisitRepository.findVisitHistoryByPet",
+						(test) -> test.visits.findVisitHistoryByPet(7, 7, PageRequest.of(1, 20)).getTotalElements()),
+				query("VisitRepository.findVisitHistorySince",
+						(test) -> test.visits
+							.findVisitHistorySince(7, 7, LocalDate.of(2015, 1, 1), PageRequest.of(1, 20))
+							.getTotalElements()),
+				query("VisitRepository.findVisitsSince",
+						(test) -> test.visits.findVisitsSince(List.of(7, 1000, 15000), LocalDate.of(2023, 1, 1))),
+				query("VetRepository.findAll", (test) -> {
+					test.vets.findAll();
+					test.vets.findAll(PageRequest.of(1, 5));
+				}));
+	}
+
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("queries")
+	void testQueryUsesIndexes(QueryCase query) throws Exception {
+		List<RecordedStatement> statements = this.recorder.record(() -> query.call().accept(this));
+		assertThat(statements).as("statements of %s", query).isNotEmpty();
+
+		Connection connection = DataSourceUtils.getConnection(this.dataSource);
+		StringBuilder report = new StringBuilder();
+		List<String> regressions = new ArrayList<>();
+		for (RecordedStatement statement : statements) {
+			String plan = statement.explain(connection, this.platform);
+			report.append(statement.sql()).append("\n\n").append(plan).append("\n\n");
+			for (String scanned : this.platform.fullScans(plan)) {
+				String table = table(scanned, statement.sql());
+				if (LARGE_TABLES.contains(table) && !query.scans().contains(table)) {
+					regressions.add(table + " is scanned by\n" + statement.sql() + "\n" + plan);
+				}
+			}
+		}
+		Path file = Paths.get("target", "query-plans", this.platform.directory(), query.method() + ".txt");
+		Files.createDirectories(file.getParent());
+		Files.writeString(file, report);
+		assertThat(regressions).as("full scans of %s", query).isEmpty();
+	}
+
+	@Test
+	void testEveryRepositoryQueryIsCovered() {
+		Set<String> covered = new TreeSet<>(queries().map(QueryCase::method).toList());
+		Set<String> declared = new TreeSet<>();
+		Repositories repositories = new Repositories(this.context);
+		for (Class<?> domainType : repositories) {
+			Class<?> repository = repositories.getRequiredRepositoryInformation(domainType).getRepositoryInterface();
+			Arrays.stream(repository.getDeclaredMethods())
+				.filter((method) -> Modifier.isAbstract(method.getModifiers()) && !method.getName().equals("save"))
+				.forEach((method) -> declared.add(repository.getSimpleName() + "." + method.getName()));
+		}
+		assertThat(covered).containsAll(declared);
+	}
+
+	/**
+	 * Resolve a table name as it appears in a plan, which may be an alias.
+	 */
+	private static String table(String scanned, String sql) {
+		if (LARGE_TABLES.contains(scanned)) {
+			return scanned;
+		}
+		Matcher alias = Pattern
+			.compile("(\\w+)\\s+(?:as\\s+)?" + Pattern.quote(scanned) + "\\b", Pattern.CASE_INSENSITIVE)
+			.matcher(sql);
+		return alias.find() ? alias.group(1).toLowerCase(Locale.ROOT) : scanned;
+	}
+
+	private static QueryCase query(String method, Consumer<QueryPlanTests> call, String... scans) {
+		return new QueryCase(method, call, Set.of(scans));
+	}
+
+	/**
+	 * A repository query method, how to run it and the large tables it is expected to
+	 * read in full.
+	 */
+	record QueryCase(String method, Consumer<QueryPlanTests> call, Set<String> scans) {
+
+		@Override
+		public String toString() {
+			return this.method;
+		}
+
+	}
+
+	/**
+	 * A prepared statement that was executed, with the calls binding its parameters.
+	 */
+	record RecordedStatement(String sql, List<Map.Entry<Method, Object[]>> bindings) {
+
+		String explain(Connection connection, DatabasePlatform platform) throws SQLException {
+			try (PreparedStatement statement = connection.prepareStatement(platform.explain(this.sql))) {
+				for (Map.Entry<Method, Object[]> binding : this.bindings) {
+					try {
+						binding.getKey().invoke(statement, binding.getValue());
+					}
+					catch (ReflectiveOperationException ex) {
+						throw new IllegalStateException("Cannot bind " + binding.getKey(), ex);
+					}
+				}
+				StringBuilder plan = new StringBuilder();
+				try (ResultSet result = statement.executeQuery()) {
+					ResultSetMetaData columns = result.getMetaData();
+					while (result.next()) {
+						for (int i = 1; i <= columns.getColumnCount(); i++) {
+							if (columns.getColumnCount() > 1) {
+								plan.append((i > 1) ? " " : "").append(columns.getColumnLabel(i)).append('=');
+							}
+							plan.append(result.getString(i));
+						}
+						plan.append('\n');
+					}
+				}
+				return plan.toString().strip();
+			}
+		}
+
+	}
+
+	/**
+	 * Records the prepared statements executed through the {@link DataSource} while
+	 * {@link #record(Runnable) recording}.
+	 */
+	static class StatementRecorder {
+
+		private final List<RecordedStatement> statements = new ArrayList<>();
+
+		private volatile boolean recording;
+
+		List<RecordedStatement> record(Runnable action) {
+			this.statements.clear();
+			this.recording = true;
+			try {
+				action.run();
+			}
+			finally {
+				this.recording = false;
+			}
+			return List.copyOf(this.statements);
+		}
+
+		DataSource wrap(DataSource dataSource) {
+			return new DelegatingDataSource(dataSource) {
+
+				@Override
+				public Connection getConnection() throws SQLException {
+					return wrap(super.getConnection());
+				}
+
+			};
+		}
+
+		private Connection wrap(Connection connection) {
+			return proxy(Connection.class, connection, (method, args, result) -> {
+				if (this.recording && method.getName().equals("prepareStatement")) {
+					return wrap((PreparedStatement) result, (String) args[0]);
+				}
+				return result;
+			});
+		}
+
+		private PreparedStatement wrap(PreparedStatement statement, String sql) {
+			List<Map.Entry<Method, Object[]>> bindings = new ArrayList<>();
+			return proxy(PreparedStatement.class, statement, (method, args, result) -> {
+				Class<?>[] parameters = method.getParameterTypes();
+				if (method.getName().startsWith("set") && parameters.length >= 2 && parameters[0] == int.class) {
+					bindings.add(Map.entry(method, args));
+				}
+				else if (method.getName().startsWith("execute") && (args == null || args.length == 0)) {
+					this.statements.add(new RecordedStatement(sql, List.copyOf(bindings)));
+				}
+				return result;
+			});
+		}
+
+		@SuppressWarnings("unchecked")
+		private static <T> T proxy(Class<T> type, T target, Interceptor interceptor) {
+			return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+				try {
+					return interceptor.intercept(method, args, method.invoke(target, args));
+				}
+				catch (InvocationTargetException ex) {
+					throw ex.getTargetException();
+				}
+			});
+		}
+
+		@FunctionalInterface
+		private interface Interceptor {
+
+			Object intercept(Method method, Object[] args, Object result);
+
+		}
+
+	}
+
+	@TestConfiguration
+	static class RecordingConfiguration {
+
+		@Bean
+		StatementRecorder statementRecorder() {
+			return new StatementRecorder();
+		}
+
+		@Bean
+		static BeanPostProcessor recordingDataSourcePostProcessor(ObjectProvider<StatementRecorder> recorder) {
+			return new BeanPostProcessor() {
+
+				@Override
+				public Object postProcessAfterInitialization(Object bean, String beanName) {
+					return (bean instanceof DataSource dataSource) ? recorder.getObject().wrap(dataSource) : bean;
+				}
+
+			};
+		}
+
+	}
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.dataset;
+
+import java.sql.SQLException;
+
+/**
+ * Destination of the rows of a single table. Rows are written in the column order the
+ * sink was created with and are only guaranteed to be committed once the sink is closed.
+ */
+interface RowSink extends AutoCloseable {
+
+	void row(Object... values) throws SQLException;
+
+	/**
+	 * Return the number of rows written so far.
+	 */
+	long rows();
+
+	/**
+	 * Write any buffered rows and commit them.
+	 */
+	@Override
+	void close() throws SQLException;
+
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.dataset;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic model of a large clinic. Every owner, pet and vet draws from its own
+ * random generator derived from the seed and its position, so each table can be streamed
+ * in a separate pass, in constant memory, and always yields the same rows for the same
+ * seed and base ids.
+ * <p>
+ * Pets per owner follow a geometric distribution with a small tail of breeders, visits
+ * per pet a Poisson process over the pet's lifetime with a per-pet rate, so a few pets
+ * account for many of the visits.
+ */
+class SyntheticClinic {
+
+	private static final long OWNERS = 1;
+
+	private static final long PETS = 2;
+
+	private static final long VISITS = 3;
+
+	private static final long VETS = 4;
+
+	private static final long VET_SPECIALTIES = 5;
+
+	private static final int MAX_PETS = 60;
+
+	private static final int MAX_VISITS = 200;
+
+	private static final String[] FIRST_NAMES = { "George", "Betty", "Eduardo", "Harold", "Peter", "Jean", "Jeff",
+			"Maria", "David", "Carlos", "Linda", "James", "Helen", "Rafael", "Henry", "Sharon", "Olivia", "Liam",
+			"Emma", "Noah", "Ava", "Lucas", "Mia", "Ethan", "Sofia", "Mason", "Chloe", "Logan", "Grace", "Aiden", "Zoe",
+			"Samuel", "Nora", "Owen", "Ruth", "Isaac", "Clara", "Felix", "Irene", "Hugo" };
+
+	private static final String[] LAST_NAMES = { "Franklin", "Davis", "Rodriquez", "McTavish", "Coleman", "Black",
+			"Escobito", "Schroeder", "Carter", "Leary", "Douglas", "Ortega", "Stevens", "Jenkins", "Smith", "Johnson",
+			"Williams", "Brown", "Jones", "Garcia", "Miller", "Wilson", "Moore", "Taylor", "Anderson", "Thomas",
+			"Jackson", "White", "Harris", "Martin", "Thompson", "Martinez", "Robinson", "Clark", "Lewis", "Lee",
+			"Walker", "Hall", "Allen", "Young", "King", "Wright", "Lopez", "Hill", "Scott", "Green", "Adams", "Baker",
+			"Nelson", "Mitchell", "Campbell", "Roberts", "Turner", "Phillips", "Parker", "Evans", "Edwards", "Collins",
+			"Stewart", "Morris" };
+
+	private static final String[] STREETS = { "W. Liberty St.", "Cardinal Ave.", "Commerce St.", "Friendly St.",
+			"S. Fair Way", "N. Lake St.", "Spring St.", "Lakeview Dr.", "Oak Ave.", "Maple St.", "Park Rd.", "Elm St.",
+			"University Ave.", "State St.", "Monroe St.", "Regent St." };
+
+	private static final String[] CITIES = { "Madison", "Sun Prairie", "McFarland", "Windsor", "Monona", "Waunakee",
+			"Middleton", "Verona", "Fitchburg", "Stoughton", "Cottage Grove", "DeForest" };
+
+	private static final String[] PET_NAMES = { "Leo", "Basil", "Rosy", "Jewel", "Iggy", "George", "Samantha", "Max",
+			"Lucky", "Mulligan", "Freddy", "Sly", "Bella", "Luna", "Charlie", "Daisy", "Milo", "Coco", "Rocky", "Ruby",
+			"Oscar", "Lola", "Teddy", "Molly", "Bailey", "Nala", "Simba", "Toby", "Ginger", "Pepper", "Shadow", "Zeus",
+			"Cleo", "Oreo", "Loki", "Maple", "Biscuit", "Willow", "Ziggy", "Olive", "Buster", "Penny", "Rex", "Hazel",
+			"Finn", "Winnie", "Otis", "Pearl", "Scout", "Fern", "Murphy", "Juniper", "Tucker", "Poppy", "Bruno",
+			"Mochi", "Archie", "Sage", "Waffles", "Clover", "Pickle" };
+
+	private static final String[] DESCRIPTIONS = { "rabies shot", "annual checkup", "vaccination", "neutered", "spayed",
+			"dental cleaning", "ear infection", "limping", "skin allergy", "weight check", "blood work", "deworming",
+			"microchip", "nail trim", "upset stomach", "eye drops", "x-ray", "post-op check" };
+
+	private static final Map<String, Double> TYPE_WEIGHTS = Map.of("dog", 40.0, "cat", 35.0, "bird", 8.0, "hamster",
+			7.0, "lizard", 5.0, "snake", 5.0);
+
+	private final long seed;
+
+	private final LocalDate until;
+
+	private final long owners;
+
+	private final int vets;
+
+	private final BaseIds base;
+
+	private final int[] typeIds;
+
+	private final double[] typeCumulativeWeights;
+
+	private final int[] specialtyIds;
+
+	/**
+	 * Create a clinic whose rows continue after the given base ids.
+	 * @param seed the seed all rows derive from
+	 * @param until the last possible birth and visit date
+	 * @param owners the number of owners to generate
+	 * @param vets the number of vets to generate
+	 * @param base the highest ids already present in each table
+	 * @param types the existing pet types, from name to id
+	 * @param specialtyIds the ids of the existing specialties
+	 */
+	SyntheticClinic(long seed, LocalDate until, long owners, int vets, BaseIds base, Map<String, Integer> types,
+			List<Integer> specialtyIds) {
+		this.seed = seed;
+		this.until = until;
+		this.owners = owners;
+		this.vets = vets;
+		this.base = base;
+		String[] names = types.keySet().stream().sorted().toArray(String[]::new);
+		this.typeIds = Arrays.stream(names).mapToInt(types::get).toArray();
+		this.typeCumulativeWeights = new double[names.length];
+		double total = 0;
+		for (int i = 0; i < names.length; i++) {
+			total += TYPE_WEIGHTS.getOrDefault(names[i], 1.0);
+			this.typeCumulativeWeights[i] = total;
+		}
+		this.specialtyIds = specialtyIds.stream().mapToInt(Integer::intValue).sorted().toArray();
+	}
+
+	void owners(RowSink sink) throws SQLException {
+		for (long i = 0; i < this.owners; i++) {
+			SplittableRandom random = random(OWNERS, i);
+			sink.row(this.base.owners() + i + 1, pick(random, FIRST_NAMES), pick(random, LAST_NAMES),
+					(1 + random.nextInt(9999)) + " " + pick(random, STREETS), pick(random, CITIES),
+					"608" + (1000000 + random.nextInt(9000000)), 0, this.until.minusDays(random.nextInt(20 * 365)));
+		}
+	}
+
+	void pets(RowSink sink) throws SQLException {
+		forEachPet((pet) -> sink.row(pet.id(), pet.name(), pet.birthDate(), pet.typeId(), pet.ownerId()));
+	}
+
+	void visits(RowSink sink) throws SQLException {
+		long[] visitId = { this.base.visits() };
+		forEachPet((pet) -> {
+			SplittableRandom random = random(VISITS, pet.id() - this.base.pets());
+			int lifetime = (int) (this.until.toEpochDay() - pet.birthDate().toEpochDay());
+			double perYear = -Math.log(1 - random.nextDouble()) * 1.5;
+			int count = Math.min(MAX_VISITS, poisson(random, perYear * lifetime / 365.25));
+			int[] days = new int[count];
+			for (int i = 0; i < count; i++) {
+				days[i] = random.nextInt(lifetime + 1);
+			}
+			Arrays.sort(days);
+			for (int day : days) {
+				sink.row(++visitId[0], pet.id(), pet.birthDate().plusDays(day), pick(random, DESCRIPTIONS));
+			}
+		});
+	}
+
+	void vets(RowSink sink) throws SQLException {
+		for (int i = 0; i < this.vets; i++) {
+			SplittableRandom random = random(VETS, i);
+			sink.row(this.base.vets() + i + 1, pick(random, FIRST_NAMES), pick(random, LAST_NAMES));
+		}
+	}
+
+	void vetSpecialties(RowSink sink) throws SQLException {
+		for (int i = 0; i < this.vets; i++) {
+			SplittableRandom random = random(VET_SPECIALTIES, i);
+			double u = random.nextDouble();
+			int count = Math.min(this.specialtyIds.length, (u < 0.4) ? 0 : (u < 0.8) ? 1 : (u < 0.95) ? 2 : 3);
+			int first = (this.specialtyIds.length > 0) ? random.nextInt(this.specialtyIds.length) : 0;
+			for (int j = 0; j < count; j++) {
+				sink.row(this.base.vets() + i + 1, this.specialtyIds[(first + j) % this.specialtyIds.length]);
+			}
+		}
+	}
+
+	private void forEachPet(PetConsumer consumer) throws SQLException {
+		long petId = this.base.pets();
+		for (long i = 0; i < this.owners; i++) {
+			SplittableRandom random = random(PETS, i);
+			int count = petCount(random);
+			int firstName = random.nextInt(PET_NAMES.length);
+			for (int j = 0; j < count; j++) {
+				// PET_NAMES has a prime length, so names stay unique per owner
+				String name = PET_NAMES[(firstName + j * 7) % PET_NAMES.length];
+				LocalDate birthDate = this.until.minusDays(random.nextInt(18 * 365));
+				consumer.accept(new SyntheticPet(++petId, name, birthDate, type(random), this.base.owners() + i + 1));
+			}
+		}
+	}
+
+	private static int petCount(SplittableRandom random) {
+		double u = random.nextDouble();
+		if (u < 0.05) {
+			return 0;
+		}
+		if (u < 0.051) {
+			return 20 + random.nextInt(MAX_PETS - 19);
+		}
+		return Math.min(12, 1 + (int) (Math.log(1 - random.nextDouble()) / Math.log(0.4)));
+	}
+
+	private int type(SplittableRandom random) {
+		double target = random.nextDouble() * this.typeCumulativeWeights[this.typeCumulativeWeights.length - 1];
+		int index = Arrays.binarySearch(this.typeCumulativeWeights, target);
+		return this.typeIds[(index >= 0) ? index : -index - 1];
+	}
+
+	private static int poisson(SplittableRandom random, double mean) {
+		if (mean > 30) {
+			double gaussian = Math.sqrt(-2 * Math.log(1 - random.nextDouble()))
+					* Math.cos(2 * Math.PI * random.nextDouble());
+			return Math.max(0, (int) Math.round(mean + Math.sqrt(mean) * gaussian));
+		}
+		double limit = Math.exp(-mean);
+		double product = random.nextDouble();
+		int count = 0;
+		while (product > limit) {
+			product *= random.nextDouble();
+			count++;
+		}
+		return count;
+	}
+
+	private static String pick(SplittableRandom random, String[] values) {
+		return values[random.nextInt(values.length)];
+	}
+
+	private SplittableRandom random(long stream, long index) {
+		return new SplittableRandom(this.seed * 0x9E3779B97F4A7C15L + stream * 0xBF58476D1CE4E5B9L + index);
+	}
+
+	/**
+	 * The highest id in each generated table before generation.
+	 */
+	record BaseIds(long owners, long pets, long visits, long vets) {
+
+	}
+
+	private record SyntheticPet(long id, String name, LocalDate birthDate, int typeId, long ownerId) {
+
+	}
+
+	@FunctionalInterface
+	private interface PetConsumer {
+
+		void accept(SyntheticPet pet) throws SQLException;
+
+	}
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.dataset;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.PetClinicApplication;
+import org.springframework.samples.petclinic.system.VisitPartitions;
+
+/**
+ * Compares booking a visit and showing an owner page on the plain {@code visits} table
+ * and on the {@link VisitPartitions partitioned} one. Both databases are expected to hold
+ * the same {@link DatasetGenerator generated} clinic, one loaded with {@code --init} and
+ * the other with {@code --init --partitioned}; 2,500,000 owners make about 50 million
+ * visits. The application is started against each in turn, without the owner cache, and a
+ * fixed number of concurrent clients alternate between showing a random owner and booking
+ * a visit for a random pet. Not a test: run the main method with
+ *
+ * <ul>
+ * <li>{@code --current=jdbc:postgresql://localhost/petclinic} the plain database</li>
+ * <li>{@code --partitioned=jdbc:postgresql://localhost/petclinic_partitioned} the
+ * partitioned one, both PostgreSQL or both MySQL</li>
+ * <li>{@code --username=petclinic} and {@code --password=petclinic}</li>
+ * <li>{@code --concurrency=16} and {@code --requests=4000} per database</li>
+ * </ul>
+ */
+public class VisitPartitionsBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		// devtools would restart the application by running this method again
+		System.setProperty("spring.devtools.restart.enabled", "false");
+		String current = null;
+		String partitioned = null;
+		String username = "petclinic";
+		String password = "petclinic";
+		int concurrency = 16;
+		int requests = 4000;
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+			String value = arg.substring(separator + 1);
+			switch (arg.substring(2, Math.max(separator, 2))) {
+				case "current" -> current = value;
+				case "partitioned" -> partitioned = value;
+				case "username" -> username = value;
+				case "password" -> password = value;
+				case "concurrency" -> concurrency = Integer.parseInt(value);
+				case "requests" -> requests = Integer.parseInt(value);
+				default -> throw new IllegalArgumentException("Unknown argument " + arg);
+			}
+		}
+		if (current == null || partitioned == null) {
+			throw new IllegalArgumentException("Both --current and --partitioned databases are required");
+		}
+		Result plain = run(current, false, username, password, concurrency, requests);
+		Result split = run(partitioned, true, username, password, concurrency, requests);
+		System.out.printf("%n%-12s %-10s %10s %10s %10s %8s%n", "layout", "request", "p50 ms", "p99 ms", "max ms",
+				"errors");
+		plain.print("current");
+		split.print("partitioned");
+	}
+
+	private static Result run(String url, boolean partitioned, String username, String password, int concurrency,
+			int requests) throws Exception {
+		String database = url.startsWith("jdbc:mysql:") ? "mysql" : "postgres";
+		String[] profiles = partitioned ? new String[] { database, "partitioned" } : new String[] { database };
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(PetClinicApplication.class)
+			.profiles(profiles)
+			.properties("server.port=0", "spring.datasource.url=" + url, "spring.datasource.username=" + username,
+					"spring.datasource.password=" + password, "spring.sql.init.mode=never", "spring.cache.type=none",
+					// the full-text index of millions of owners is only built once
+					"petclinic.search.index-dir=target/benchmark/search-" + (partitioned ? "partitioned" : "current"),
+					"spring.docker.compose.enabled=false", "logging.level.root=WARN")
+			.run()) {
+			int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+			List<int[]> pets = samplePets(context.getBean(JdbcTemplate.class), requests);
+			HttpClient client = HttpClient.newBuilder()
+				.connectTimeout(Duration.ofSeconds(10))
+				.followRedirects(HttpClient.Redirect.NEVER)
+				.build();
+			load(client, port, concurrency, pets.subList(0, pets.size() / 10), new long[pets.size() / 10]);
+			long[] latencies = new long[pets.size()];
+			AtomicIntegerArray errors = load(client, port, concurrency, pets, latencies);
+			return new Result(latencies, errors);
+		}
+	}
+
+	/**
+	 * Return random {@code (owner id, pet id)} pairs, the same ones for both databases.
+	 */
+	private static List<int[]> samplePets(JdbcTemplate jdbc, int count) {
+		Integer maxId = jdbc.queryForObject("SELECT MAX(id) FROM pets", Integer.class);
+		Random random = new Random(42);
+		List<int[]> pets = new ArrayList<>(count);
+		while (pets.size() < count) {
+			int petId = 1 + random.nextInt(maxId);
+			List<Integer> owner = jdbc.queryForList("SELECT owner_id FROM pets WHERE id = ? AND owner_id IS NOT NULL",
+					Integer.class, petId);
+			if (!owner.isEmpty()) {
+				pets.add(new int[] { owner.get(0), petId });
+			}
+		}
+		return pets;
+	}
+
+	/**
+	 * Show the owner of every even pet and book a visit for every odd one.
+	 * @return the number of failed owner pages and bookings
+	 */
+	private static AtomicIntegerArray load(HttpClient client, int port, int concurrency, List<int[]> pets,
+			long[] latencies) throws InterruptedException {
+		AtomicInteger next = new AtomicInteger();
+		AtomicIntegerArray errors = new AtomicIntegerArray(2);
+		String today = LocalDate.now().toString();
+		ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+		for (int i = 0; i < concurrency; i++) {
+			clients.execute(() -> {
+				for (int n = next.getAndIncrement(); n < pets.size(); n = next.getAndIncrement()) {
+					int[] pet = pets.get(n);
+					String owner = "http://localhost:" + port + "/owners/" + pet[0];
+					HttpRequest request = (n % 2 == 0) ? HttpRequest.newBuilder(URI.create(owner)).build()
+							: HttpRequest.newBuilder(URI.create(owner + "/pets/" + pet[1] + "/visits/new"))
+								.header("Content-Type", "application/x-www-form-urlencoded")
+								.POST(HttpRequest.BodyPublishers.ofString("date=" + today + "&description=benchmark"))
+								.build();
+					long start = System.nanoTime();
+					try {
+						HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+						if (response.statusCode() >= 400) {
+							errors.incrementAndGet(n % 2);
+						}
+					}
+					catch (Exception ex) {
+						errors.incrementAndGet(n % 2);
+					}
+					latencies[n] = System.nanoTime() - start;
+				}
+			});
+		}
+		clients.shutdown();
+		clients.awaitTermination(1, TimeUnit.HOURS);
+		return errors;
+	}
+
+	private record Result(long[] latencies, AtomicIntegerArray errors) {
+
+		void print(String layout) {
+			print(layout, "owner page", 0);
+			print(layout, "booking", 1);
+		}
+
+		private void print(String layout, String request, int parity) {
+			long[] sorted = IntStream.range(0, this.latencies.length)
+				.filter((i) -> i % 2 == parity)
+				.mapToLong((i) -> this.latencies[i])
+				.sorted()
+				.toArray();
+			System.out.printf("%-12s %-10s %10.1f %10.1f %10.1f %8d%n", layout, request, millis(sorted, 0.50),
+					millis(sorted, 0.99), sorted[sorted.length - 1] / 1e6, this.errors.get(parity));
+		}
+
+		private static double millis(long[] sorted, double percentile) {
+			return sorted[(int) Math.ceil(percentile * sorted.length) - 1] / 1e6;
+		}
+
+	}
+
+}
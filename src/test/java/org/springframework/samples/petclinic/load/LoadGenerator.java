@@ -0,0 +1,194 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.load;
+
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.samples.petclinic.PetClinicApplication;
+
+/**
+ * Self-contained load generator replaying the {@link LoadScenario} with a number of
+ * concurrent users for a fixed duration. Each user runs on a virtual thread (on a
+ * platform thread before Java 21) and all users share one JDK {@link HttpClient}. Not a
+ * test: run the main method, optionally with any of
+ *
+ * <ul>
+ * <li>{@code --users=500} the number of concurrent users</li>
+ * <li>{@code --duration=60s} how long users keep starting new iterations</li>
+ * <li>{@code --ramp-up=10s} the time over which users are started</li>
+ * <li>{@code --think-time=300ms} the pause before each request</li>
+ * <li>{@code --owners=10} the number of owners, from id 1, the scenario cycles over</li>
+ * <li>{@code --base-url=http://localhost:8080} a running application to load, by default
+ * the application is started on a random port</li>
+ * <li>{@code --max-p99=500ms} and {@code --min-throughput=100} thresholds that make the
+ * process exit with status 1 when missed</li>
+ * <li>{@code --histogram-dir=target/load} where the per-step {@code .hgrm} files are
+ * written</li>
+ * </ul>
+ *
+ * Any other arguments, such as {@code --spring.profiles.active=virtual-threads}, are
+ * passed to the started application.
+ */
+public class LoadGenerator {
+
+	private final Settings settings;
+
+	private final HttpClient client;
+
+	LoadGenerator(Settings settings) {
+		this.settings = settings;
+		this.client = HttpClient.newBuilder()
+			.connectTimeout(Duration.ofSeconds(10))
+			.followRedirects(HttpClient.Redirect.NEVER)
+			.build();
+	}
+
+	public static void main(String[] args) throws Exception {
+		// devtools would restart the application by running this method again
+		System.setProperty("spring.devtools.restart.enabled", "false");
+		List<String> applicationArgs = new ArrayList<>();
+		Settings settings = Settings.parse(args, applicationArgs);
+		LoadReport report;
+		if (settings.baseUrl() != null) {
+			report = new LoadGenerator(settings).run();
+		}
+		else {
+			try (ConfigurableApplicationContext context = new SpringApplicationBuilder(PetClinicApplication.class)
+				.properties("server.port=0", "spring.docker.compose.enabled=false", "logging.level.root=WARN")
+				.run(applicationArgs.toArray(new String[0]))) {
+				int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+				report = new LoadGenerator(settings.withBaseUrl("http://localhost:" + port)).run();
+			}
+		}
+		report.print(System.out);
+		report.writeHistograms(settings.histogramDir());
+		List<String> violations = report.violations(settings.maxP99(), settings.minThroughput());
+		violations.forEach((violation) -> System.out.println("FAILED: " + violation));
+		System.exit(violations.isEmpty() ? 0 : 1);
+	}
+
+	/**
+	 * Run the scenario with the configured users until the configured duration has passed
+	 * and every user has finished its current iteration.
+	 * @return the recorded latencies and errors
+	 */
+	LoadReport run() throws InterruptedException {
+		LoadReport report = new LoadReport();
+		LoadScenario scenario = new LoadScenario(this.client, this.settings, report);
+		ExecutorService users = newUserExecutor();
+		long start = System.nanoTime();
+		long deadline = start + this.settings.rampUp().toNanos() + this.settings.duration().toNanos();
+		for (int i = 0; i < this.settings.users(); i++) {
+			int user = i;
+			long delay = this.settings.rampUp().toMillis() * i / this.settings.users();
+			users.execute(() -> {
+				try {
+					Thread.sleep(delay);
+					scenario.run(user, deadline);
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		}
+		users.shutdown();
+		if (!users.awaitTermination(1, TimeUnit.HOURS)) {
+			users.shutdownNow();
+		}
+		report.finish(System.nanoTime() - start);
+		return report;
+	}
+
+	private static ExecutorService newUserExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (ReflectiveOperationException ex) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	/**
+	 * Settings of a load run, see {@link LoadGenerator} for their meaning.
+	 */
+	record Settings(String baseUrl, int users, Duration duration, Duration rampUp, Duration thinkTime, int owners,
+			Duration maxP99, double minThroughput, Path histogramDir) {
+
+		static Settings defaults() {
+			return new Settings(null, 500, Duration.ofSeconds(60), Duration.ofSeconds(10), Duration.ofMillis(300), 10,
+					null, 0, Path.of("target", "load"));
+		}
+
+		/**
+		 * Parse the {@code --name=value} arguments the generator knows about on top of
+		 * the {@link #defaults()}.
+		 * @param args the command line arguments
+		 * @param others where to add the arguments that are not settings
+		 */
+		static Settings parse(String[] args, List<String> others) {
+			Settings defaults = defaults();
+			String baseUrl = defaults.baseUrl;
+			int users = defaults.users;
+			Duration duration = defaults.duration;
+			Duration rampUp = defaults.rampUp;
+			Duration thinkTime = defaults.thinkTime;
+			int owners = defaults.owners;
+			Duration maxP99 = defaults.maxP99;
+			double minThroughput = defaults.minThroughput;
+			Path histogramDir = defaults.histogramDir;
+			for (String arg : args) {
+				int separator = arg.indexOf('=');
+				String name = (arg.startsWith("--") && separator > 0) ? arg.substring(2, separator) : "";
+				String value = arg.substring(separator + 1);
+				switch (name) {
+					case "base-url" -> baseUrl = value;
+					case "users" -> users = Integer.parseInt(value);
+					case "duration" -> duration = DurationStyle.detectAndParse(value);
+					case "ramp-up" -> rampUp = DurationStyle.detectAndParse(value);
+					case "think-time" -> thinkTime = DurationStyle.detectAndParse(value);
+					case "owners" -> owners = Integer.parseInt(value);
+					case "max-p99" -> maxP99 = DurationStyle.detectAndParse(value);
+					case "min-throughput" -> minThroughput = Double.parseDouble(value);
+					case "histogram-dir" -> histogramDir = Path.of(value);
+					default -> others.add(arg);
+				}
+			}
+			Settings settings = new Settings(null, users, duration, rampUp, thinkTime, owners, maxP99, minThroughput,
+					histogramDir);
+			return (baseUrl != null) ? settings.withBaseUrl(baseUrl) : settings;
+		}
+
+		Settings withBaseUrl(String baseUrl) {
+			String url = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+			return new Settings(url, this.users, this.duration, this.rampUp, this.thinkTime, this.owners, this.maxP99,
+					this.minThroughput, this.histogramDir);
+		}
+
+	}
+
+}
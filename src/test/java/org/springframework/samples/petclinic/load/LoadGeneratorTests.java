@@ -0,0 +1,64 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.samples.petclinic.load.LoadScenario.Step;
+
+/**
+ * Runs the {@link LoadGenerator} briefly against the application to check that every step
+ * of the scenario still matches the application.
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+class LoadGeneratorTests {
+
+	@LocalServerPort
+	int port;
+
+	@Test
+	void testScenarioRunsWithoutErrors(@TempDir Path histograms) throws Exception {
+		List<String> others = new ArrayList<>();
+		LoadGenerator.Settings settings = LoadGenerator.Settings.parse(new String[] { "--users=2", "--duration=2s",
+				"--ramp-up=0s", "--think-time=0ms", "--base-url=http://localhost:" + port + "/",
+				"--histogram-dir=" + histograms, "--spring.profiles.active=virtual-threads" }, others);
+		assertThat(others).containsExactly("--spring.profiles.active=virtual-threads");
+
+		LoadReport report = new LoadGenerator(settings).run();
+		for (Step step : Step.values()) {
+			assertThat(report.count(step)).as(step.label()).isPositive();
+			assertThat(report.errors(step)).as(step.label()).isZero();
+		}
+		assertThat(report.violations(Duration.ofMinutes(1), 0)).isEmpty();
+		assertThat(report.violations(Duration.ZERO, Double.MAX_VALUE)).hasSize(2);
+
+		report.writeHistograms(settings.histogramDir());
+		assertThat(histograms.resolve("new-visit.hgrm")).isNotEmptyFile();
+		assertThat(histograms.resolve("total.hgrm")).isNotEmptyFile();
+	}
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.load;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.samples.petclinic.load.LoadScenario.Step;
+
+/**
+ * Latencies and errors recorded by a {@link LoadGenerator} run, one HdrHistogram per
+ * {@link Step}. Latencies are recorded in microseconds and reported in milliseconds.
+ */
+class LoadReport {
+
+	private static final double MICROS_PER_MILLI = 1000.0;
+
+	private final Map<Step, ConcurrentHistogram> latencies = new EnumMap<>(Step.class);
+
+	private final Map<Step, LongAdder> errors = new EnumMap<>(Step.class);
+
+	private volatile long elapsedNanos;
+
+	LoadReport() {
+		for (Step step : Step.values()) {
+			this.latencies.put(step, new ConcurrentHistogram(3));
+			this.errors.put(step, new LongAdder());
+		}
+	}
+
+	void record(Step step, long micros, boolean success) {
+		this.latencies.get(step).recordValue(micros);
+		if (!success) {
+			this.errors.get(step).increment();
+		}
+	}
+
+	void recordFailure(Step step) {
+		this.errors.get(step).increment();
+	}
+
+	void finish(long elapsedNanos) {
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * Return the number of responses received for the given step, including error
+	 * responses.
+	 */
+	long count(Step step) {
+		return this.latencies.get(step).getTotalCount();
+	}
+
+	/**
+	 * Return the number of requests of the given step that failed, either with an
+	 * unexpected status or without a response.
+	 */
+	long errors(Step step) {
+		return this.errors.get(step).sum();
+	}
+
+	/**
+	 * Return the responses per second over the whole run, all steps together.
+	 */
+	double throughput() {
+		return (this.elapsedNanos > 0) ? total().getTotalCount() / (this.elapsedNanos / 1e9) : 0;
+	}
+
+	/**
+	 * Return the latency at the given percentile over all steps, in milliseconds.
+	 */
+	double percentile(double percentile) {
+		return total().getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+	}
+
+	/**
+	 * Check the run against the given thresholds.
+	 * @param maxP99 the highest acceptable 99th percentile latency over all steps, or
+	 * {@literal null} to not check latencies
+	 * @param minThroughput the lowest acceptable number of responses per second, or
+	 * {@code 0} to not check throughput
+	 * @return a description of each missed threshold, empty if all were met
+	 */
+	List<String> violations(Duration maxP99, double minThroughput) {
+		List<String> violations = new ArrayList<>();
+		if (maxP99 != null && percentile(99) > maxP99.toMillis()) {
+			violations.add(String.format("p99 latency %.1f ms exceeds %d ms", percentile(99), maxP99.toMillis()));
+		}
+		if (throughput() < minThroughput) {
+			violations.add(String.format("throughput %.1f req/s is below %.1f req/s", throughput(), minThroughput));
+		}
+		return violations;
+	}
+
+	void print(PrintStream out) {
+		double seconds = this.elapsedNanos / 1e9;
+		out.printf("%n%-16s %8s %7s %9s %9s %9s %9s %9s%n", "step", "count", "errors", "req/s", "p50 ms", "p90 ms",
+				"p99 ms", "max ms");
+		long totalErrors = 0;
+		for (Step step : Step.values()) {
+			print(out, step.label(), this.latencies.get(step), errors(step), seconds);
+			totalErrors += errors(step);
+		}
+		print(out, "total", total(), totalErrors, seconds);
+	}
+
+	private void print(PrintStream out, String label, Histogram histogram, long errors, double seconds) {
+		out.printf("%-16s %8d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n", label, histogram.getTotalCount(), errors,
+				histogram.getTotalCount() / seconds, histogram.getValueAtPercentile(50) / MICROS_PER_MILLI,
+				histogram.getValueAtPercentile(90) / MICROS_PER_MILLI,
+				histogram.getValueAtPercentile(99) / MICROS_PER_MILLI, histogram.getMaxValue() / MICROS_PER_MILLI);
+	}
+
+	/**
+	 * Write the percentile distribution of each step, and of all steps together, to
+	 * {@code <step>.hgrm} files in the given directory. The files can be plotted with the
+	 * HdrHistogram plotter.
+	 */
+	void writeHistograms(Path directory) throws IOException {
+		Files.createDirectories(directory);
+		for (Step step : Step.values()) {
+			write(directory.resolve(step.label() + ".hgrm"), this.latencies.get(step));
+		}
+		write(directory.resolve("total.hgrm"), total());
+	}
+
+	private void write(Path file, Histogram histogram) throws IOException {
+		try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+			histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+		}
+	}
+
+	private Histogram total() {
+		Histogram total = new Histogram(3);
+		this.latencies.values().forEach(total::add);
+		return total;
+	}
+
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.springframework.web.util.HtmlUtils;
+
+/**
+ * The scenario replayed by each simulated user of a {@link LoadGenerator}: the steps of
+ * the former JMeter plan, from the home page to booking a visit. Forms are submitted with
+ * the values the application rendered, so owners keep their details and only gain pets
+ * and visits.
+ */
+class LoadScenario {
+
+	private static final Pattern FORM_FIELD = Pattern
+		.compile("<input[^>]*\\sname=\"([^\"]+)\"[^>]*\\svalue=\"([^\"]*)\"");
+
+	private static final Pattern VISIT_LINK = Pattern.compile("pets/(\\d+)/visits/new");
+
+	private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+	private final HttpClient client;
+
+	private final LoadGenerator.Settings settings;
+
+	private final LoadReport report;
+
+	private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+	private final AtomicLong pets = new AtomicLong();
+
+	LoadScenario(HttpClient client, LoadGenerator.Settings settings, LoadReport report) {
+		this.client = client;
+		this.settings = settings;
+		this.report = report;
+	}
+
+	/**
+	 * Replay the scenario as the given user until the deadline has passed.
+	 * @param user the index of the user, used to spread users over different owners
+	 * @param deadline the {@link System#nanoTime()} after which no new iteration starts
+	 */
+	void run(int user, long deadline) throws InterruptedException {
+		Session session = new Session();
+		for (long iteration = 0; System.nanoTime() < deadline; iteration++) {
+			int ownerId = 1 + (int) ((user + iteration * this.settings.users()) % this.settings.owners());
+			iterate(session, ownerId, iteration);
+		}
+	}
+
+	private void iterate(Session session, int ownerId, long iteration) throws InterruptedException {
+		String owner = "/owners/" + ownerId;
+		session.get(Step.HOME, "/");
+		session.get(Step.VETS, "/vets.html");
+		session.get(Step.FIND_OWNERS, "/owners/find");
+		session.get(Step.LIST_OWNERS, "/owners?lastName=");
+		String details = session.get(Step.SHOW_OWNER, owner);
+		String form = session.get(Step.EDIT_OWNER_FORM, owner + "/edit");
+		if (form != null) {
+			session.post(Step.EDIT_OWNER, owner + "/edit", formValues(form));
+		}
+		session.get(Step.NEW_PET_FORM, owner + "/pets/new");
+		session.post(Step.NEW_PET, owner + "/pets/new", Map.of("name",
+				"Load " + this.runId + " " + this.pets.incrementAndGet(), "birthDate", "2020-12-20", "type", "cat"));
+		List<String> petIds = (details != null) ? petIds(details) : List.of();
+		if (!petIds.isEmpty()) {
+			String visit = owner + "/pets/" + petIds.get((int) (iteration % petIds.size())) + "/visits/new";
+			session.get(Step.NEW_VISIT_FORM, visit);
+			session.post(Step.NEW_VISIT, visit, Map.of("date", "2013-02-22", "description", "visit"));
+		}
+	}
+
+	private static Map<String, String> formValues(String html) {
+		Map<String, String> values = new LinkedHashMap<>();
+		Matcher matcher = FORM_FIELD.matcher(html);
+		while (matcher.find()) {
+			values.put(matcher.group(1), HtmlUtils.htmlUnescape(matcher.group(2)));
+		}
+		return values;
+	}
+
+	private static String encode(String value) {
+		return URLEncoder.encode(value, StandardCharsets.UTF_8);
+	}
+
+	private static List<String> petIds(String html) {
+		List<String> ids = new ArrayList<>();
+		Matcher matcher = VISIT_LINK.matcher(html);
+		while (matcher.find()) {
+			ids.add(matcher.group(1));
+		}
+		return ids;
+	}
+
+	/**
+	 * The requests of the scenario, each with its own latency histogram.
+	 */
+	enum Step {
+
+		HOME, VETS, FIND_OWNERS, LIST_OWNERS, SHOW_OWNER, EDIT_OWNER_FORM, EDIT_OWNER, NEW_PET_FORM, NEW_PET,
+		NEW_VISIT_FORM, NEW_VISIT;
+
+		String label() {
+			return name().toLowerCase(Locale.ROOT).replace('_', '-');
+		}
+
+	}
+
+	/**
+	 * The connection state of a single user. Redirects are not followed, so a form
+	 * submission is timed on its own and counts as successful when it redirects.
+	 */
+	private class Session {
+
+		private String cookie;
+
+		String get(Step step, String path) throws InterruptedException {
+			return send(step, request(path).GET(), false);
+		}
+
+		String post(Step step, String path, Map<String, String> form) throws InterruptedException {
+			String body = form.entrySet()
+				.stream()
+				.map((entry) -> encode(entry.getKey()) + "=" + encode(entry.getValue()))
+				.collect(Collectors.joining("&"));
+			return send(step, request(path).header("Content-Type", "application/x-www-form-urlencoded")
+				.POST(HttpRequest.BodyPublishers.ofString(body)), true);
+		}
+
+		private HttpRequest.Builder request(String path) {
+			HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(settings.baseUrl() + path))
+				.timeout(REQUEST_TIMEOUT);
+			if (this.cookie != null) {
+				request.header("Cookie", this.cookie);
+			}
+			return request;
+		}
+
+		private String send(Step step, HttpRequest.Builder request, boolean redirectExpected)
+				throws InterruptedException {
+			Thread.sleep(settings.thinkTime().toMillis());
+			long start = System.nanoTime();
+			HttpResponse<String> response;
+			try {
+				response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+			}
+			catch (IOException ex) {
+				report.recordFailure(step);
+				return null;
+			}
+			long micros = (System.nanoTime() - start) / 1000;
+			response.headers().firstValue("Set-Cookie").ifPresent((value) -> this.cookie = value.split(";", 2)[0]);
+			boolean success = response.statusCode() / 100 == (redirectExpected ? 3 : 2);
+			report.record(step, micros, success);
+			return success ? response.body() : null;
+		}
+
+	}
+
+}
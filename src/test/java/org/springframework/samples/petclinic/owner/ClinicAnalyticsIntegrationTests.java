@@ -0,0 +1,246 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.StringReader;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.TemporalAdjusters;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.owner.ClinicAnalyticsReport.CityVisits;
+import org.springframework.samples.petclinic.owner.ClinicAnalyticsReport.NewOwners;
+import org.springframework.samples.petclinic.owner.ClinicAnalyticsReport.TypeVisits;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Integration test for {@link ClinicAnalytics} and {@link ClinicAnalyticsController},
+ * checking that every write path keeps the summaries in line with the history. The visits
+ * are dated in 1990, so that the months are not shared with other tests, and the owners
+ * created are deleted again, so that the counts can be compared with fixed values.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ClinicAnalyticsIntegrationTests {
+
+	private static final YearMonth MONTH = YearMonth.of(1990, 3);
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private OwnerRepository owners;
+
+	@Autowired
+	private VisitRepository visits;
+
+	@Autowired
+	private ClinicAnalytics analytics;
+
+	@Autowired
+	private OwnerImporter importer;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Autowired
+	private ApplicationContext context;
+
+	private OwnerFixtures fixtures;
+
+	private Owner owner;
+
+	private Pet pet;
+
+	@BeforeEach
+	void setup() {
+		this.fixtures = new OwnerFixtures(this.context);
+		this.owner = this.fixtures.owner("Lytics", 1, 0);
+		this.owner.setCity("Tallyton");
+		this.pet = this.owner.getPets().get(0);
+		this.pet.setName("Counter");
+		this.pet.setType(type("lizard"));
+		this.pet.setBirthDate(LocalDate.of(1989, 1, 1));
+		this.fixtures.save(this.owner);
+	}
+
+	@AfterEach
+	void cleanup() {
+		this.fixtures.deleteAll();
+	}
+
+	@Test
+	void testBookingCountsVisit() throws Exception {
+		int lizards = typeVisits("lizard");
+		int tallyton = cityVisits("Tallyton");
+		this.mockMvc
+			.perform(post("/owners/{ownerId}/pets/{petId}/visits/new", this.owner.getId(), this.pet.getId())
+				.param("date", MONTH.atDay(15).toString())
+				.param("description", "counted"))
+			.andExpect(status().is3xxRedirection());
+
+		this.mockMvc.perform(get("/analytics").param("from", MONTH.toString()).param("to", MONTH.toString()))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.from").value("1990-03"))
+			.andExpect(jsonPath("$.visitsByType[?(@.type == 'lizard')].visits").value(lizards + 1))
+			.andExpect(jsonPath("$.visitsByCity[?(@.city == 'Tallyton')].visits").value(tallyton + 1));
+	}
+
+	@Test
+	void testMovingOwnerMovesVisits() throws Exception {
+		addVisits(2);
+		int tallyton = cityVisits("Tallyton");
+		this.mockMvc
+			.perform(post("/owners/{ownerId}/edit", this.owner.getId()).param("firstName", "Ana")
+				.param("lastName", "Lytics")
+				.param("address", "2 Summary Lane")
+				.param("city", "Movedham")
+				.param("telephone", "6085550025"))
+			.andExpect(status().is3xxRedirection());
+
+		assertThat(cityVisits("Tallyton")).isEqualTo(tallyton - 2);
+		assertThat(cityVisits("Movedham")).isEqualTo(2);
+	}
+
+	@Test
+	void testChangingPetTypeMovesVisits() {
+		addVisits(3);
+		int lizards = typeVisits("lizard");
+		int snakes = typeVisits("snake");
+		Owner owner = this.owners.findById(this.owner.getId());
+		owner.getPet("Counter").setType(type("snake"));
+		this.owners.save(owner);
+
+		assertThat(typeVisits("lizard")).isEqualTo(lizards - 3);
+		assertThat(typeVisits("snake")).isEqualTo(snakes + 3);
+	}
+
+	@Test
+	void testRegisteringOwnerCountsNewOwner() throws Exception {
+		LocalDate week = LocalDate.now().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+		int registered = newOwners(week);
+		this.mockMvc
+			.perform(post("/owners/new").param("firstName", "Nora")
+				.param("lastName", "Newcomer")
+				.param("address", "3 Summary Lane")
+				.param("city", "Tallyton")
+				.param("telephone", "6085550026"))
+			.andExpect(status().is3xxRedirection());
+		this.fixtures.track("Newcomer");
+
+		assertThat(newOwners(week)).isEqualTo(registered + 1);
+	}
+
+	@Test
+	void testImportCountsVisitsAndOwners() throws Exception {
+		LocalDate week = LocalDate.now().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+		int registered = newOwners(week);
+		this.importer.importCsv(new StringReader(
+				"owner_id,first_name,last_name,address,city,telephone,pet_name,birth_date,type,visit_date,description\n"
+						+ "i1,Ida,Importer,4 Summary Lane,Importham,6085550027,Rex,1989-05-01,dog,1990-03-02,one\n"
+						+ "i1,Ida,Importer,4 Summary Lane,Importham,6085550027,Rex,1989-05-01,dog,1990-03-09,two\n"),
+				0, (line) -> {
+				});
+		this.fixtures.track("Importer");
+
+		assertThat(cityVisits("Importham")).isEqualTo(2);
+		assertThat(newOwners(week)).isEqualTo(registered + 1);
+	}
+
+	@Test
+	void testReconcileCorrectsDrift() {
+		addVisits(1);
+		int tallyton = cityVisits("Tallyton");
+		this.jdbc.update("INSERT INTO visits (pet_id, visit_date, description) VALUES (?, ?, 'uncounted')",
+				this.pet.getId(), MONTH.atDay(20));
+		this.jdbc.update("UPDATE visits_by_month_and_type SET visits = visits + 5 WHERE visit_month = ?",
+				MONTH.atDay(1));
+		int lizards = this.jdbc.queryForObject(
+				"SELECT count(*) FROM visits v JOIN pets p ON p.id = v.pet_id JOIN types t ON t.id = p.type_id "
+						+ "WHERE t.name = 'lizard' AND v.visit_date BETWEEN ? AND ?",
+				Integer.class, MONTH.atDay(1), MONTH.atEndOfMonth());
+
+		assertThat(this.analytics.reconcile()).isGreaterThanOrEqualTo(2);
+		assertThat(cityVisits("Tallyton")).isEqualTo(tallyton + 1);
+		assertThat(typeVisits("lizard")).isEqualTo(lizards);
+		assertThat(this.analytics.reconcile()).isZero();
+	}
+
+	@Test
+	void testReconcileIsNotExposedOverHttp() throws Exception {
+		this.mockMvc.perform(post("/actuator/analytics")).andExpect(status().isNotFound());
+	}
+
+	@Test
+	void testReportRejectsReversedRange() throws Exception {
+		this.mockMvc.perform(get("/analytics").param("from", "1990-04").param("to", "1990-03"))
+			.andExpect(status().isBadRequest());
+	}
+
+	private void addVisits(int count) {
+		for (int i = 0; i < count; i++) {
+			this.visits.addVisit(this.owner.getId(), this.pet.getId(), MONTH.atDay(1 + i), "visit " + i);
+		}
+	}
+
+	private PetType type(String name) {
+		return this.owners.findPetTypes().stream().filter((type) -> type.getName().equals(name)).findFirst().get();
+	}
+
+	private int typeVisits(String type) {
+		return this.analytics.report(MONTH, MONTH)
+			.visitsByType()
+			.stream()
+			.filter((visits) -> visits.type().equals(type))
+			.mapToInt(TypeVisits::visits)
+			.sum();
+	}
+
+	private int cityVisits(String city) {
+		return this.analytics.report(MONTH, MONTH)
+			.visitsByCity()
+			.stream()
+			.filter((visits) -> visits.city().equals(city))
+			.mapToInt(CityVisits::visits)
+			.sum();
+	}
+
+	private int newOwners(LocalDate week) {
+		YearMonth month = YearMonth.from(week);
+		return this.analytics.report(month, month.plusMonths(1))
+			.newOwners()
+			.stream()
+			.filter((owners) -> owners.week().equals(week))
+			.mapToInt(NewOwners::owners)
+			.sum();
+	}
+
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.flash;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.samples.petclinic.system.StatementBudget;
+import org.springframework.test.web.servlet.MockMvc;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Integration test for {@link OwnerController} checking the number of SQL statements
+ * issued against the real (embedded) database, within the budget of each test.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class OwnerControllerIntegrationTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private OwnerRepository owners;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private ApplicationContext context;
+
+	private Statistics statistics;
+
+	private OwnerFixtures fixtures;
+
+	@BeforeEach
+	void setup() {
+		this.statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		this.fixtures = new OwnerFixtures(this.context);
+	}
+
+	@AfterEach
+	void cleanup() {
+		this.fixtures.deleteAll();
+	}
+
+	@Test
+	@StatementBudget(2)
+	void testShowOwnerStatementCountDoesNotGrowWithPets() throws Exception {
+		long singlePet = countStatementsForShowOwner(createOwner(1, 1).getId());
+		long manyPets = countStatementsForShowOwner(createOwner(8, 3).getId());
+
+		assertThat(manyPets).isEqualTo(singlePet);
+	}
+
+	@Test
+	@StatementBudget(2)
+	void testShowOwnerLoadsOwnerOnce() throws Exception {
+		// the owner with its pets, then the recent visits of all pets
+		assertThat(countStatementsForShowOwner(createOwner(2, 2).getId())).isEqualTo(2);
+	}
+
+	@Test
+	@StatementBudget(value = 2, entityLoads = 4)
+	void testShowOwnerListsOnlyRecentVisits() throws Exception {
+		Owner owner = createOwner(2, 8);
+		int petId = owner.getPets().get(0).getId();
+
+		String page = this.mockMvc.perform(get("/owners/{ownerId}", owner.getId()))
+			.andExpect(status().isOk())
+			.andReturn()
+			.getResponse()
+			.getContentAsString();
+		assertThat(page).contains("checkup 7", "checkup 3")
+			.doesNotContain("checkup 2")
+			.contains(owner.getId() + "/pets/" + petId + "/visits\">Full History");
+	}
+
+	@Test
+	@StatementBudget(3)
+	void testShowOwnerIsCachedUntilChanged() throws Exception {
+		Owner owner = createOwner(1, 1);
+		countStatementsForShowOwner(owner.getId());
+		assertThat(countStatementsForShowOwner(owner.getId())).isZero();
+
+		this.mockMvc
+			.perform(post("/owners/{ownerId}/pets/{petId}/visits/new", owner.getId(), owner.getPets().get(0).getId())
+				.param("date", "2024-01-01")
+				.param("description", "deworming"))
+			.andExpect(status().is3xxRedirection());
+		this.mockMvc.perform(get("/owners/{ownerId}", owner.getId()))
+			.andExpect(content().string(containsString("deworming")));
+	}
+
+	@Test
+	@StatementBudget(3)
+	void testShowOwnerReplacesStaleCacheEntry() throws Exception {
+		Counter stale = this.meterRegistry.counter(OwnerCache.STALE_METRIC);
+		double staleBefore = stale.count();
+		int ownerId = createOwner(1, 0).getId();
+		String etag = showOwnerETag(ownerId);
+		// a write that did not announce itself
+		this.owners.incrementVersion(ownerId);
+
+		String refreshed = this.mockMvc
+			.perform(get("/owners/{ownerId}", ownerId).header(HttpHeaders.IF_NONE_MATCH, etag))
+			.andExpect(status().isOk())
+			.andReturn()
+			.getResponse()
+			.getHeader(HttpHeaders.ETAG);
+		assertThat(refreshed).isNotEqualTo(etag);
+		assertThat(stale.count()).isEqualTo(staleBefore + 1);
+		assertThat(showOwnerETag(ownerId)).isEqualTo(refreshed);
+	}
+
+	@Test
+	@StatementBudget(1)
+	void testEditPetFormLoadsOwnerOnce() throws Exception {
+		Counter avoidedLoads = this.meterRegistry.counter(OwnerResolver.AVOIDED_LOADS_METRIC);
+		double avoidedBefore = avoidedLoads.count();
+		Owner owner = createOwner(2, 2);
+
+		this.mockMvc.perform(get("/owners/{ownerId}/pets/{petId}/edit", owner.getId(), owner.getPets().get(0).getId()))
+			.andExpect(status().isOk());
+		assertThat(avoidedLoads.count()).isEqualTo(avoidedBefore + 1);
+	}
+
+	@Test
+	@StatementBudget(1)
+	void testAutocompleteFollowsSavedOwners() throws Exception {
+		Owner owner = createOwner(0, 0);
+		owner.setLastName("Zzyzx");
+		this.owners.save(owner);
+
+		this.statistics.clear();
+		this.mockMvc.perform(get("/owners/autocomplete").param("q", "zzy"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$[0].id").value(owner.getId()))
+			.andExpect(jsonPath("$[0].lastName").value("Zzyzx"));
+		assertThat(this.statistics.getPrepareStatementCount()).isZero();
+	}
+
+	@Test
+	@StatementBudget(value = 2, entityLoads = 0)
+	void testFindOwnersListsSummaries() throws Exception {
+		createOwner(1, 1);
+		createOwner(2, 2);
+
+		this.mockMvc.perform(get("/owners").param("lastName", "Manypets"))
+			.andExpect(status().isOk())
+			.andExpect(view().name("owners/ownersList"));
+	}
+
+	@Test
+	@StatementBudget(2)
+	void testShowOwnerNotModifiedWithSingleVersionLookup() throws Exception {
+		int ownerId = createOwner(3, 2).getId();
+		String etag = showOwnerETag(ownerId);
+
+		this.statistics.clear();
+		this.mockMvc.perform(get("/owners/{ownerId}", ownerId).header(HttpHeaders.IF_NONE_MATCH, etag))
+			.andExpect(status().isNotModified());
+		assertThat(this.statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(this.statistics.getEntityLoadCount()).isZero();
+	}
+
+	@Test
+	@StatementBudget(5)
+	void testShowOwnerETagChangesWithVisitsAndPets() throws Exception {
+		Owner owner = createOwner(1, 0);
+		int petId = owner.getPets().get(0).getId();
+		String initial = showOwnerETag(owner.getId());
+
+		this.mockMvc
+			.perform(post("/owners/{ownerId}/pets/{petId}/visits/new", owner.getId(), petId).param("date", "2024-01-01")
+				.param("description", "vaccination"))
+			.andExpect(status().is3xxRedirection());
+		String afterVisit = showOwnerETag(owner.getId());
+		assertThat(afterVisit).isNotEqualTo(initial);
+
+		this.mockMvc
+			.perform(
+					post("/owners/{ownerId}/pets/{petId}/edit", owner.getId(), petId).param("id", String.valueOf(petId))
+						.param("name", "renamed")
+						.param("type", "cat")
+						.param("birthDate", "2015-01-01"))
+			.andExpect(status().is3xxRedirection());
+		assertThat(showOwnerETag(owner.getId())).isNotEqualTo(afterVisit);
+	}
+
+	@Test
+	@StatementBudget(1)
+	void testUpdateOwnerWithStaleVersionIsRejected() throws Exception {
+		Owner owner = createOwner(0, 0);
+		int stale = this.owners.findVersionById(owner.getId());
+		this.owners.incrementVersion(owner.getId());
+
+		this.mockMvc
+			.perform(post("/owners/{ownerId}/edit", owner.getId()).param("firstName", "Joe")
+				.param("lastName", "Bloggs")
+				.param("address", "123 Caramel Street")
+				.param("city", "London")
+				.param("telephone", "1316761638")
+				.param("version", String.valueOf(stale)))
+			.andExpect(status().is3xxRedirection())
+			.andExpect(flash().attributeExists("error"));
+		assertThat(this.owners.findById(owner.getId()).getLastName()).isEqualTo("Manypets");
+	}
+
+	private String showOwnerETag(int ownerId) throws Exception {
+		return this.mockMvc.perform(get("/owners/{ownerId}", ownerId))
+			.andExpect(status().isOk())
+			.andExpect(header().exists(HttpHeaders.ETAG))
+			.andReturn()
+			.getResponse()
+			.getHeader(HttpHeaders.ETAG);
+	}
+
+	private long countStatementsForShowOwner(int ownerId) throws Exception {
+		this.statistics.clear();
+		this.mockMvc.perform(get("/owners/{ownerId}", ownerId))
+			.andExpect(status().isOk())
+			.andExpect(view().name("owners/ownerDetails"));
+		return this.statistics.getPrepareStatementCount();
+	}
+
+	private Owner createOwner(int pets, int visitsPerPet) {
+		return this.fixtures.create("Manypets", pets, visitsPerPet);
+	}
+
+}
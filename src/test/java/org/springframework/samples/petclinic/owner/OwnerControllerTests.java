@@ -20,18 +20,23 @@ import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.hasProperty;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.flash;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 import org.assertj.core.util.Lists;
 import org.hamcrest.BaseMatcher;
@@ -43,18 +48,32 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.test.context.aot.DisabledInAotMode;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 /**
  * Test class for {@link OwnerController}
  *
  * @author Colin But
  */
-@WebMvcTest(OwnerController.class)
+@WebMvcTest(value = OwnerController.class, properties = "petclinic.owners.name-index.max-entries=2",
+		includeFilters = @ComponentScan.Filter(
+				value = { OwnerResolver.class, OwnerCache.class, OwnerNameIndex.class, VisitWindow.class },
+				type = FilterType.ASSIGNABLE_TYPE))
+@Import(SimpleMeterRegistry.class)
 @DisabledInNativeImage
 @DisabledInAotMode
 class OwnerControllerTests {
@@ -67,6 +86,15 @@ class OwnerControllerTests {
 	@MockBean
 	private OwnerRepository owners;
 
+	@MockBean
+	private VisitRepository visits;
+
+	@MockBean
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private OwnerNameIndex ownerNameIndex;
+
 	private Owner george() {
 		Owner george = new Owner();
 		george.setId(TEST_OWNER_ID);
@@ -86,19 +114,26 @@ class OwnerControllerTests {
 		return george;
 	};
 
+	private OwnerSummary georgeSummary() {
+		return new OwnerSummary(TEST_OWNER_ID, "George", "Franklin", "110 W. Liberty St.", "Madison", "6085551023",
+				"Max");
+	}
+
 	@BeforeEach
 	void setup() {
 
 		Owner george = george();
-		given(this.owners.findByLastName(eq("Franklin"), any(Pageable.class)))
-			.willReturn(new PageImpl<Owner>(Lists.newArrayList(george)));
+		given(this.owners.findOwnerSummariesByLastName(eq("Franklin"), any(Pageable.class)))
+			.willReturn(new PageImpl<OwnerSummary>(Lists.newArrayList(georgeSummary())));
 
 		given(this.owners.findAll(any(Pageable.class))).willReturn(new PageImpl<Owner>(Lists.newArrayList(george)));
 
-		given(this.owners.findById(TEST_OWNER_ID)).willReturn(george);
+		given(this.owners.findWithPetsById(TEST_OWNER_ID)).willReturn(george);
 		Visit visit = new Visit();
 		visit.setDate(LocalDate.now());
 		george.getPet("Max").getVisits().add(visit);
+		given(this.visits.findRecentVisits(eq(TEST_OWNER_ID), anyInt(), any())).willReturn(Map.of(1,
+				new RecentVisits(List.of(new PetVisit(1, 1, visit.getDate(), visit.getDescription())), false)));
 
 	}
 
@@ -142,15 +177,16 @@ class OwnerControllerTests {
 
 	@Test
 	void testProcessFindFormSuccess() throws Exception {
-		Page<Owner> tasks = new PageImpl<Owner>(Lists.newArrayList(george(), new Owner()));
-		Mockito.when(this.owners.findByLastName(anyString(), any(Pageable.class))).thenReturn(tasks);
+		Page<OwnerSummary> tasks = new PageImpl<OwnerSummary>(Lists.newArrayList(georgeSummary(),
+				new OwnerSummary(2, "Betty", "Davis", "638 Cardinal Ave.", "Sun Prairie", "6085551749", null)));
+		Mockito.when(this.owners.findOwnerSummariesByLastName(anyString(), any(Pageable.class))).thenReturn(tasks);
 		mockMvc.perform(get("/owners?page=1")).andExpect(status().isOk()).andExpect(view().name("owners/ownersList"));
 	}
 
 	@Test
 	void testProcessFindFormByLastName() throws Exception {
-		Page<Owner> tasks = new PageImpl<Owner>(Lists.newArrayList(george()));
-		Mockito.when(this.owners.findByLastName(eq("Franklin"), any(Pageable.class))).thenReturn(tasks);
+		Page<OwnerSummary> tasks = new PageImpl<OwnerSummary>(Lists.newArrayList(georgeSummary()));
+		Mockito.when(this.owners.findOwnerSummariesByLastName(eq("Franklin"), any(Pageable.class))).thenReturn(tasks);
 		mockMvc.perform(get("/owners?page=1").param("lastName", "Franklin"))
 			.andExpect(status().is3xxRedirection())
 			.andExpect(view().name("redirect:/owners/" + TEST_OWNER_ID));
@@ -158,8 +194,9 @@ class OwnerControllerTests {
 
 	@Test
 	void testProcessFindFormNoOwnersFound() throws Exception {
-		Page<Owner> tasks = new PageImpl<Owner>(Lists.newArrayList());
-		Mockito.when(this.owners.findByLastName(eq("Unknown Surname"), any(Pageable.class))).thenReturn(tasks);
+		Page<OwnerSummary> tasks = new PageImpl<OwnerSummary>(Lists.newArrayList());
+		Mockito.when(this.owners.findOwnerSummariesByLastName(eq("Unknown Surname"), any(Pageable.class)))
+			.thenReturn(tasks);
 		mockMvc.perform(get("/owners?page=1").param("lastName", "Unknown Surname"))
 			.andExpect(status().isOk())
 			.andExpect(model().attributeHasFieldErrors("owner", "lastName"))
@@ -168,6 +205,67 @@ class OwnerControllerTests {
 
 	}
 
+	@Test
+	void testProcessFindFormWithKeysetCursor() throws Exception {
+		OwnerSummary second = new OwnerSummary(2, "Georgina", "Franklin", "110 W. Liberty St.", "Madison", "6085551023",
+				null);
+		Window<OwnerSummary> window = Window.from(Lists.newArrayList(georgeSummary(), second),
+				i -> ScrollPosition.forward(Map.of("lastName", "Franklin", "id", i + 1)), true);
+		Mockito.when(this.owners.findOwnerSummariesByLastName("Franklin", ScrollPosition.keyset(), 2))
+			.thenReturn(window);
+		mockMvc.perform(get("/owners").param("lastName", "Franklin").param("cursor", "").param("size", "2"))
+			.andExpect(status().isOk())
+			.andExpect(model().attribute("nextCursor", not(empty())))
+			.andExpect(model().attribute("previousCursor", nullValue()))
+			.andExpect(model().attributeDoesNotExist("totalPages"))
+			.andExpect(view().name("owners/ownersList"));
+		Mockito.verify(this.owners, Mockito.never()).findOwnerSummariesByLastName(anyString(), any(Pageable.class));
+	}
+
+	@Test
+	void testProcessFindFormWithKeysetCursorSingleOwner() throws Exception {
+		Window<OwnerSummary> window = Window.from(Lists.newArrayList(georgeSummary()),
+				i -> ScrollPosition.forward(Map.of("lastName", "Franklin", "id", TEST_OWNER_ID)));
+		Mockito
+			.when(this.owners.findOwnerSummariesByLastName(eq("Franklin"), any(KeysetScrollPosition.class), anyInt()))
+			.thenReturn(window);
+		mockMvc.perform(get("/owners").param("lastName", "Franklin").param("cursor", ""))
+			.andExpect(status().is3xxRedirection())
+			.andExpect(view().name("redirect:/owners/" + TEST_OWNER_ID));
+	}
+
+	@Test
+	void testProcessFindFormWithMalformedCursor() throws Exception {
+		mockMvc.perform(get("/owners").param("lastName", "Franklin").param("cursor", "not-a-cursor"))
+			.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void testAutocompleteLastName() throws Exception {
+		given(this.owners.findOwnerNames(any(Limit.class))).willReturn(
+				List.of(new OwnerName(TEST_OWNER_ID, "George", "Franklin"), new OwnerName(2, "Betty", "Davis")));
+		this.ownerNameIndex.rebuild();
+		mockMvc.perform(get("/owners/autocomplete").param("q", "fra"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.length()").value(1))
+			.andExpect(jsonPath("$[0].id").value(TEST_OWNER_ID))
+			.andExpect(jsonPath("$[0].lastName").value("Franklin"));
+		Mockito.verify(this.owners, Mockito.never())
+			.findOwnerSummariesByLastName(anyString(), any(KeysetScrollPosition.class), anyInt());
+	}
+
+	@Test
+	void testAutocompleteLastNameWithoutIndex() throws Exception {
+		given(this.owners.findOwnerNames(any(Limit.class))).willReturn(List.of(new OwnerName(1, "George", "Franklin"),
+				new OwnerName(2, "Betty", "Davis"), new OwnerName(3, "Eduardo", "Rodriquez")));
+		this.ownerNameIndex.rebuild();
+		given(this.owners.findOwnerNamesByLastNamePrefix("fra", Limit.of(10)))
+			.willReturn(List.of(new OwnerName(TEST_OWNER_ID, "George", "Franklin")));
+		mockMvc.perform(get("/owners/autocomplete").param("q", "FRA"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$[0].lastName").value("Franklin"));
+	}
+
 	@Test
 	void testInitUpdateOwnerForm() throws Exception {
 		mockMvc.perform(get("/owners/{ownerId}/edit", TEST_OWNER_ID))
@@ -193,6 +291,21 @@ class OwnerControllerTests {
 			.andExpect(view().name("redirect:/owners/{ownerId}"));
 	}
 
+	@Test
+	void testProcessUpdateOwnerFormStaleVersion() throws Exception {
+		mockMvc
+			.perform(post("/owners/{ownerId}/edit", TEST_OWNER_ID).param("firstName", "Joe")
+				.param("lastName", "Bloggs")
+				.param("address", "123 Caramel Street")
+				.param("city", "London")
+				.param("telephone", "01616291589")
+				.param("version", "3"))
+			.andExpect(status().is3xxRedirection())
+			.andExpect(flash().attributeExists("error"))
+			.andExpect(view().name("redirect:/owners/{ownerId}"));
+		Mockito.verify(this.owners, Mockito.never()).save(any(Owner.class));
+	}
+
 	@Test
 	void testProcessUpdateOwnerFormUnchangedSuccess() throws Exception {
 		mockMvc.perform(post("/owners/{ownerId}/edit", TEST_OWNER_ID))
@@ -224,14 +337,14 @@ class OwnerControllerTests {
 			.andExpect(model().attribute("owner", hasProperty("city", is("Madison"))))
 			.andExpect(model().attribute("owner", hasProperty("telephone", is("6085551023"))))
 			.andExpect(model().attribute("owner", hasProperty("pets", not(empty()))))
-			.andExpect(model().attribute("owner", hasProperty("pets", new BaseMatcher<List<Pet>>() {
+			.andExpect(model().attribute("recentVisits", new BaseMatcher<Map<Integer, RecentVisits>>() {
 
 				@Override
 				public boolean matches(Object item) {
 					@SuppressWarnings("unchecked")
-					List<Pet> pets = (List<Pet>) item;
-					Pet pet = pets.get(0);
-					if (pet.getVisits().isEmpty()) {
+					Map<Integer, RecentVisits> recentVisits = (Map<Integer, RecentVisits>) item;
+					RecentVisits max = recentVisits.get(1);
+					if (max == null || max.visits().isEmpty()) {
 						return false;
 					}
 					return true;
@@ -241,7 +354,7 @@ class OwnerControllerTests {
 				public void describeTo(Description description) {
 					description.appendText("Max did not have any visits");
 				}
-			})))
+			}))
 			.andExpect(view().name("owners/ownerDetails"));
 	}
 
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Integration test for {@link OwnerExporter} and {@link OwnerExportController}.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class OwnerExportIntegrationTests {
+
+	private static final String COUNT_ROWS = "SELECT COUNT(*) FROM owners o LEFT JOIN pets p ON p.owner_id = o.id "
+			+ "LEFT JOIN visits v ON v.pet_id = p.id";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void testExportNdjson() throws Exception {
+		String body = this.mockMvc.perform(get("/owners/export"))
+			.andExpect(status().isOk())
+			.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+			.andExpect(header().string("Content-Disposition", "attachment; filename=\"owners.ndjson\""))
+			.andReturn()
+			.getResponse()
+			.getContentAsString();
+
+		assertThat(body).endsWith("\n");
+		List<JsonNode> rows = new ArrayList<>();
+		for (String line : body.split("\n")) {
+			rows.add(this.objectMapper.readTree(line));
+		}
+		assertThat(rows).hasSize(this.jdbc.queryForObject(COUNT_ROWS, Integer.class));
+		JsonNode george = rows.get(0);
+		assertThat(george.get("ownerId").asInt()).isEqualTo(1);
+		assertThat(george.get("lastName").asText()).isEqualTo("Franklin");
+		assertThat(george.get("petName").asText()).isEqualTo("Leo");
+		assertThat(george.get("birthDate").asText()).isEqualTo("2010-09-07");
+		assertThat(george.get("visitDate").isNull()).isTrue();
+		assertThat(rows).filteredOn((row) -> row.get("ownerId").asInt() == 6)
+			.extracting((row) -> row.get("petName").asText() + " " + row.get("visitDate").asText())
+			.containsSubsequence("Samantha 2013-01-01", "Samantha 2013-01-04", "Max 2013-01-02", "Max 2013-01-03");
+	}
+
+	@Test
+	void testExportCsv() throws Exception {
+		String body = this.mockMvc.perform(get("/owners/export").param("format", "csv"))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType("text/csv;charset=UTF-8"))
+			.andReturn()
+			.getResponse()
+			.getContentAsString();
+
+		CsvReader csv = new CsvReader(new StringReader(body));
+		assertThat(csv.next()).containsExactlyElementsOf(OwnerImporter.COLUMNS);
+		List<String[]> rows = new ArrayList<>();
+		for (String[] row = csv.next(); row != null; row = csv.next()) {
+			rows.add(row);
+		}
+		assertThat(rows).hasSize(this.jdbc.queryForObject(COUNT_ROWS, Integer.class));
+		assertThat(rows.get(0)).containsExactly("1", "George", "Franklin", "110 W. Liberty St.", "Madison",
+				"6085551023", "Leo", "2010-09-07", "cat", "", "");
+	}
+
+	@Test
+	void testCsvWriterQuotesSpecialCharacters() throws Exception {
+		StringWriter out = new StringWriter();
+		new CsvWriter(out).write("plain", "a,b", "say \"hi\"", "two\nlines", null);
+		assertThat(out).hasToString("plain,\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\",\r\n");
+		String[] record = new CsvReader(new StringReader(out.toString())).next();
+		assertThat(record).containsExactly("plain", "a,b", "say \"hi\"", "two\nlines", "");
+	}
+
+}
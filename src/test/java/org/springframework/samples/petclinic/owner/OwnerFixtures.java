@@ -0,0 +1,158 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Owners with pets and visits for the integration tests. The tests share one database and
+ * commit what they create, so every owner created or {@link #track(String) tracked}
+ * through the fixtures is deleted again by {@link #deleteAll()}, together with its pets,
+ * its visits, its analytics counts and its entries in the name index, the owner cache and
+ * the search index.
+ */
+public final class OwnerFixtures {
+
+	private final OwnerRepository owners;
+
+	private final JdbcTemplate jdbc;
+
+	private final TransactionTemplate transactions;
+
+	private final ClinicAnalytics analytics;
+
+	private final OwnerNameIndex nameIndex;
+
+	private final ApplicationEventPublisher events;
+
+	private final List<Integer> ownerIds = new ArrayList<>();
+
+	public OwnerFixtures(ApplicationContext context) {
+		this.owners = context.getBean(OwnerRepository.class);
+		this.jdbc = context.getBean(JdbcTemplate.class);
+		this.transactions = context.getBean(TransactionTemplate.class);
+		this.analytics = context.getBean(ClinicAnalytics.class);
+		this.nameIndex = context.getBean(OwnerNameIndex.class);
+		this.events = context;
+	}
+
+	/**
+	 * Create an owner without saving it. The pets are named <code>pet0</code>,
+	 * <code>pet1</code> and so on and have the first pet type. The visits of every pet
+	 * are one day apart from 2020-01-01 and described as <code>checkup 0</code>,
+	 * <code>checkup 1</code> and so on.
+	 * @param lastName the last name of the owner
+	 * @param pets the number of pets
+	 * @param visitsPerPet the number of visits of every pet
+	 * @return the owner
+	 */
+	public Owner owner(String lastName, int pets, int visitsPerPet) {
+		PetType type = this.owners.findPetTypes().get(0);
+		Owner owner = new Owner();
+		owner.setFirstName("Betty");
+		owner.setLastName(lastName);
+		owner.setAddress("1 Fixture Road");
+		owner.setCity("Fixtureville");
+		owner.setTelephone("6085550000");
+		for (int i = 0; i < pets; i++) {
+			Pet pet = new Pet();
+			pet.setName("pet" + i);
+			pet.setType(type);
+			pet.setBirthDate(LocalDate.of(2015, 1, 1));
+			for (int j = 0; j < visitsPerPet; j++) {
+				Visit visit = new Visit();
+				visit.setDate(LocalDate.of(2020, 1, 1).plusDays(j));
+				visit.setDescription("checkup " + j);
+				pet.addVisit(visit);
+			}
+			owner.addPet(pet);
+		}
+		return owner;
+	}
+
+	/**
+	 * Create and save an owner, see {@link #owner(String, int, int)}.
+	 * @param lastName the last name of the owner
+	 * @param pets the number of pets
+	 * @param visitsPerPet the number of visits of every pet
+	 * @return the saved owner
+	 */
+	public Owner create(String lastName, int pets, int visitsPerPet) {
+		return save(owner(lastName, pets, visitsPerPet));
+	}
+
+	/**
+	 * Save the given owner and delete it on {@link #deleteAll()}.
+	 * @param owner the owner
+	 * @return the saved owner
+	 */
+	public Owner save(Owner owner) {
+		this.owners.save(owner);
+		this.ownerIds.add(owner.getId());
+		return owner;
+	}
+
+	/**
+	 * Delete the owners with the given last name on {@link #deleteAll()}, for owners
+	 * created through requests or imports.
+	 * @param lastName the last name of the owners
+	 */
+	public void track(String lastName) {
+		this.ownerIds
+			.addAll(this.jdbc.queryForList("SELECT id FROM owners WHERE last_name = ?", Integer.class, lastName));
+	}
+
+	/**
+	 * Delete the owners created or tracked so far.
+	 */
+	public void deleteAll() {
+		this.transactions.executeWithoutResult((status) -> {
+			ClinicAnalytics.Deltas counts = new ClinicAnalytics.Deltas();
+			for (Integer ownerId : this.ownerIds) {
+				this.jdbc.query(
+						"SELECT v.visit_date, p.type_id, o.city FROM visits v JOIN pets p ON p.id = v.pet_id "
+								+ "JOIN owners o ON o.id = p.owner_id WHERE o.id = ? AND v.visit_date IS NOT NULL",
+						(result) -> {
+							counts.visits(result.getObject(1, LocalDate.class), result.getInt(2), result.getString(3),
+									-1);
+						}, ownerId);
+				this.jdbc.query("SELECT registered_on FROM owners WHERE id = ? AND registered_on IS NOT NULL",
+						(result) -> {
+							counts.owners(result.getObject(1, LocalDate.class), -1);
+						}, ownerId);
+				this.jdbc.update("DELETE FROM visits WHERE pet_id IN (SELECT id FROM pets WHERE owner_id = ?)",
+						ownerId);
+				this.jdbc.update("DELETE FROM pets WHERE owner_id = ?", ownerId);
+				this.jdbc.update("DELETE FROM owners WHERE id = ?", ownerId);
+				this.events.publishEvent(new OwnerChangedEvent(ownerId));
+			}
+			this.analytics.apply(counts);
+		});
+		for (Integer ownerId : this.ownerIds) {
+			this.nameIndex.remove(ownerId);
+		}
+		this.ownerIds.clear();
+	}
+
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Integration test for {@link OwnerImporter} and {@link OwnerImportController}.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class OwnerImportIntegrationTests {
+
+	private static final String HEADER = "owner_id,first_name,last_name,address,city,telephone,pet_name,birth_date,type,visit_date,description\n";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private OwnerRepository owners;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Autowired
+	private TransactionTemplate transactions;
+
+	@Autowired
+	private PetTypeCache petTypes;
+
+	@Autowired
+	private OwnerNameIndex nameIndex;
+
+	@Autowired
+	private OwnerSearchIndex searchIndex;
+
+	@Autowired
+	private ClinicAnalytics analytics;
+
+	@Test
+	void testImportOwnersPetsAndVisits() throws Exception {
+		String csv = HEADER //
+				+ "a1,Ada,Importwell,\"1 Byte St., Apt 2\",Importville,6085550101,Pixel,2019-05-01,Cat,2020-01-02,\"first\n\"\"checkup\"\"\"\n"
+				+ "a1,Ada,Importwell,\"1 Byte St., Apt 2\",Importville,6085550101,Pixel,2019-05-01,cat,2021-03-04,booster\n"
+				+ "a1,Ada,Importwell,\"1 Byte St., Apt 2\",Importville,6085550101,Kernel,2018-01-01,dog,,\n"
+				+ "b2,Bob,Importwell,2 Byte St.,Importville,6085550102,,,,,\n";
+
+		this.mockMvc.perform(multipart("/owners/import").file(file(csv)))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.rows").value(4))
+			.andExpect(jsonPath("$.owners").value(2))
+			.andExpect(jsonPath("$.pets").value(2))
+			.andExpect(jsonPath("$.visits").value(2))
+			.andExpect(jsonPath("$.rejected").value(0))
+			.andExpect(jsonPath("$.checkpoint").value(6));
+
+		Owner ada = this.owners.findById(this.jdbc.queryForObject(
+				"SELECT id FROM owners WHERE first_name = 'Ada' AND last_name = 'Importwell'", Integer.class));
+		assertThat(ada.getAddress()).isEqualTo("1 Byte St., Apt 2");
+		Pet pixel = ada.getPet("Pixel");
+		assertThat(pixel.getType().getName()).isEqualTo("cat");
+		assertThat(pixel.getVisits()).extracting(Visit::getDescription)
+			.containsExactly("first\n\"checkup\"", "booster");
+		assertThat(ada.getPet("Kernel").getVisits()).isEmpty();
+
+		this.mockMvc.perform(get("/owners/search").param("q", "pixel"))
+			.andExpect(jsonPath("$.hits[0].id").value(ada.getId()));
+		this.mockMvc.perform(get("/owners/autocomplete").param("q", "importw"))
+			.andExpect(jsonPath("$[0].firstName").value("Ada"))
+			.andExpect(jsonPath("$[1].firstName").value("Bob"));
+	}
+
+	@Test
+	void testImportReportsRejectedRows() throws Exception {
+		String csv = HEADER //
+				+ "c1,Cy,Rejectson,3 Byte St.,Importville,not-a-phone,Pip,2019-05-01,cat,,\n"
+				+ "c1,Cy,Rejectson,3 Byte St.,Importville,not-a-phone,Pip,2019-05-01,cat,,\n"
+				+ "d1,Di,Rejectson,4 Byte St.,Importville,6085550104,Pip,2019-05-01,unicorn,,\n"
+				+ "d1,Di,Rejectson,4 Byte St.,Importville,6085550104,,,,2020-01-01,orphan visit\n"
+				+ "d1,Di,Rejectson,4 Byte St.,Importville,6085550104,Pop,2019-05-01,dog,yesterday,checkup\n";
+
+		this.mockMvc.perform(multipart("/owners/import").file(file(csv)))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.owners").value(1))
+			.andExpect(jsonPath("$.pets").value(1))
+			.andExpect(jsonPath("$.visits").value(0))
+			.andExpect(jsonPath("$.rejected").value(5))
+			.andExpect(jsonPath("$.errors[0].line").value(2))
+			.andExpect(jsonPath("$.errors[0].message").value("telephone must be 1 to 10 digits"))
+			.andExpect(jsonPath("$.errors[1].message").value("owner c1 was rejected"))
+			.andExpect(jsonPath("$.errors[2].message").value("unknown pet type 'unicorn'"))
+			.andExpect(jsonPath("$.errors[3].message").value("a visit needs a pet_name"))
+			.andExpect(jsonPath("$.errors[4].line").value(6));
+	}
+
+	@Test
+	void testImportRejectsMissingColumn() throws Exception {
+		this.mockMvc.perform(multipart("/owners/import").file(file("owner_id,first_name\n")))
+			.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void testImportRejectsMalformedCsv() throws Exception {
+		String csv = HEADER //
+				+ "m1,Mo,Malformed,6 Byte St.,Importville,6085550106,,,,,\n"
+				+ "m2,Mi,Malformed,\"7 Byte St.,Importville,6085550107,,,,,\n";
+
+		this.mockMvc.perform(multipart("/owners/import").file(file(csv)))
+			.andExpect(status().isBadRequest())
+			.andExpect(jsonPath("$.malformed").value(true))
+			.andExpect(jsonPath("$.failure").value("Unterminated quoted field starting on line 3"));
+	}
+
+	@Test
+	void testImportResumesFromCheckpoint() throws Exception {
+		StringBuilder csv = new StringBuilder(HEADER);
+		for (int i = 0; i < 6; i++) {
+			csv.append("r" + i + ",Rae,Resumer,5 Byte St.,Importville,608555010" + i + ",Rex,2019-05-01,dog,2020-01-0"
+					+ (i + 1) + ",visit\n");
+		}
+		OwnerImporter importer = new OwnerImporter(this.jdbc, this.transactions, this.petTypes, this.nameIndex,
+				this.searchIndex, this.analytics, 2, 100);
+		List<Long> checkpoints = new ArrayList<>();
+		assertThatIllegalStateException()
+			.isThrownBy(() -> importer.importCsv(new StringReader(csv.toString()), 0, (line) -> {
+				checkpoints.add(line);
+				if (checkpoints.size() == 2) {
+					throw new IllegalStateException("crash");
+				}
+			}));
+		assertThat(checkpoints).containsExactly(3L, 5L);
+		assertThat(countResumers()).isEqualTo(4);
+
+		OwnerImportReport report = importer.importCsv(new StringReader(csv.toString()), 5, (line) -> {
+		});
+		assertThat(report.completed()).isTrue();
+		assertThat(report.rows()).isEqualTo(2);
+		assertThat(report.checkpoint()).isEqualTo(7);
+		assertThat(countResumers()).isEqualTo(6);
+	}
+
+	private int countResumers() {
+		return this.jdbc.queryForObject("SELECT COUNT(*) FROM owners WHERE last_name = 'Resumer'", Integer.class);
+	}
+
+	private static MockMultipartFile file(String csv) {
+		return new MockMultipartFile("file", "clinic.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+/**
+ * Test class for {@link OwnerNameIndex}
+ */
+@ExtendWith(MockitoExtension.class)
+@DisabledInNativeImage
+class OwnerNameIndexTests {
+
+	@Mock
+	private OwnerRepository owners;
+
+	private OwnerNameIndex index(int maxEntries) {
+		given(this.owners.findOwnerNames(any(Limit.class)))
+			.willReturn(List.of(new OwnerName(1, "George", "Franklin"), new OwnerName(4, "Harold", "Davis"),
+					new OwnerName(2, "Betty", "Davis"), new OwnerName(6, "Jean", "Coleman")));
+		OwnerNameIndex index = new OwnerNameIndex(this.owners, maxEntries);
+		index.rebuild();
+		return index;
+	}
+
+	@Test
+	void shouldFindByLastNamePrefixIgnoringCase() {
+		OwnerNameIndex index = index(10);
+		assertThat(index.isComplete()).isTrue();
+		assertThat(index.findByLastNamePrefix("da", 10)).extracting(OwnerName::id).containsExactly(2, 4);
+		assertThat(index.findByLastNamePrefix("", 3)).extracting(OwnerName::lastName)
+			.containsExactly("Coleman", "Davis", "Davis");
+		assertThat(index.findByLastNamePrefix("Daviss", 10)).isEmpty();
+	}
+
+	@Test
+	void shouldFollowRenamedOwners() {
+		OwnerNameIndex index = index(10);
+		Owner betty = new Owner();
+		betty.setId(2);
+		betty.setFirstName("Betty");
+		betty.setLastName("Black");
+		index.put(betty);
+
+		assertThat(index.findByLastNamePrefix("davis", 10)).extracting(OwnerName::id).containsExactly(4);
+		assertThat(index.findByLastNamePrefix("black", 10)).extracting(OwnerName::id).containsExactly(2);
+
+		index.remove(2);
+		assertThat(index.findByLastNamePrefix("black", 10)).isEmpty();
+	}
+
+	@Test
+	void shouldGiveUpWhenOverCapacity() {
+		OwnerNameIndex index = index(3);
+		assertThat(index.isComplete()).isFalse();
+		assertThat(index.findByLastNamePrefix("", 10)).isEmpty();
+
+		index = index(4);
+		Owner owner = new Owner();
+		owner.setId(99);
+		owner.setLastName("Schultz");
+		index.put(owner);
+		assertThat(index.isComplete()).isFalse();
+	}
+
+	@Test
+	void shouldKeepAnsweringFromTheCurrentIndexWhileRebuilding() {
+		OwnerNameIndex index = index(10);
+		given(this.owners.findOwnerNames(any(Limit.class))).willAnswer((invocation) -> {
+			assertThat(index.isComplete()).isTrue();
+			assertThat(index.findByLastNamePrefix("da", 10)).extracting(OwnerName::id).containsExactly(2, 4);
+			return List.of(new OwnerName(2, "Betty", "Davis"), new OwnerName(8, "Maria", "Escobito"));
+		});
+		index.rebuild();
+
+		assertThat(index.findByLastNamePrefix("", 10)).extracting(OwnerName::id).containsExactly(2, 8);
+	}
+
+	@Test
+	void shouldComeBackOnceUnderCapacity() {
+		OwnerNameIndex index = index(3);
+		assertThat(index.isComplete()).isFalse();
+
+		given(this.owners.findOwnerNames(any(Limit.class)))
+			.willReturn(List.of(new OwnerName(1, "George", "Franklin"), new OwnerName(6, "Jean", "Coleman")));
+		index.rebuildIfIncomplete();
+		assertThat(index.isComplete()).isTrue();
+		assertThat(index.findByLastNamePrefix("fra", 10)).extracting(OwnerName::id).containsExactly(1);
+	}
+
+}
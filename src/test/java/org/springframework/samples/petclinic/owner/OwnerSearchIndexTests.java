@@ -0,0 +1,149 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Test class for {@link OwnerSearchIndex}
+ */
+@ExtendWith(MockitoExtension.class)
+@DisabledInNativeImage
+class OwnerSearchIndexTests {
+
+	@Mock
+	private OwnerRepository owners;
+
+	@Mock
+	private VisitRepository visits;
+
+	private final VisitWindow allVisits = new VisitWindow(false, 24, -1);
+
+	@TempDir
+	private Path indexDir;
+
+	@Test
+	void shouldSearchReindexedOwnersBeforeTheyAreCommitted() throws IOException {
+		Owner owner = new Owner();
+		owner.setId(1);
+		owner.setFirstName("George");
+		owner.setLastName("Franklin");
+		given(this.owners.findAllById(List.of(1))).willReturn(List.of(owner));
+		OwnerSearchIndex index = new OwnerSearchIndex(this.owners, this.visits, this.allVisits,
+				this.indexDir.toString());
+		try {
+			index.reindex(1);
+			assertThat(index.search("franklin", 0, 10).totalHits()).isEqualTo(1);
+			assertThat(committedDocs()).isZero();
+
+			index.commit();
+			assertThat(committedDocs()).isOne();
+		}
+		finally {
+			index.destroy();
+		}
+	}
+
+	@Test
+	void shouldReindexOwnersWhileRebuilding() throws Exception {
+		Owner betty = owner(2, "Davis");
+		Owner renamed = owner(2, "Renamed");
+		given(this.owners.findOwnerIdsAfter(eq(0), any())).willReturn(List.of(1, 2));
+		given(this.owners.findOwnerIdsAfter(eq(2), any())).willReturn(List.of());
+		given(this.owners.findAllById(List.of(2))).willReturn(List.of(renamed));
+		OwnerSearchIndex index = new OwnerSearchIndex(this.owners, this.visits, this.allVisits,
+				this.indexDir.toString());
+		given(this.owners.findAllById(List.of(1, 2))).willAnswer((invocation) -> {
+			// the owner changes after the rebuild has read it, without waiting for it
+			CompletableFuture.runAsync(() -> index.reindex(2)).get(10, TimeUnit.SECONDS);
+			return List.of(owner(1, "Franklin"), betty);
+		});
+		try {
+			assertThat(index.rebuild()).isEqualTo(2);
+			assertThat(index.search("renamed", 0, 10).totalHits()).isOne();
+			assertThat(index.search("davis", 0, 10).totalHits()).isZero();
+			assertThat(committedDocs()).isEqualTo(2);
+		}
+		finally {
+			index.destroy();
+		}
+	}
+
+	@Test
+	void shouldOnlyIndexVisitsInsideTheWindow() throws IOException {
+		Owner owner = owner(1, "Franklin");
+		Pet pet = new Pet();
+		pet.setName("Leo");
+		owner.addPet(pet);
+		pet.setId(1);
+		given(this.owners.findAllWithPetsById(List.of(1))).willReturn(List.of(owner));
+		given(this.visits.findVisitsSince(eq(List.of(1)), any()))
+			.willReturn(List.of(new PetVisit(1, 1, LocalDate.now(), "rabies shot")));
+		OwnerSearchIndex index = new OwnerSearchIndex(this.owners, this.visits, new VisitWindow(true, 24, -1),
+				this.indexDir.toString());
+		try {
+			index.reindex(1);
+			assertThat(index.search("rabies", 0, 10).totalHits()).isOne();
+			then(this.visits).should().findVisitsSince(List.of(1), LocalDate.now().withDayOfMonth(1).minusMonths(24));
+			then(this.owners).should(never()).findAllById(any());
+		}
+		finally {
+			index.destroy();
+		}
+	}
+
+	private static Owner owner(int id, String lastName) {
+		Owner owner = new Owner();
+		owner.setId(id);
+		owner.setFirstName("Test");
+		owner.setLastName(lastName);
+		return owner;
+	}
+
+	private int committedDocs() throws IOException {
+		try (FSDirectory directory = FSDirectory.open(this.indexDir)) {
+			if (!DirectoryReader.indexExists(directory)) {
+				return 0;
+			}
+			try (DirectoryReader reader = DirectoryReader.open(directory)) {
+				return reader.numDocs();
+			}
+		}
+	}
+
+}
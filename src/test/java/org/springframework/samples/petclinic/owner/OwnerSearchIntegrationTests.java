@@ -0,0 +1,95 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Integration test for {@link OwnerSearchController} and the {@link OwnerSearchIndex}
+ * behind it.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class OwnerSearchIntegrationTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void testSearchByPetName() throws Exception {
+		this.mockMvc.perform(get("/owners/search").param("q", "leo"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.totalHits").value(1))
+			.andExpect(jsonPath("$.hits[0].id").value(1))
+			.andExpect(jsonPath("$.hits[0].lastName").value("Franklin"));
+	}
+
+	@Test
+	void testSearchRanksLastNameAboveCity() throws Exception {
+		this.mockMvc.perform(get("/owners/search").param("q", "madison OR davis"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.hits[0].lastName").value("Davis"))
+			.andExpect(jsonPath("$.hits[1].lastName").value("Davis"));
+	}
+
+	@Test
+	void testSearchPaginates() throws Exception {
+		this.mockMvc.perform(get("/owners/search").param("q", "madison").param("page", "1").param("size", "2"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.page").value(1))
+			.andExpect(jsonPath("$.hits.length()").value(2))
+			.andExpect(jsonPath("$.totalHits").value(4));
+	}
+
+	@Test
+	void testSearchRejectsBlankQuery() throws Exception {
+		this.mockMvc.perform(get("/owners/search").param("q", " ")).andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void testSearchRejectsPageBeyondResultWindow() throws Exception {
+		this.mockMvc
+			.perform(get("/owners/search").param("q", "madison")
+				.param("page", String.valueOf(Integer.MAX_VALUE))
+				.param("size", "50"))
+			.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void testSearchFindsNewVisitDescription() throws Exception {
+		this.mockMvc.perform(get("/owners/search").param("q", "hiccups")).andExpect(jsonPath("$.totalHits").value(0));
+
+		this.mockMvc
+			.perform(post("/owners/{ownerId}/pets/{petId}/visits/new", 6, 7).param("date", "2023-01-01")
+				.param("description", "Persistent hiccups"))
+			.andExpect(status().is3xxRedirection());
+
+		this.mockMvc.perform(get("/owners/search").param("q", "hiccups"))
+			.andExpect(jsonPath("$.totalHits").value(1))
+			.andExpect(jsonPath("$.hits[0].id").value(6));
+	}
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.samples.petclinic.system.StatementBudget;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Integration test for {@link PetController} keeping each request within its budget of
+ * SQL statements against the real (embedded) database.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class PetControllerIntegrationTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private OwnerRepository owners;
+
+	@Autowired
+	private ApplicationContext context;
+
+	private OwnerFixtures fixtures;
+
+	private Owner owner;
+
+	@BeforeEach
+	void setup() {
+		this.fixtures = new OwnerFixtures(this.context);
+		this.owner = this.fixtures.create("Petsworth", 3, 1);
+	}
+
+	@AfterEach
+	void cleanup() {
+		this.fixtures.deleteAll();
+	}
+
+	@Test
+	@StatementBudget(1)
+	void testInitCreationForm() throws Exception {
+		this.mockMvc.perform(get("/owners/{ownerId}/pets/new", this.owner.getId()))
+			.andExpect(status().isOk())
+			.andExpect(view().name("pets/createOrUpdatePetForm"));
+	}
+
+	@Test
+	@StatementBudget(6)
+	void testProcessCreationForm() throws Exception {
+		this.mockMvc
+			.perform(post("/owners/{ownerId}/pets/new", this.owner.getId()).param("name", "Newcomer")
+				.param("type", "dog")
+				.param("birthDate", "2023-02-12"))
+			.andExpect(status().is3xxRedirection());
+		assertThat(this.owners.findById(this.owner.getId()).getPet("Newcomer")).isNotNull();
+	}
+
+	@Test
+	@StatementBudget(value = 1, entityLoads = 5)
+	void testInitUpdateForm() throws Exception {
+		this.mockMvc.perform(get("/owners/{ownerId}/pets/{petId}/edit", this.owner.getId(), petId()))
+			.andExpect(status().isOk())
+			.andExpect(view().name("pets/createOrUpdatePetForm"));
+	}
+
+	@Test
+	@StatementBudget(4)
+	void testProcessUpdateForm() throws Exception {
+		this.mockMvc
+			.perform(post("/owners/{ownerId}/pets/{petId}/edit", this.owner.getId(), petId())
+				.param("id", String.valueOf(petId()))
+				.param("name", "renamed")
+				.param("type", "cat")
+				.param("birthDate", "2015-01-01"))
+			.andExpect(status().is3xxRedirection());
+		assertThat(this.owners.findById(this.owner.getId()).getPet("renamed")).isNotNull();
+	}
+
+	private int petId() {
+		return this.owner.getPets().get(0).getId();
+	}
+
+}
@@ -18,6 +18,8 @@ package org.springframework.samples.petclinic.owner;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.times;
 
 import java.text.ParseException;
 import java.util.ArrayList;
@@ -49,7 +51,7 @@ class PetTypeFormatterTests {
 
 	@BeforeEach
 	void setup() {
-		this.petTypeFormatter = new PetTypeFormatter(pets);
+		this.petTypeFormatter = new PetTypeFormatter(new PetTypeCache(pets));
 	}
 
 	@Test
@@ -67,6 +69,14 @@ class PetTypeFormatterTests {
 		assertThat(petType.getName()).isEqualTo("Bird");
 	}
 
+	@Test
+	void shouldReadPetTypesOnce() throws ParseException {
+		given(this.pets.findPetTypes()).willReturn(makePetTypes());
+		petTypeFormatter.parse("Bird", Locale.ENGLISH);
+		petTypeFormatter.parse("Dog", Locale.ENGLISH);
+		then(this.pets).should(times(1)).findPetTypes();
+	}
+
 	@Test
 	void shouldThrowParseException() throws ParseException {
 		given(this.pets.findPetTypes()).willReturn(makePetTypes());
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.samples.petclinic.system.StatementBudget;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Integration test for {@link VisitController} keeping each request within its budget of
+ * SQL statements against the real (embedded) database.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class VisitControllerIntegrationTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private OwnerRepository owners;
+
+	@Autowired
+	private VisitRepository visits;
+
+	@Autowired
+	private ApplicationContext context;
+
+	private OwnerFixtures fixtures;
+
+	private Owner owner;
+
+	private Pet pet;
+
+	@BeforeEach
+	void setup() {
+		this.fixtures = new OwnerFixtures(this.context);
+		this.owner = this.fixtures.create("Visitson", 1, 3);
+		this.pet = this.owner.getPets().get(0);
+	}
+
+	@AfterEach
+	void cleanup() {
+		this.fixtures.deleteAll();
+	}
+
+	@Test
+	@StatementBudget(value = 1, entityLoads = 3)
+	void testInitNewVisitForm() throws Exception {
+		this.mockMvc.perform(get("/owners/{ownerId}/pets/{petId}/visits/new", this.owner.getId(), this.pet.getId()))
+			.andExpect(status().isOk())
+			.andExpect(view().name("pets/createOrUpdateVisitForm"));
+	}
+
+	@Test
+	@StatementBudget(3)
+	void testProcessNewVisitForm() throws Exception {
+		this.mockMvc
+			.perform(post("/owners/{ownerId}/pets/{petId}/visits/new", this.owner.getId(), this.pet.getId())
+				.param("date", "2024-01-01")
+				.param("description", "vaccination"))
+			.andExpect(status().is3xxRedirection());
+		assertThat(this.owners.findById(this.owner.getId()).getPet(this.pet.getName()).getVisits()).hasSize(4);
+	}
+
+	@Test
+	@StatementBudget(1)
+	void testProcessNewVisitFormHasErrors() throws Exception {
+		this.mockMvc
+			.perform(post("/owners/{ownerId}/pets/{petId}/visits/new", this.owner.getId(), this.pet.getId())
+				.param("date", "2024-01-01"))
+			.andExpect(status().isOk())
+			.andExpect(view().name("pets/createOrUpdateVisitForm"));
+	}
+
+	@Test
+	@StatementBudget(value = 3, entityLoads = 3)
+	void testShowVisitHistoryPages() throws Exception {
+		for (int i = 3; i < 25; i++) {
+			this.visits.addVisit(this.owner.getId(), this.pet.getId(), LocalDate.of(2020, 1, 1).plusMonths(i),
+					"checkup " + i);
+		}
+
+		List<?> firstPage = (List<?>) this.mockMvc
+			.perform(get("/owners/{ownerId}/pets/{petId}/visits", this.owner.getId(), this.pet.getId()))
+			.andExpect(status().isOk())
+			.andExpect(view().name("pets/visitHistory"))
+			.andExpect(model().attribute("totalPages", 2))
+			.andReturn()
+			.getModelAndView()
+			.getModel()
+			.get("listVisits");
+		assertThat(firstPage).hasSize(20).first().extracting("description").isEqualTo("checkup 24");
+
+		this.mockMvc
+			.perform(get("/owners/{ownerId}/pets/{petId}/visits", this.owner.getId(), this.pet.getId()).param("page",
+					"2"))
+			.andExpect(status().isOk())
+			.andExpect(model().attribute("currentPage", 2))
+			.andExpect(model().attribute("listVisits", hasSize(5)))
+			.andExpect(content().string(containsString("checkup 0")));
+	}
+
+}
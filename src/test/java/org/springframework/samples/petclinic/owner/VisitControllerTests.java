@@ -16,28 +16,45 @@
 
 package org.springframework.samples.petclinic.owner;
 
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
 
+import java.time.LocalDate;
+import java.util.List;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.DisabledInNativeImage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.aot.DisabledInAotMode;
 import org.springframework.test.web.servlet.MockMvc;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 /**
  * Test class for {@link VisitController}
  *
  * @author Colin But
  */
-@WebMvcTest(VisitController.class)
+@WebMvcTest(value = VisitController.class,
+		includeFilters = @ComponentScan.Filter(value = OwnerResolver.class, type = FilterType.ASSIGNABLE_TYPE))
+@Import(SimpleMeterRegistry.class)
 @DisabledInNativeImage
 @DisabledInAotMode
 class VisitControllerTests {
@@ -46,19 +63,26 @@ class VisitControllerTests {
 
 	private static final int TEST_PET_ID = 1;
 
+	private static final LocalDate TEST_BIRTH_DATE = LocalDate.of(2020, 1, 1);
+
 	@Autowired
 	private MockMvc mockMvc;
 
 	@MockBean
 	private OwnerRepository owners;
 
+	@MockBean
+	private VisitRepository visits;
+
 	@BeforeEach
 	void init() {
 		Owner owner = new Owner();
 		Pet pet = new Pet();
 		owner.addPet(pet);
 		pet.setId(TEST_PET_ID);
-		given(this.owners.findById(TEST_OWNER_ID)).willReturn(owner);
+		pet.setBirthDate(TEST_BIRTH_DATE);
+		given(this.owners.findWithPetsById(TEST_OWNER_ID)).willReturn(owner);
+		given(this.visits.addVisit(eq(TEST_OWNER_ID), eq(TEST_PET_ID), any(), anyString())).willReturn(1);
 	}
 
 	@Test
@@ -76,6 +100,8 @@ class VisitControllerTests {
 				.param("description", "Visit Description"))
 			.andExpect(status().is3xxRedirection())
 			.andExpect(view().name("redirect:/owners/{ownerId}"));
+		then(this.visits).should().addVisit(eq(TEST_OWNER_ID), eq(TEST_PET_ID), any(), eq("Visit Description"));
+		then(this.owners).shouldHaveNoInteractions();
 	}
 
 	@Test
@@ -88,4 +114,17 @@ class VisitControllerTests {
 			.andExpect(view().name("pets/createOrUpdateVisitForm"));
 	}
 
+	@Test
+	void testShowVisitHistory() throws Exception {
+		PetVisit visit = new PetVisit(TEST_PET_ID, 1, LocalDate.of(2024, 1, 1), "Visit Description");
+		given(this.visits.findVisitHistory(TEST_OWNER_ID, TEST_PET_ID, TEST_BIRTH_DATE, PageRequest.of(1, 20)))
+			.willReturn(new PageImpl<>(List.of(visit), PageRequest.of(1, 20), 21));
+		mockMvc.perform(get("/owners/{ownerId}/pets/{petId}/visits", TEST_OWNER_ID, TEST_PET_ID).param("page", "2"))
+			.andExpect(status().isOk())
+			.andExpect(model().attribute("listVisits", hasSize(1)))
+			.andExpect(model().attribute("currentPage", 2))
+			.andExpect(model().attribute("totalPages", 2))
+			.andExpect(view().name("pets/visitHistory"));
+	}
+
 }
@@ -20,20 +20,28 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import java.time.LocalDate;
 import java.util.Collection;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.samples.petclinic.owner.Owner;
 import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.OwnerSummary;
 import org.springframework.samples.petclinic.owner.Pet;
 import org.springframework.samples.petclinic.owner.PetType;
 import org.springframework.samples.petclinic.owner.Visit;
+import org.springframework.samples.petclinic.owner.VisitRepository;
 import org.springframework.samples.petclinic.vet.Vet;
 import org.springframework.samples.petclinic.vet.VetRepository;
 import org.springframework.stereotype.Service;
@@ -79,6 +87,12 @@ class ClinicServiceTests {
 	@Autowired
 	protected VetRepository vets;
 
+	@Autowired
+	protected VisitRepository visits;
+
+	@Autowired
+	protected TestEntityManager entityManager;
+
 	Pageable pageable;
 
 	@Test
@@ -90,6 +104,37 @@ class ClinicServiceTests {
 		assertThat(owners).isEmpty();
 	}
 
+	@Test
+	void shouldFindOwnerSummariesByLastName() {
+		Page<OwnerSummary> summaries = this.owners.findOwnerSummariesByLastName("Davis", PageRequest.of(0, 5));
+		assertThat(summaries.getTotalElements()).isEqualTo(2);
+		assertThat(summaries).extracting(OwnerSummary::petNames).containsExactly("Basil", "Iggy");
+
+		OwnerSummary coleman = this.owners.findOwnerSummariesByLastName("Coleman", PageRequest.of(0, 5))
+			.getContent()
+			.get(0);
+		assertThat(coleman.firstName()).isEqualTo("Jean");
+		assertThat(coleman.petNames()).isEqualTo("Max, Samantha");
+	}
+
+	@Test
+	void shouldScrollOwnerSummariesByLastNameWithKeyset() {
+		Window<OwnerSummary> first = this.owners.findOwnerSummariesByLastName("", ScrollPosition.keyset(), 3);
+		assertThat(first).extracting(OwnerSummary::lastName).containsExactly("Black", "Coleman", "Davis");
+		assertThat(first.hasNext()).isTrue();
+
+		KeysetScrollPosition last = (KeysetScrollPosition) first.positionAt(first.size() - 1);
+		Window<OwnerSummary> second = this.owners.findOwnerSummariesByLastName("", last, 3);
+		assertThat(second).extracting(OwnerSummary::lastName).containsExactly("Davis", "Escobito", "Estaban");
+		assertThat(second.getContent().get(0).id()).isNotEqualTo(first.getContent().get(2).id());
+
+		KeysetScrollPosition start = (KeysetScrollPosition) second.positionAt(0);
+		Window<OwnerSummary> back = this.owners.findOwnerSummariesByLastName("", start.backward(), 3);
+		assertThat(back).extracting(OwnerSummary::id)
+			.containsExactlyElementsOf(first.map(OwnerSummary::id).getContent());
+		assertThat(back.hasNext()).isFalse();
+	}
+
 	@Test
 	void shouldFindSingleOwnerWithPet() {
 		Owner owner = this.owners.findById(1);
@@ -143,6 +188,15 @@ class ClinicServiceTests {
 		assertThat(petType4.getName()).isEqualTo("snake");
 	}
 
+	@Test
+	void shouldFindEachPetOnceWithItsVisits() {
+		Owner owner6 = this.owners.findById(6);
+
+		assertThat(owner6.getPets()).extracting(Pet::getName).containsExactly("Max", "Samantha");
+		assertThat(owner6.getPet("Samantha").getVisits()).hasSizeGreaterThan(1);
+		assertThat(this.owners.findAllById(List.of(6)).get(0).getPets()).hasSize(2);
+	}
+
 	@Test
 	@Transactional
 	void shouldInsertPetIntoDatabaseAndGenerateId() {
@@ -212,6 +266,25 @@ class ClinicServiceTests {
 			.allMatch(value -> value.getId() != null);
 	}
 
+	@Test
+	@Transactional
+	void shouldAddVisitWithoutLoadingOwner() {
+		int found = this.owners.findById(6).getPet(7).getVisits().size();
+
+		int inserted = this.visits.addVisit(6, 7, LocalDate.now(), "test");
+		assertThat(inserted).isEqualTo(1);
+
+		this.entityManager.clear();
+		assertThat(this.owners.findById(6).getPet(7).getVisits()).hasSize(found + 1);
+	}
+
+	@Test
+	@Transactional
+	void shouldNotAddVisitForPetOfAnotherOwner() {
+		int inserted = this.visits.addVisit(1, 7, LocalDate.now(), "test");
+		assertThat(inserted).isZero();
+	}
+
 	@Test
 	void shouldFindVisitsByPetId() throws Exception {
 		Owner owner6 = this.owners.findById(6);
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrlPattern;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.PetClinicApplication;
+import org.springframework.samples.petclinic.owner.OwnerFixtures;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.Cookie;
+
+/**
+ * Integration test for {@link ReplicaDataSourceConfiguration}, with two embedded H2
+ * databases standing in for the primary and its replica. Nothing replicates between them,
+ * so the replica lags forever.
+ */
+@SpringBootTest(classes = PetClinicApplication.class,
+		properties = { "petclinic.datasource.replica.url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1",
+				"petclinic.datasource.replica.username=sa" })
+@AutoConfigureMockMvc
+class ReplicaDataSourceIntegrationTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private OwnerRepository owners;
+
+	@Autowired
+	private HikariDataSource primaryDataSource;
+
+	@Autowired
+	private HikariDataSource replicaDataSource;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	@Autowired
+	private ApplicationContext context;
+
+	private OwnerFixtures fixtures;
+
+	@BeforeEach
+	void setup() {
+		this.fixtures = new OwnerFixtures(this.context);
+	}
+
+	@AfterEach
+	void cleanup() {
+		this.fixtures.deleteAll();
+	}
+
+	@Test
+	void testReadOnlyTransactionsUseReplica() {
+		JdbcTemplate replica = new JdbcTemplate(this.replicaDataSource);
+		replica.update("UPDATE owners SET first_name = 'Replicated' WHERE id = 1");
+		try {
+			double reads = routed("replica", "read-only");
+			assertThat(this.owners.findById(1).getFirstName()).isEqualTo("Replicated");
+			assertThat(routed("replica", "read-only")).isGreaterThan(reads);
+		}
+		finally {
+			replica.update("UPDATE owners SET first_name = 'George' WHERE id = 1");
+		}
+	}
+
+	@Test
+	void testOwnerCacheLoadsFromPrimary() throws Exception {
+		JdbcTemplate replica = new JdbcTemplate(this.replicaDataSource);
+		replica.update("UPDATE owners SET first_name = 'Lagging' WHERE id = 2");
+		try {
+			this.mockMvc.perform(get("/owners/{ownerId}", 2))
+				.andExpect(status().isOk())
+				.andExpect(content().string(not(containsString("Lagging"))));
+		}
+		finally {
+			replica.update("UPDATE owners SET first_name = 'Betty' WHERE id = 2");
+		}
+	}
+
+	@Test
+	void testPoolsReportMetrics() {
+		assertThat(this.registry.get("hikaricp.connections.max").tag("pool", "primary").gauge()).isNotNull();
+		assertThat(this.registry.get("hikaricp.connections.max").tag("pool", "replica").gauge()).isNotNull();
+	}
+
+	@Test
+	void testWritesUsePrimary() {
+		this.fixtures.create("Aryson", 0, 0);
+
+		assertThat(countAryson(this.primaryDataSource)).isOne();
+		assertThat(countAryson(this.replicaDataSource)).isZero();
+	}
+
+	@Test
+	void testClientReadsItsOwnWrites() throws Exception {
+		Cookie sticky = this.mockMvc
+			.perform(post("/owners/new").param("firstName", "Stella")
+				.param("lastName", "Stickyfingers")
+				.param("address", "2 Leader Lane")
+				.param("city", "Replicaville")
+				.param("telephone", "6085550004"))
+			.andExpect(status().is3xxRedirection())
+			.andExpect(cookie().maxAge(ReplicaStickinessInterceptor.COOKIE_NAME, 5))
+			.andReturn()
+			.getResponse()
+			.getCookie(ReplicaStickinessInterceptor.COOKIE_NAME);
+		this.fixtures.track("Stickyfingers");
+
+		this.mockMvc.perform(get("/owners").param("lastName", "Stickyfingers").cookie(sticky))
+			.andExpect(redirectedUrlPattern("/owners/*"));
+		this.mockMvc.perform(get("/owners").param("lastName", "Stickyfingers"))
+			.andExpect(status().isOk())
+			.andExpect(view().name("owners/findOwners"));
+	}
+
+	@Test
+	@DirtiesContext
+	void testUnavailableReplicaFallsBackToPrimary() {
+		this.replicaDataSource.close();
+		double fallbacks = routed("primary", "replica-unavailable");
+
+		assertThat(this.owners.findById(1).getLastName()).isEqualTo("Franklin");
+		assertThat(routed("primary", "replica-unavailable")).isEqualTo(fallbacks + 1);
+	}
+
+	private double routed(String pool, String reason) {
+		return this.registry.get(ReplicaRoutingDataSource.ROUTING_METRIC)
+			.tag("pool", pool)
+			.tag("reason", reason)
+			.counter()
+			.count();
+	}
+
+	private static int countAryson(HikariDataSource dataSource) {
+		return new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM owners WHERE last_name = 'Aryson'",
+				Integer.class);
+	}
+
+}
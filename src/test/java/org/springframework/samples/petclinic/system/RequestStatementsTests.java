@@ -0,0 +1,62 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the per-request counting of {@link RequestStatements}.
+ */
+class RequestStatementsTests {
+
+	private static final String SELECT_PET = "select p.id,p.name from pets p where p.id=?";
+
+	private final StatementInspector inspector = new RequestStatements.Inspector();
+
+	@Test
+	void shouldReportRepeatedStatements() {
+		RequestStatements.start("OwnerController#showOwner");
+		this.inspector.inspect("select o.id from owners o where o.id=?");
+		for (int i = 0; i < 3; i++) {
+			this.inspector.inspect(SELECT_PET);
+		}
+
+		RequestStatistics statistics = RequestStatements.finish(3);
+		assertThat(statistics.handler()).isEqualTo("OwnerController#showOwner");
+		assertThat(statistics.statements()).isEqualTo(4);
+		assertThat(statistics.repeatedStatements()).isEqualTo(Map.of(SELECT_PET, 3));
+	}
+
+	@Test
+	void shouldIgnoreStatementsOutsideOfRequests() {
+		this.inspector.inspect(SELECT_PET);
+		assertThat(RequestStatements.finish(1)).isNull();
+
+		RequestStatements.start("OwnerController#showOwner");
+		this.inspector.inspect(SELECT_PET);
+		this.inspector.inspect(SELECT_PET);
+		assertThat(RequestStatements.finish(3).repeatedStatements()).isEmpty();
+		this.inspector.inspect(SELECT_PET);
+		assertThat(RequestStatements.finish(1)).isNull();
+	}
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Fails a Spring test when one of the requests it performs exceeds the given number of
+ * SQL statements or entity loads, or prepares the same statement repeatedly (an N+1
+ * select). Declared on a method it overrides the budget of the class.
+ *
+ * @see StatementBudgetExtension
+ */
+@Target({ ElementType.TYPE, ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@ExtendWith(StatementBudgetExtension.class)
+public @interface StatementBudget {
+
+	/**
+	 * The maximum number of statements per request.
+	 */
+	int value();
+
+	/**
+	 * The maximum number of entities loaded per request.
+	 */
+	int entityLoads() default Integer.MAX_VALUE;
+
+	/**
+	 * Whether a request may prepare the same statement repeatedly.
+	 */
+	boolean allowRepeats() default false;
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+/**
+ * Checks the {@link RequestStatistics} published for the requests of each test against
+ * its {@link StatementBudget}. The requests have to run on the test thread, as they do
+ * with {@code MockMvc}.
+ */
+class StatementBudgetExtension implements BeforeEachCallback, AfterEachCallback {
+
+	private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace
+		.create(StatementBudgetExtension.class);
+
+	@Override
+	public void beforeEach(ExtensionContext context) {
+		List<RequestStatistics> requests = new ArrayList<>();
+		ApplicationListener<?> listener = ApplicationListener.<RequestStatistics>forPayload(requests::add);
+		applicationContext(context).addApplicationListener(listener);
+		context.getStore(NAMESPACE).put(ApplicationListener.class, listener);
+		context.getStore(NAMESPACE).put(RequestStatistics.class, requests);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void afterEach(ExtensionContext context) {
+		ApplicationListener<?> listener = context.getStore(NAMESPACE)
+			.remove(ApplicationListener.class, ApplicationListener.class);
+		applicationContext(context).removeApplicationListener(listener);
+		List<RequestStatistics> requests = context.getStore(NAMESPACE).remove(RequestStatistics.class, List.class);
+		if (context.getExecutionException().isPresent()) {
+			return;
+		}
+		StatementBudget budget = budget(context);
+		assertThat(requests).as("requests to a handler").isNotEmpty();
+		for (RequestStatistics request : requests) {
+			assertThat(request.statements()).as("statements of %s", request).isLessThanOrEqualTo(budget.value());
+			assertThat(request.entityLoads()).as("entity loads of %s", request)
+				.isLessThanOrEqualTo(budget.entityLoads());
+			if (!budget.allowRepeats()) {
+				assertThat(request.repeatedStatements()).as("repeated statements of %s", request.handler()).isEmpty();
+			}
+		}
+	}
+
+	private static StatementBudget budget(ExtensionContext context) {
+		return AnnotationSupport.findAnnotation(context.getRequiredTestMethod(), StatementBudget.class)
+			.or(() -> AnnotationSupport.findAnnotation(context.getRequiredTestClass(), StatementBudget.class))
+			.orElseThrow();
+	}
+
+	private static ConfigurableApplicationContext applicationContext(ExtensionContext context) {
+		return (ConfigurableApplicationContext) SpringExtension.getApplicationContext(context);
+	}
+
+}
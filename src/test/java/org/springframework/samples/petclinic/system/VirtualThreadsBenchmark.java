@@ -0,0 +1,128 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.samples.petclinic.PetClinicApplication;
+
+/**
+ * Compares throughput and latency of request handling on platform threads and on virtual
+ * threads. Each mode starts the application on a random port with the connection pool
+ * settings of the {@code virtual-threads} profile and is driven by a fixed number of
+ * concurrent clients, so the only difference is the request executor. Not a test: run the
+ * main method on Java 21 (on older JVMs both runs use platform threads), optionally
+ * passing the concurrency and the number of requests per run.
+ */
+public class VirtualThreadsBenchmark {
+
+	private static final List<String> PATHS = List.of("/owners/1", "/owners/3", "/owners/6", "/owners?lastName=",
+			"/owners?lastName=Davis", "/vets.html");
+
+	public static void main(String[] args) throws Exception {
+		// devtools would restart the application by running this method again
+		System.setProperty("spring.devtools.restart.enabled", "false");
+		int concurrency = (args.length > 0) ? Integer.parseInt(args[0]) : 400;
+		int requests = (args.length > 1) ? Integer.parseInt(args[1]) : 20000;
+		if (Runtime.version().feature() < 21) {
+			System.out.println(
+					"Java " + Runtime.version().feature() + " has no virtual threads, both runs use platform threads");
+		}
+		Result platform = run(false, concurrency, requests);
+		Result virtual = run(true, concurrency, requests);
+		System.out.printf("%n%-10s %12s %10s %10s %10s %8s%n", "mode", "requests/s", "p50 ms", "p99 ms", "max ms",
+				"errors");
+		platform.print("platform");
+		virtual.print("virtual");
+	}
+
+	private static Result run(boolean virtualThreads, int concurrency, int requests) throws Exception {
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(PetClinicApplication.class)
+			.properties("server.port=0", "spring.threads.virtual.enabled=" + virtualThreads,
+					"spring.datasource.hikari.maximum-pool-size=20", "spring.datasource.hikari.connection-timeout=2000",
+					"spring.docker.compose.enabled=false", "logging.level.root=WARN")
+			.run()) {
+			int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+			HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+			load(client, port, concurrency, requests / 10, new long[requests / 10]);
+			long[] latencies = new long[requests];
+			long started = System.nanoTime();
+			int errors = load(client, port, concurrency, requests, latencies);
+			long elapsed = System.nanoTime() - started;
+			return new Result(latencies, elapsed, errors);
+		}
+	}
+
+	private static int load(HttpClient client, int port, int concurrency, int requests, long[] latencies)
+			throws InterruptedException {
+		AtomicInteger next = new AtomicInteger();
+		AtomicInteger errors = new AtomicInteger();
+		ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+		for (int i = 0; i < concurrency; i++) {
+			clients.execute(() -> {
+				for (int n = next.getAndIncrement(); n < requests; n = next.getAndIncrement()) {
+					URI uri = URI.create("http://localhost:" + port + PATHS.get(n % PATHS.size()));
+					long start = System.nanoTime();
+					try {
+						HttpResponse<Void> response = client.send(HttpRequest.newBuilder(uri).build(),
+								HttpResponse.BodyHandlers.discarding());
+						if (response.statusCode() >= 400) {
+							errors.incrementAndGet();
+						}
+					}
+					catch (Exception ex) {
+						errors.incrementAndGet();
+					}
+					latencies[n] = System.nanoTime() - start;
+				}
+			});
+		}
+		clients.shutdown();
+		clients.awaitTermination(1, TimeUnit.HOURS);
+		return errors.get();
+	}
+
+	private record Result(long[] latencies, long elapsedNanos, int errors) {
+
+		void print(String mode) {
+			long[] sorted = this.latencies.clone();
+			Arrays.sort(sorted);
+			double throughput = sorted.length / (this.elapsedNanos / 1e9);
+			System.out.printf("%-10s %12.0f %10.1f %10.1f %10.1f %8d%n", mode, throughput, millis(sorted, 0.50),
+					millis(sorted, 0.99), sorted[sorted.length - 1] / 1e6, this.errors);
+		}
+
+		private static double millis(long[] sorted, double percentile) {
+			return sorted[(int) Math.ceil(percentile * sorted.length) - 1] / 1e6;
+		}
+
+	}
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.assertj.core.api.Assertions.assertThatNoException;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.zaxxer.hikari.HikariConfig;
+
+/**
+ * Tests for the checks and diagnostics of {@link VirtualThreadsConfiguration}.
+ */
+class VirtualThreadsConfigurationTests {
+
+	private final VirtualThreadsProperties properties = new VirtualThreadsProperties(20, Duration.ofSeconds(2),
+			Duration.ofMillis(20));
+
+	@Test
+	void shouldAcceptSmallPool() {
+		HikariConfig pool = new HikariConfig();
+		pool.setMaximumPoolSize(20);
+		pool.setConnectionTimeout(2000);
+
+		assertThatNoException().isThrownBy(() -> VirtualThreadsConfiguration.checkPoolSizing(pool, this.properties));
+	}
+
+	@Test
+	void shouldRejectOversizedPool() {
+		HikariConfig pool = new HikariConfig();
+		pool.setMaximumPoolSize(200);
+		pool.setConnectionTimeout(2000);
+
+		assertThatIllegalStateException()
+			.isThrownBy(() -> VirtualThreadsConfiguration.checkPoolSizing(pool, this.properties))
+			.withMessageContaining("maximum-pool-size");
+	}
+
+	@Test
+	void shouldRejectLongConnectionTimeout() {
+		HikariConfig pool = new HikariConfig();
+		pool.setMaximumPoolSize(10);
+		pool.setConnectionTimeout(30000);
+
+		assertThatIllegalStateException()
+			.isThrownBy(() -> VirtualThreadsConfiguration.checkPoolSizing(pool, this.properties))
+			.withMessageContaining("connection-timeout");
+	}
+
+	@Test
+	void shouldAttributePinningToInnermostKnownLayer() {
+		assertThat(VirtualThreadPinningMonitor.layer(List.of("java.lang.Object.wait", "org.h2.engine.SessionLocal.lock",
+				"com.zaxxer.hikari.pool.ProxyStatement.executeQuery",
+				"org.hibernate.sql.exec.internal.JdbcSelectExecutor.list")))
+			.isEqualTo("jdbc-driver");
+		assertThat(VirtualThreadPinningMonitor
+			.layer(List.of("java.lang.Object.wait", "org.hibernate.engine.spi.ActionQueue.executeActions")))
+			.isEqualTo("hibernate");
+		assertThat(VirtualThreadPinningMonitor.layer(List.of("java.lang.Object.wait"))).isEqualTo("other");
+	}
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatNoException;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.samples.petclinic.system.VisitPartitions.Dialect;
+import org.springframework.samples.petclinic.system.VisitPartitions.Partition;
+
+/**
+ * Tests for how {@link VisitPartitions} plans the partitions of the {@code visits} table.
+ */
+class VisitPartitionsTests {
+
+	private static final LocalDate TODAY = LocalDate.of(2024, 5, 17);
+
+	private final VisitPartitions partitions = new VisitPartitions(new DriverManagerDataSource(), 2, 1, 6);
+
+	@Test
+	void shouldCreateHistoryAndMonthsOnFirstRun() {
+		List<Partition> missing = this.partitions.missing(List.of(new Partition("default", null, null)), TODAY);
+
+		assertThat(missing).containsExactly(new Partition("p_history", null, LocalDate.of(2024, 3, 1)),
+				new Partition("p202403", LocalDate.of(2024, 3, 1), LocalDate.of(2024, 4, 1)),
+				new Partition("p202404", LocalDate.of(2024, 4, 1), LocalDate.of(2024, 5, 1)),
+				new Partition("p202405", LocalDate.of(2024, 5, 1), LocalDate.of(2024, 6, 1)),
+				new Partition("p202406", LocalDate.of(2024, 6, 1), LocalDate.of(2024, 7, 1)));
+	}
+
+	@Test
+	void shouldOnlyAddMonthsFollowingTheNewestPartition() {
+		List<Partition> existing = List.of(new Partition("p_history", null, LocalDate.of(2024, 3, 1)),
+				new Partition("p202403", LocalDate.of(2024, 3, 1), LocalDate.of(2024, 4, 1)),
+				new Partition("p202404", LocalDate.of(2024, 4, 1), LocalDate.of(2024, 5, 1)),
+				new Partition("p202405", LocalDate.of(2024, 5, 1), LocalDate.of(2024, 6, 1)),
+				new Partition("p202406", LocalDate.of(2024, 6, 1), LocalDate.of(2024, 7, 1)),
+				new Partition("p_future", LocalDate.of(2024, 7, 1), null));
+
+		assertThat(this.partitions.missing(existing, TODAY)).isEmpty();
+		assertThat(this.partitions.missing(existing, TODAY.plusMonths(2))).extracting(Partition::name)
+			.containsExactly("p202407", "p202408");
+	}
+
+	@Test
+	void shouldArchivePartitionsEndingBeforeTheCutoff() {
+		List<Partition> existing = List.of(new Partition("p_history", null, LocalDate.of(2023, 9, 1)),
+				new Partition("p202309", LocalDate.of(2023, 9, 1), LocalDate.of(2023, 10, 1)),
+				new Partition("p202312", LocalDate.of(2023, 12, 1), LocalDate.of(2024, 1, 1)),
+				new Partition("default", null, null));
+
+		assertThat(this.partitions.expired(existing, TODAY)).extracting(Partition::name)
+			.containsExactly("p_history", "p202309");
+	}
+
+	@Test
+	void shouldKeepPartitionsWithoutArchiveAge() {
+		VisitPartitions keepAll = new VisitPartitions(new DriverManagerDataSource(), 2, 1, 0);
+
+		assertThat(keepAll.expired(List.of(new Partition("p_history", null, LocalDate.of(2000, 1, 1))), TODAY))
+			.isEmpty();
+	}
+
+	@Test
+	void shouldRejectArchivingHotMonths() {
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> new VisitPartitions(new DriverManagerDataSource(), 24, 3, 12))
+			.withMessageContaining("24 hot months");
+	}
+
+	@Test
+	void shouldParseCatalogBounds() {
+		assertThat(Dialect.date("'2024-02-01'")).isEqualTo(LocalDate.of(2024, 2, 1));
+		assertThat(Dialect.date("MINVALUE")).isNull();
+		assertThat(Dialect.date("MAXVALUE")).isNull();
+	}
+
+	@Test
+	void shouldIgnoreDatabaseWithoutPartitionedSchema() {
+		EmbeddedDatabase database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2)
+			.generateUniqueName(true)
+			.addScript("db/h2/schema.sql")
+			.build();
+		try {
+			assertThatNoException().isThrownBy(() -> new VisitPartitions(database, 2, 1, 0).maintain(TODAY));
+		}
+		finally {
+			database.shutdown();
+		}
+	}
+
+}
@@ -23,8 +23,11 @@ import org.junit.jupiter.api.condition.DisabledInNativeImage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.aot.DisabledInAotMode;
 import org.springframework.test.web.servlet.MockMvc;
@@ -33,6 +36,8 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -40,7 +45,9 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * Test class for the {@link VetController}
  */
 
-@WebMvcTest(VetController.class)
+@WebMvcTest(value = VetController.class,
+		includeFilters = @ComponentScan.Filter(value = { VetDirectory.class, VetRepresentations.class },
+				type = FilterType.ASSIGNABLE_TYPE))
 @DisabledInNativeImage
 @DisabledInAotMode
 class VetControllerTests {
@@ -51,6 +58,9 @@ class VetControllerTests {
 	@MockBean
 	private VetRepository vets;
 
+	@Autowired
+	private VetDirectory directory;
+
 	private Vet james() {
 		Vet james = new Vet();
 		james.setFirstName("James");
@@ -68,12 +78,17 @@ class VetControllerTests {
 		radiology.setId(1);
 		radiology.setName("radiology");
 		helen.addSpecialty(radiology);
+		Specialty dentistry = new Specialty();
+		dentistry.setId(2);
+		dentistry.setName("Dentistry");
+		helen.addSpecialty(dentistry);
 		return helen;
 	}
 
 	@BeforeEach
 	void setup() {
-		given(this.vets.findAll()).willReturn(Lists.newArrayList(james(), helen()));
+		this.directory.invalidate();
+		given(this.vets.findAll()).willReturn(Lists.newArrayList(helen(), james()));
 		given(this.vets.findAll(any(Pageable.class)))
 			.willReturn(new PageImpl<Vet>(Lists.newArrayList(james(), helen())));
 
@@ -97,4 +112,60 @@ class VetControllerTests {
 			.andExpect(jsonPath("$.vetList[0].id").value(1));
 	}
 
+	@Test
+	void testShowResourcesVetListSortsSpecialties() throws Exception {
+		mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.vetList[1].id").value(2))
+			.andExpect(jsonPath("$.vetList[1].specialties[0].name").value("Dentistry"))
+			.andExpect(jsonPath("$.vetList[1].specialties[1].name").value("radiology"));
+	}
+
+	@Test
+	void testVetListIsReadOnce() throws Exception {
+		mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
+		mockMvc.perform(get("/vets.html?page=1")).andExpect(status().isOk());
+		mockMvc.perform(get("/vets.html?page=2")).andExpect(status().isOk());
+
+		verify(this.vets, times(1)).findAll();
+	}
+
+	@Test
+	void testShowResourcesVetListAsXml() throws Exception {
+		mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_XML))
+			.andExpect(status().isOk())
+			.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_XML))
+			.andExpect(xpath("/vets/vetList[1]/id").string("1"));
+	}
+
+	@Test
+	void testShowResourcesVetListNotModified() throws Exception {
+		String etag = mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON))
+			.andExpect(status().isOk())
+			.andExpect(header().exists(HttpHeaders.ETAG))
+			.andReturn()
+			.getResponse()
+			.getHeader(HttpHeaders.ETAG);
+
+		mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON).header(HttpHeaders.IF_NONE_MATCH, etag))
+			.andExpect(status().isNotModified());
+		mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_XML).header(HttpHeaders.IF_NONE_MATCH, etag))
+			.andExpect(status().isOk());
+		verify(this.vets, times(1)).findAll();
+	}
+
+	@Test
+	void testShowResourcesVetListChangesETagWithData() throws Exception {
+		String before = mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON))
+			.andReturn()
+			.getResponse()
+			.getHeader(HttpHeaders.ETAG);
+		given(this.vets.findAll()).willReturn(Lists.newArrayList(james()));
+		this.directory.invalidate();
+
+		mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON).header(HttpHeaders.IF_NONE_MATCH, before))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.vetList.length()").value(1));
+	}
+
 }